@@ -0,0 +1,109 @@
+package api;
+
+import bll.JsonWriter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Request latency per route, recorded lock-free.
+ *
+ * Each route keeps a histogram with power-of-two microsecond buckets
+ * (1 us, 2 us, 4 us ... ~35 min), so recording is one array increment and
+ * percentiles can be estimated at any time without storing individual samples.
+ */
+public class LatencyMetrics {
+
+    private static final int BUCKETS = 32;
+
+    private final Map<String, Route> routes = new ConcurrentHashMap<>();
+
+    /**
+     * Records one request.
+     *
+     * @param route       route name, e.g. "movies"
+     * @param elapsedNanos time spent handling the request
+     * @param failed      true if the request ended with a 5xx status or an exception
+     */
+    public void record(String route, long elapsedNanos, boolean failed) {
+        routes.computeIfAbsent(route, r -> new Route()).record(elapsedNanos, failed);
+    }
+
+    /**
+     * Writes all routes as a JSON object: count, errors, mean, p50/p95/p99 and max in milliseconds.
+     */
+    public void writeJson(JsonWriter json) throws IOException {
+        json.beginObject();
+        for (Map.Entry<String, Route> entry : routes.entrySet()) {
+            json.name(entry.getKey());
+            entry.getValue().writeJson(json);
+        }
+        json.endObject();
+    }
+
+    /**
+     * Histogram of one route.
+     */
+    private static final class Route {
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder totalMicros = new LongAdder();
+        private final AtomicLong maxMicros = new AtomicLong();
+
+        void record(long elapsedNanos, boolean failed) {
+            long micros = Math.max(1, elapsedNanos / 1_000);
+            int bucket = Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(micros));
+
+            buckets.incrementAndGet(bucket);
+            count.increment();
+            totalMicros.add(micros);
+            maxMicros.accumulateAndGet(micros, Math::max);
+            if (failed) {
+                errors.increment();
+            }
+        }
+
+        void writeJson(JsonWriter json) throws IOException {
+            long n = count.sum();
+            json.beginObject()
+                    .name("count").value(n)
+                    .name("errors").value(errors.sum())
+                    .name("meanMillis").value(n == 0 ? 0 : totalMicros.sum() / (double) n / 1_000)
+                    .name("p50Millis").value(percentileMillis(0.50))
+                    .name("p95Millis").value(percentileMillis(0.95))
+                    .name("p99Millis").value(percentileMillis(0.99))
+                    .name("maxMillis").value(maxMicros.get() / 1_000.0)
+                    .endObject();
+        }
+
+        /**
+         * Upper bound of the bucket containing the given percentile (at most 2x too high, never above max).
+         */
+        private double percentileMillis(double p) {
+            long[] snapshot = new long[BUCKETS];
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                snapshot[i] = buckets.get(i);
+                total += snapshot[i];
+            }
+            if (total == 0) {
+                return 0;
+            }
+
+            long rank = (long) Math.ceil(p * total);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += snapshot[i];
+                if (seen >= rank) {
+                    return Math.min(1L << (i + 1), maxMicros.get()) / 1_000.0;
+                }
+            }
+            return maxMicros.get() / 1_000.0;
+        }
+    }
+}
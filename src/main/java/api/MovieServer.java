@@ -0,0 +1,508 @@
+package api;
+
+import be.Category;
+import be.Movie;
+import be.VideoInfo;
+import bll.JsonWriter;
+import bll.MovieManager;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Headless entry point: serves the catalog over a small HTTP/JSON API
+ * (JDK built-in HTTP server, no JavaFX).
+ *
+ * The catalog is loaded once and kept in memory; it is refreshed from the database in
+ * the background. Clients therefore never hold a database connection, and the catalog
+ * endpoint is answered from memory with a streamed response.
+ *
+ * Endpoints:
+ * - GET  /api/movies[?q=text]      all movies (or a title search), streamed; supports If-None-Match
+ * - GET  /api/movies/{id}          one movie; supports If-None-Match
+ * - POST /api/movies/{id}/watched  sets the last view date to today
+ * - GET  /api/categories           all categories
+ * - GET  /api/recommendations[?count=n]
+ * - GET  /api/stats[?month=yyyy-mm&count=n]  most watched, most popular, watch time per category
+ * - GET  /api/metrics              request latency per route
+ *
+ * Settings (system properties): mymovies.api.host (default 127.0.0.1), mymovies.api.port (8765),
+ * mymovies.api.threads (8), mymovies.api.refreshSeconds (30).
+ */
+public class MovieServer {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Every n-th refresh reloads even if the stamp is unchanged (it does not cover video info)
+    private static final int FULL_RELOAD_EVERY = 10;
+
+    private final MovieManager manager = new MovieManager();
+    private final LatencyMetrics metrics = new LatencyMetrics();
+
+    // Immutable snapshot of the catalog plus its ETag; replaced as a whole on refresh
+    private volatile Catalog catalog = new Catalog(List.of());
+
+    // Catalog stamp the snapshot was loaded at (see MovieManager.getCatalogStamp())
+    private String catalogStamp;
+    private int refreshCount;
+
+    private HttpServer server;
+    private ExecutorService handlers;
+    private ScheduledExecutorService refresher;
+
+    /**
+     * Starts the server and blocks until the JVM is stopped.
+     */
+    public static void main(String[] args) throws IOException {
+        String host = System.getProperty("mymovies.api.host", "127.0.0.1");
+        int port = Integer.getInteger("mymovies.api.port", 8765);
+        int threads = Integer.getInteger("mymovies.api.threads", 8);
+        int refreshSeconds = Integer.getInteger("mymovies.api.refreshSeconds", 30);
+
+        MovieServer movieServer = new MovieServer();
+        movieServer.start(new InetSocketAddress(host, port), threads, refreshSeconds);
+        Runtime.getRuntime().addShutdownHook(new Thread(movieServer::stop));
+
+        System.out.println("MyMovies API listening on http://" + host + ":" + port + "/api/movies");
+    }
+
+    /**
+     * Prepares the database, loads the catalog and starts serving.
+     */
+    public void start(InetSocketAddress address, int threads, int refreshSeconds) throws IOException {
+        manager.prepareDatabase();
+        refresh(true);
+
+        // Java 17 has no virtual threads: a bounded pool keeps memory and DB load predictable
+        handlers = Executors.newFixedThreadPool(threads, daemonThreads("api-handler"));
+
+        server = HttpServer.create(address, 0);
+        server.setExecutor(handlers);
+        server.createContext("/api/movies", timed("movies", this::handleMovies));
+        server.createContext("/api/categories", timed("categories", this::handleCategories));
+        server.createContext("/api/recommendations", timed("recommendations", this::handleRecommendations));
+        server.createContext("/api/stats", timed("stats", this::handleStats));
+        server.createContext("/api/metrics", timed("metrics", this::handleMetrics));
+        server.start();
+
+        refresher = Executors.newSingleThreadScheduledExecutor(daemonThreads("api-refresh"));
+        refresher.scheduleWithFixedDelay(this::refreshQuietly, refreshSeconds, refreshSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops accepting requests and shuts down the worker threads.
+     */
+    public void stop() {
+        if (server != null) {
+            server.stop(1);
+        }
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+        if (handlers != null) {
+            handlers.shutdownNow();
+        }
+    }
+
+    // ---------- Catalog snapshot ----------
+
+    /**
+     * Reloads the catalog from the database. Unless forced, the reload is skipped when the
+     * catalog stamp (row counts and version counters) has not changed since the last one.
+     * The snapshot (and so the ETag) is only replaced when something actually changed.
+     */
+    private synchronized void refresh(boolean force) {
+        // Read before loading, so a change made during the load is picked up next time
+        String stamp = manager.getCatalogStamp();
+        if (!force && stamp.equals(catalogStamp)) {
+            return;
+        }
+
+        Catalog fresh = new Catalog(manager.getAllMovies());
+        catalogStamp = stamp;
+        if (!fresh.etag.equals(catalog.etag)) {
+            catalog = fresh;
+        }
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh(++refreshCount % FULL_RELOAD_EVERY == 0);
+        } catch (Exception e) {
+            // Keep serving the last good snapshot
+            e.printStackTrace();
+        }
+    }
+
+    // ---------- Handlers ----------
+
+    private void handleMovies(HttpExchange exchange) throws IOException {
+        // Path is /api/movies, /api/movies/{id} or /api/movies/{id}/watched
+        String[] parts = exchange.getRequestURI().getPath().split("/");
+        String method = exchange.getRequestMethod();
+
+        if (parts.length == 3) {
+            requireMethod(exchange, "GET");
+            listMovies(exchange);
+            return;
+        }
+
+        int id = parseId(parts[3]);
+        if (parts.length == 4 && method.equals("GET")) {
+            getMovie(exchange, id);
+        } else if (parts.length == 5 && parts[4].equals("watched")) {
+            requireMethod(exchange, "POST");
+            markWatched(exchange, id);
+        } else {
+            throw new ApiException(404, "Not found");
+        }
+    }
+
+    private void listMovies(HttpExchange exchange) throws IOException {
+        Catalog snapshot = catalog;
+        if (notModified(exchange, snapshot.etag)) {
+            return;
+        }
+
+        String query = queryParams(exchange.getRequestURI()).get("q");
+        String needle = (query == null) ? null : query.trim().toLowerCase();
+
+        exchange.getResponseHeaders().set("ETag", snapshot.etag);
+        try (JsonWriter json = startJson(exchange, 200)) {
+            json.beginArray();
+            for (Movie movie : snapshot.movies) {
+                if (needle == null || movie.getTitle().toLowerCase().contains(needle)) {
+                    writeMovie(json, movie);
+                }
+            }
+            json.endArray();
+        }
+    }
+
+    private void getMovie(HttpExchange exchange, int id) throws IOException {
+        Catalog snapshot = catalog;
+        Movie movie = snapshot.byId.get(id);
+        if (movie == null) {
+            throw new ApiException(404, "Movie " + id + " not found");
+        }
+
+        String etag = "\"" + id + "-" + Long.toHexString(fingerprint(movie)) + "\"";
+        if (notModified(exchange, etag)) {
+            return;
+        }
+
+        exchange.getResponseHeaders().set("ETag", etag);
+        try (JsonWriter json = startJson(exchange, 200)) {
+            writeMovie(json, movie);
+        }
+    }
+
+    private void markWatched(HttpExchange exchange, int id) throws IOException {
+        synchronized (this) {
+            Movie current = catalog.byId.get(id);
+            if (current == null) {
+                throw new ApiException(404, "Movie " + id + " not found");
+            }
+
+            // Other threads may be streaming the snapshot: change a copy, never the shared movie
+            Movie watched = new Movie(current);
+            manager.updateLastView(watched);
+
+            // New snapshot with the copy, so the catalog ETag changes
+            List<Movie> movies = new ArrayList<>(catalog.movies);
+            movies.set(movies.indexOf(current), watched);
+            catalog = new Catalog(movies);
+        }
+        exchange.sendResponseHeaders(204, -1);
+    }
+
+    private void handleCategories(HttpExchange exchange) throws IOException {
+        requireMethod(exchange, "GET");
+        try (JsonWriter json = startJson(exchange, 200)) {
+            json.beginArray();
+            for (Category category : manager.getAllCategories()) {
+                writeCategory(json, category);
+            }
+            json.endArray();
+        }
+    }
+
+    private void handleRecommendations(HttpExchange exchange) throws IOException {
+        requireMethod(exchange, "GET");
+        String countParam = queryParams(exchange.getRequestURI()).getOrDefault("count", "10");
+        int count = Math.max(1, Math.min(100, parseId(countParam)));
+
+        try (JsonWriter json = startJson(exchange, 200)) {
+            json.beginArray();
+            for (Movie movie : manager.getRecommendations(count)) {
+                writeMovie(json, movie);
+            }
+            json.endArray();
+        }
+    }
+
+    /**
+     * Watch statistics: most watched movies of a month (?month=2024-05, default this month),
+     * most popular movies and watch time per category.
+     */
+    private void handleStats(HttpExchange exchange) throws IOException {
+        requireMethod(exchange, "GET");
+        Map<String, String> params = queryParams(exchange.getRequestURI());
+        int count = Math.max(1, Math.min(100, parseId(params.getOrDefault("count", "10"))));
+        YearMonth month;
+        try {
+            month = params.containsKey("month") ? YearMonth.parse(params.get("month")) : YearMonth.now();
+        } catch (DateTimeParseException e) {
+            throw new ApiException(400, "Invalid month: " + params.get("month"));
+        }
+
+        try (JsonWriter json = startJson(exchange, 200)) {
+            json.beginObject().name("month").value(month.toString());
+
+            json.name("mostWatched").beginArray();
+            for (Movie movie : manager.getMostWatched(month, count)) {
+                json.beginObject()
+                        .name("plays").value(manager.getPlayCount(movie.getId(), month))
+                        .name("movie");
+                writeMovie(json, movie);
+                json.endObject();
+            }
+            json.endArray();
+
+            json.name("mostPopular").beginArray();
+            for (Movie movie : manager.getMostPopular(count)) {
+                json.beginObject()
+                        .name("plays").value(manager.getPlayCount(movie.getId()))
+                        .name("movie");
+                writeMovie(json, movie);
+                json.endObject();
+            }
+            json.endArray();
+
+            json.name("watchSecondsByCategory").beginObject();
+            for (Map.Entry<String, Long> entry : manager.getWatchTimeByCategory().entrySet()) {
+                json.name(entry.getKey()).value(entry.getValue());
+            }
+            json.endObject();
+
+            json.endObject();
+        }
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        requireMethod(exchange, "GET");
+        try (JsonWriter json = startJson(exchange, 200)) {
+            metrics.writeJson(json);
+        }
+    }
+
+    // ---------- JSON mapping ----------
+
+    private static void writeMovie(JsonWriter json, Movie movie) throws IOException {
+        json.beginObject()
+                .name("id").value(movie.getId())
+                .name("title").value(movie.getTitle())
+                .name("imdbRating").value(movie.getImdbRating())
+                .name("personalRating").value(movie.getPersonalRating())
+                .name("fileLink").value(movie.getFileLink())
+                .name("lastView").value(movie.hasBeenViewed() ? movie.getLastViewAsString() : null)
+                .name("version").value(movie.getVersion());
+
+        json.name("categories").beginArray();
+        for (Category category : movie.getCategories()) {
+            writeCategory(json, category);
+        }
+        json.endArray();
+
+        VideoInfo info = movie.getVideoInfo();
+        json.name("video");
+        if (info == null) {
+            json.nullValue();
+        } else {
+            json.beginObject()
+                    .name("durationSeconds").value(info.getDurationSeconds())
+                    .name("width").value(info.getWidth())
+                    .name("height").value(info.getHeight())
+                    .name("codec").value(info.getCodec())
+                    .endObject();
+        }
+
+        json.endObject();
+    }
+
+    /**
+     * Hash of everything writeMovie() returns, for the ETags. Not just the version: renaming
+     * or merging a category and saving video info change the JSON but not the movie's row.
+     */
+    private static long fingerprint(Movie movie) {
+        long hash = Objects.hash(movie.getId(), movie.getTitle(), movie.getImdbRating(),
+                movie.getPersonalRating(), movie.getFileLink(), movie.getLastViewDay(), movie.getVersion());
+        for (Category category : movie.getCategories()) {
+            hash = hash * 31 + Objects.hash(category.getId(), category.getName());
+        }
+        VideoInfo info = movie.getVideoInfo();
+        if (info != null) {
+            hash = hash * 31 + Objects.hash(info.getDurationSeconds(), info.getWidth(), info.getHeight(),
+                    info.getCodec());
+        }
+        return hash;
+    }
+
+    private static void writeCategory(JsonWriter json, Category category) throws IOException {
+        json.beginObject()
+                .name("id").value(category.getId())
+                .name("name").value(category.getName())
+                .endObject();
+    }
+
+    // ---------- HTTP helpers ----------
+
+    /**
+     * Wraps a handler with latency recording and JSON error responses.
+     */
+    private HttpHandler timed(String route, HttpHandler handler) {
+        return exchange -> {
+            long start = System.nanoTime();
+            boolean failed = false;
+            try {
+                handler.handle(exchange);
+            } catch (ApiException e) {
+                sendError(exchange, e.status, e.getMessage());
+            } catch (Exception e) {
+                failed = true;
+                e.printStackTrace();
+                sendError(exchange, 500, "Internal error");
+            } finally {
+                exchange.close();
+                metrics.record(route, System.nanoTime() - start, failed);
+            }
+        };
+    }
+
+    /**
+     * Sends the headers for a streamed (chunked) JSON body and returns a writer for it.
+     * Closing the writer completes the response.
+     */
+    private static JsonWriter startJson(HttpExchange exchange, int status) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, 0);
+        Writer out = new BufferedWriter(
+                new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), BUFFER_SIZE);
+        return new JsonWriter(out);
+    }
+
+    /**
+     * Answers 304 if the client already has this version.
+     */
+    private static boolean notModified(HttpExchange exchange, String etag) throws IOException {
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag) || tag.equals("*")) {
+                exchange.getResponseHeaders().set("ETag", etag);
+                exchange.sendResponseHeaders(304, -1);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) {
+        try {
+            try (JsonWriter json = startJson(exchange, status)) {
+                json.beginObject().name("error").value(message).endObject();
+            }
+        } catch (IOException e) {
+            // Headers were already sent or the client went away; nothing left to report to
+        }
+    }
+
+    private static void requireMethod(HttpExchange exchange, String method) {
+        if (!exchange.getRequestMethod().equals(method)) {
+            throw new ApiException(405, "Use " + method);
+        }
+    }
+
+    private static int parseId(String s) {
+        try {
+            return Integer.parseInt(s);
+        } catch (NumberFormatException e) {
+            throw new ApiException(400, "Not a number: " + s);
+        }
+    }
+
+    private static Map<String, String> queryParams(URI uri) {
+        Map<String, String> params = new HashMap<>();
+        String raw = uri.getRawQuery();
+        if (raw == null) {
+            return params;
+        }
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = (eq < 0) ? pair : pair.substring(0, eq);
+            String value = (eq < 0) ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        return r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /**
+     * Immutable catalog snapshot with an ETag derived from its content.
+     * The movies in it are never changed after the snapshot is built (markWatched() replaces a copy).
+     */
+    private static final class Catalog {
+        final List<Movie> movies;
+        final Map<Integer, Movie> byId;
+        final String etag;
+
+        Catalog(List<Movie> movies) {
+            this.movies = List.copyOf(movies);
+            this.byId = new HashMap<>(movies.size() * 2);
+
+            long hash = 17;
+            for (Movie m : this.movies) {
+                byId.put(m.getId(), m);
+                hash = hash * 31 + fingerprint(m);
+            }
+            this.etag = "\"" + Long.toHexString(hash) + "-" + this.movies.size() + "\"";
+        }
+    }
+
+    /**
+     * Error with an HTTP status, turned into a JSON error response.
+     */
+    private static final class ApiException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        ApiException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
@@ -10,7 +10,7 @@ public class Category {
     // Unique identifier of the category (from the database)
     private final int id;
 
-    // Human-readable name of the category (e.g. Drama, Action, Comedy)
+    // Human-readable name of the category (e.g. Drama, Action, Comedy), shared via StringPool
     private String name;
 
     /**
@@ -21,7 +21,7 @@ public class Category {
      */
     public Category(int id, String name) {
         this.id = id;
-        this.name = name;
+        this.name = StringPool.SHARED.intern(name);
     }
 
     /**
@@ -42,7 +42,7 @@ public class Category {
      * Updates the category name.
      */
     public void setName(String name) {
-        this.name = name;
+        this.name = StringPool.SHARED.intern(name);
     }
 
     /**
@@ -1,5 +1,6 @@
 package be;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -10,6 +11,9 @@ import java.util.List;
  */
 public class Movie {
 
+    // lastViewDay value of a movie that has never been watched
+    public static final long NEVER_VIEWED = Long.MIN_VALUE;
+
     // Unique identifier of the movie (primary key in the database)
     private int id;
 
@@ -22,15 +26,24 @@ public class Movie {
     // Official IMDB rating
     private double imdbRating;
 
-    // Path to the movie file on disk
-    private String fileLink;
+    // Path to the movie file on disk, split so that movies in the same folder share the
+    // directory string (see StringPool); getFileLink() puts the two parts back together
+    private String fileDirectory;
+    private String fileName;
 
-    // Date of last view (stored as String, parsed later when needed)
-    private String lastView;
+    // Date of last view as an epoch day (days since 1970-01-01), or NEVER_VIEWED.
+    // A primitive keeps sorting, range filters and the cleanup index free of parsing and allocation.
+    private long lastViewDay;
 
     // List of categories associated with this movie (Action, Horror, etc.)
     private List<Category> categories = new ArrayList<>();
 
+    // Runtime/resolution/codec read from the file (null until the file has been scanned)
+    private VideoInfo videoInfo;
+
+    // Row version as read from the database; an update only succeeds if it still matches
+    private int version;
+
     /**
      * Creates a new Movie object.
      *
@@ -39,21 +52,37 @@ public class Movie {
      * @param personalRating user rating
      * @param imdbRating     IMDB rating
      * @param fileLink       path to the video file
-     * @param lastView       date when the movie was last viewed
+     * @param lastViewDay    epoch day when the movie was last viewed, or NEVER_VIEWED
      */
     public Movie(int id,
                  String title,
                  double personalRating,
                  double imdbRating,
                  String fileLink,
-                 String lastView) {
+                 long lastViewDay) {
 
         this.id = id;
         this.title = title;
         this.personalRating = personalRating;
         this.imdbRating = imdbRating;
-        this.fileLink = fileLink;
-        this.lastView = lastView;
+        setFileLink(fileLink);
+        this.lastViewDay = lastViewDay;
+    }
+
+    /**
+     * Creates a copy of another movie (the category list is copied, the categories are shared).
+     */
+    public Movie(Movie other) {
+        this.id = other.id;
+        this.title = other.title;
+        this.personalRating = other.personalRating;
+        this.imdbRating = other.imdbRating;
+        this.fileDirectory = other.fileDirectory;
+        this.fileName = other.fileName;
+        this.lastViewDay = other.lastViewDay;
+        this.categories = new ArrayList<>(other.categories);
+        this.videoInfo = other.videoInfo;
+        this.version = other.version;
     }
 
     // ---------- GETTERS ----------
@@ -74,22 +103,51 @@ public class Movie {
         return imdbRating;
     }
 
+    /**
+     * Returns the path of the movie file. Joining the two parts is one exactly sized copy;
+     * keeping the joined string would store the folder path once per movie again.
+     */
     public String getFileLink() {
-        return fileLink;
+        return (fileDirectory == null) ? fileName : fileDirectory.concat(fileName);
+    }
+
+    /**
+     * Returns the last view date as an epoch day, or NEVER_VIEWED.
+     */
+    public long getLastViewDay() {
+        return lastViewDay;
+    }
+
+    public boolean hasBeenViewed() {
+        return lastViewDay != NEVER_VIEWED;
     }
 
     /**
-     * Returns the last view date as a String.
-     * The conversion to LocalDate is handled outside the BE layer.
+     * Returns the last view date as "YYYY-MM-DD", or "" if the movie was never viewed.
+     * Meant for display and export only; comparisons should use getLastViewDay().
      */
-    public String getLastView() {
-        return lastView;
+    public String getLastViewAsString() {
+        return hasBeenViewed() ? LocalDate.ofEpochDay(lastViewDay).toString() : "";
     }
 
     public List<Category> getCategories() {
         return categories;
     }
 
+    /**
+     * Returns the technical file information, or null if the file has not been scanned yet.
+     */
+    public VideoInfo getVideoInfo() {
+        return videoInfo;
+    }
+
+    /**
+     * Returns the row version this object was loaded with (used for optimistic locking).
+     */
+    public int getVersion() {
+        return version;
+    }
+
     // ---------- SETTERS ----------
 
     public void setId(int id) {
@@ -109,14 +167,28 @@ public class Movie {
     }
 
     public void setFileLink(String fileLink) {
-        this.fileLink = fileLink;
+        if (fileLink == null) {
+            this.fileDirectory = null;
+            this.fileName = null;
+            return;
+        }
+        this.fileDirectory = StringPool.SHARED.directoryOf(fileLink);
+        this.fileName = fileLink.substring(StringPool.fileNameStart(fileLink));
     }
 
     /**
-     * Updates the last view date.
+     * Updates the last view date (epoch day, or NEVER_VIEWED).
      */
-    public void setLastView(String lastView) {
-        this.lastView = lastView;
+    public void setLastViewDay(long lastViewDay) {
+        this.lastViewDay = lastViewDay;
+    }
+
+    public void setVideoInfo(VideoInfo videoInfo) {
+        this.videoInfo = videoInfo;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
     }
 
     /**
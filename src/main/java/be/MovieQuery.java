@@ -0,0 +1,177 @@
+package be;
+
+import java.time.LocalDate;
+
+/**
+ * Search criteria for movies, evaluated by the database (see MovieDAO.findMovies).
+ * Only the criteria that are set are applied; an empty query matches every movie.
+ *
+ * Built fluently, e.g.
+ * <pre>
+ * new MovieQuery().text("alien").minImdbRating(7).sortBy(MovieQuery.SortField.IMDB_RATING, true).limit(50)
+ * </pre>
+ */
+public class MovieQuery {
+
+    /**
+     * Columns the result can be sorted by.
+     */
+    public enum SortField {
+        ID,
+        TITLE,
+        IMDB_RATING,
+        PERSONAL_RATING,
+        LAST_VIEW
+    }
+
+    // Matches the title or any category name (case-insensitive "contains")
+    private String text;
+
+    // Only movies that have this category (null = any)
+    private Integer categoryId;
+
+    // Inclusive ranges; null means "no bound"
+    private Double minImdbRating;
+    private Double maxImdbRating;
+    private Double minPersonalRating;
+    private Double maxPersonalRating;
+    private LocalDate lastViewFrom;
+    private LocalDate lastViewTo;
+
+    private SortField sortField = SortField.TITLE;
+    private boolean descending;
+
+    // 0 = no limit
+    private int limit;
+    private int offset;
+
+    // ---------- Builder methods ----------
+
+    public MovieQuery text(String text) {
+        this.text = (text == null || text.isBlank()) ? null : text.trim();
+        return this;
+    }
+
+    public MovieQuery category(Integer categoryId) {
+        this.categoryId = categoryId;
+        return this;
+    }
+
+    public MovieQuery minImdbRating(Double min) {
+        this.minImdbRating = min;
+        return this;
+    }
+
+    public MovieQuery maxImdbRating(Double max) {
+        this.maxImdbRating = max;
+        return this;
+    }
+
+    public MovieQuery minPersonalRating(Double min) {
+        this.minPersonalRating = min;
+        return this;
+    }
+
+    public MovieQuery maxPersonalRating(Double max) {
+        this.maxPersonalRating = max;
+        return this;
+    }
+
+    /**
+     * Last viewed on or after / on or before the given dates. Never-viewed movies never match a range.
+     */
+    public MovieQuery lastViewBetween(LocalDate from, LocalDate to) {
+        this.lastViewFrom = from;
+        this.lastViewTo = to;
+        return this;
+    }
+
+    public MovieQuery sortBy(SortField field, boolean descending) {
+        this.sortField = (field == null) ? SortField.TITLE : field;
+        this.descending = descending;
+        return this;
+    }
+
+    /**
+     * Returns at most "limit" movies, skipping the first "offset" ones (paging).
+     */
+    public MovieQuery page(int offset, int limit) {
+        this.offset = Math.max(0, offset);
+        this.limit = Math.max(0, limit);
+        return this;
+    }
+
+    public MovieQuery limit(int limit) {
+        return page(0, limit);
+    }
+
+    /**
+     * Returns an independent copy (e.g. to change the paging for one database without touching the original).
+     */
+    public MovieQuery copy() {
+        MovieQuery copy = new MovieQuery();
+        copy.text = text;
+        copy.categoryId = categoryId;
+        copy.minImdbRating = minImdbRating;
+        copy.maxImdbRating = maxImdbRating;
+        copy.minPersonalRating = minPersonalRating;
+        copy.maxPersonalRating = maxPersonalRating;
+        copy.lastViewFrom = lastViewFrom;
+        copy.lastViewTo = lastViewTo;
+        copy.sortField = sortField;
+        copy.descending = descending;
+        copy.limit = limit;
+        copy.offset = offset;
+        return copy;
+    }
+
+    // ---------- GETTERS ----------
+
+    public String getText() {
+        return text;
+    }
+
+    public Integer getCategoryId() {
+        return categoryId;
+    }
+
+    public Double getMinImdbRating() {
+        return minImdbRating;
+    }
+
+    public Double getMaxImdbRating() {
+        return maxImdbRating;
+    }
+
+    public Double getMinPersonalRating() {
+        return minPersonalRating;
+    }
+
+    public Double getMaxPersonalRating() {
+        return maxPersonalRating;
+    }
+
+    public LocalDate getLastViewFrom() {
+        return lastViewFrom;
+    }
+
+    public LocalDate getLastViewTo() {
+        return lastViewTo;
+    }
+
+    public SortField getSortField() {
+        return sortField;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+}
@@ -0,0 +1,61 @@
+package be;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Catalog-wide pool for strings that repeat across many movies.
+ *
+ * - intern(): one shared instance per distinct value, for small vocabularies such as category
+ *   names and codecs ("avc1" a million times is then one String instead of a million).
+ * - directoryOf(): the directory part of a file path, shared by every movie in that folder.
+ *   Movie stores a file link as (shared directory, file name), so a folder path is stored once
+ *   for the whole catalog instead of once per movie.
+ *
+ * Titles are not pooled: they are nearly unique, and the JVM already stores Latin-1 text with
+ * one byte per character (compact strings).
+ *
+ * The pool only holds its strings weakly: once no movie, category or video info uses a value any
+ * more (deleted movies, renamed folders), the garbage collector drops the entry, so a long-running
+ * process does not keep every path it has ever seen.
+ */
+public final class StringPool {
+
+    public static final StringPool SHARED = new StringPool();
+
+    // Key and value are the same instance; both weak, so the entry never keeps the string alive
+    private final Map<String, WeakReference<String>> strings = new WeakHashMap<>();
+
+    /**
+     * Returns the shared instance equal to the given string (null stays null).
+     */
+    public synchronized String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        WeakReference<String> ref = strings.get(value);
+        String existing = (ref != null) ? ref.get() : null;
+        if (existing != null) {
+            return existing;
+        }
+        strings.put(value, new WeakReference<>(value));
+        return value;
+    }
+
+    /**
+     * Returns the shared directory part of the path (everything up to and including the last
+     * separator), or null if the path has no directory part.
+     */
+    public String directoryOf(String path) {
+        int end = fileNameStart(path);
+        return end == 0 ? null : intern(path.substring(0, end));
+    }
+
+    /**
+     * Index where the file name starts (after the last / or \), 0 if there is no directory part.
+     */
+    public static int fileNameStart(String path) {
+        return Math.max(path.lastIndexOf('/'), path.lastIndexOf('\\')) + 1;
+    }
+}
@@ -0,0 +1,71 @@
+package be;
+
+/**
+ * Technical information about a movie file (runtime, resolution and codec).
+ * Read from the MP4 container and stored in the Movies table,
+ * so the UI can sort by runtime or quality without touching the file again.
+ * This class belongs to the Business Entity (BE) layer.
+ */
+public class VideoInfo {
+
+    // Runtime in whole seconds
+    private final int durationSeconds;
+
+    // Resolution of the video track in pixels (0 when unknown)
+    private final int width;
+    private final int height;
+
+    // Video codec (e.g. H.264, H.265) or the raw four character code
+    private final String codec;
+
+    // Last-modified time (epoch millis) of the file this information was read from
+    private final long fileModified;
+
+    public VideoInfo(int durationSeconds, int width, int height, String codec, long fileModified) {
+        this.durationSeconds = durationSeconds;
+        this.width = width;
+        this.height = height;
+        this.codec = StringPool.SHARED.intern(codec);
+        this.fileModified = fileModified;
+    }
+
+    public int getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public String getCodec() {
+        return codec;
+    }
+
+    public long getFileModified() {
+        return fileModified;
+    }
+
+    /**
+     * Returns the runtime as "h:mm" (e.g. 2:16), or an empty string when unknown.
+     */
+    public String getDurationAsString() {
+        if (durationSeconds <= 0) {
+            return "";
+        }
+        int minutes = durationSeconds / 60;
+        return String.format("%d:%02d", minutes / 60, minutes % 60);
+    }
+
+    /**
+     * Returns a short quality label such as "1080p H.264".
+     */
+    public String getQualityAsString() {
+        String resolution = (height > 0) ? height + "p" : "";
+        String c = (codec == null) ? "" : codec;
+        return (resolution + " " + c).trim();
+    }
+}
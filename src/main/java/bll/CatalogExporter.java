@@ -0,0 +1,481 @@
+package bll;
+
+import be.Category;
+import be.Movie;
+import be.VideoInfo;
+import dal.CategoryDAO;
+import dal.MovieDAO;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+/**
+ * Streams the whole catalog to a file as CSV, NDJSON or a compact columnar binary format.
+ *
+ * Movies come from a forward-only database cursor (MovieDAO.streamMovies) and are written
+ * through one fixed-size buffer straight into a FileChannel, so memory use does not grow
+ * with the catalog size. The file is written next to the target and moved into place
+ * when complete, so a failed export never leaves a half-written file behind.
+ *
+ * Columnar format (".mmcol", all integers big-endian):
+ * <pre>
+ * header:     "MMC1" | varint categoryCount | (varint id, string name)*
+ * row group:  int32 rowCount | per column: int32 byteLength, bytes   (up to ROW_GROUP_SIZE rows)
+ * footer:     varint groupCount | (int64 offset, int32 rows)* | int64 totalRows
+ * trailer:    int64 footerOffset | "MMC1"
+ * </pre>
+ * Columns, in order: id (delta varint), title (string), imdb and personal rating
+ * (zigzag varint of hundredths), file link (front-coded against the previous row),
+ * last view (varint epoch day + 1, 0 = never), categories (varint count + ids),
+ * duration, width, height (varint, 0 = unknown), codec (string, "" = unknown).
+ * A string is a varint byte length followed by UTF-8 bytes.
+ */
+public class CatalogExporter {
+
+    /**
+     * Supported output formats.
+     */
+    public enum Format {
+        CSV(".csv"),
+        NDJSON(".ndjson"),
+        COLUMNAR(".mmcol");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        /**
+         * Picks the format from a file name (.csv, .ndjson/.jsonl, .mmcol).
+         */
+        public static Format fromFileName(String fileName) {
+            String name = fileName.toLowerCase();
+            if (name.endsWith(".jsonl")) {
+                return NDJSON;
+            }
+            for (Format format : values()) {
+                if (name.endsWith(format.extension)) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("Unknown export format: " + fileName);
+        }
+    }
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final int ROW_GROUP_SIZE = 8192;
+    private static final int PROGRESS_INTERVAL = 10_000;
+    private static final byte[] MAGIC = "MMC1".getBytes(StandardCharsets.US_ASCII);
+
+    // One DAO pair per library; libraries are exported one after the other
+    private final List<MovieDAO> movieDaos;
+    private final List<CategoryDAO> categoryDaos;
+
+    public CatalogExporter(MovieDAO movieDao, CategoryDAO categoryDao) {
+        this(List.of(movieDao), List.of(categoryDao));
+    }
+
+    public CatalogExporter(List<MovieDAO> movieDaos, List<CategoryDAO> categoryDaos) {
+        this.movieDaos = movieDaos;
+        this.categoryDaos = categoryDaos;
+    }
+
+    /**
+     * Streams the movies of every library (IDs are global, so they never collide).
+     */
+    private void streamMovies(MovieDAO.MovieSink sink) throws IOException {
+        for (MovieDAO movieDao : movieDaos) {
+            movieDao.streamMovies(sink);
+        }
+    }
+
+    /**
+     * Exports the catalog.
+     *
+     * @param target   file to create or replace
+     * @param format   output format
+     * @param progress receives the number of movies written so far (every few thousand rows); may be null
+     * @return the number of movies written
+     */
+    public long export(Path target, Format format, LongConsumer progress) throws IOException {
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        LongConsumer onProgress = (progress != null) ? progress : n -> { };
+
+        long rows;
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+
+            rows = switch (format) {
+                case CSV -> exportCsv(channel, onProgress);
+                case NDJSON -> exportNdjson(channel, onProgress);
+                case COLUMNAR -> exportColumnar(channel, onProgress);
+            };
+            channel.force(false);
+
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return rows;
+    }
+
+    // ---------- CSV ----------
+
+    private long exportCsv(FileChannel channel, LongConsumer progress) throws IOException {
+        // Not closed here: closing the writer would close the channel before force()
+        Writer out = Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), BUFFER_SIZE);
+
+        out.write("ID,Title,IMDB Rating,Personal Rating,File Link,Last View,Categories,Duration,Width,Height,Codec\r\n");
+
+        long[] count = {0};
+        streamMovies(movie -> {
+            VideoInfo info = movie.getVideoInfo();
+
+            out.write(Integer.toString(movie.getId()));
+            out.write(',');
+            writeCsvField(out, movie.getTitle());
+            out.write(',');
+            out.write(Double.toString(movie.getImdbRating()));
+            out.write(',');
+            out.write(Double.toString(movie.getPersonalRating()));
+            out.write(',');
+            writeCsvField(out, movie.getFileLink());
+            out.write(',');
+            writeCsvField(out, movie.getLastViewAsString());
+            out.write(',');
+            writeCsvField(out, joinCategories(movie.getCategories()));
+            out.write(',');
+            if (info != null) {
+                out.write(info.getDurationSeconds() + "," + info.getWidth() + "," + info.getHeight() + ",");
+                writeCsvField(out, info.getCodec());
+            } else {
+                out.write(",,,");
+            }
+            out.write("\r\n");
+
+            reportProgress(++count[0], progress);
+        });
+
+        out.flush();
+        return count[0];
+    }
+
+    /**
+     * Writes a CSV field, quoted only when needed (RFC 4180).
+     */
+    private static void writeCsvField(Writer out, String value) throws IOException {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+
+    private static String joinCategories(List<Category> categories) {
+        StringBuilder sb = new StringBuilder();
+        for (Category c : categories) {
+            if (sb.length() > 0) {
+                sb.append(';');
+            }
+            sb.append(c.getName());
+        }
+        return sb.toString();
+    }
+
+    // ---------- NDJSON ----------
+
+    private long exportNdjson(FileChannel channel, LongConsumer progress) throws IOException {
+        Writer out = Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), BUFFER_SIZE);
+
+        long[] count = {0};
+        streamMovies(movie -> {
+            // One JSON object per line, so the file can be processed line by line
+            JsonWriter json = new JsonWriter(out);
+            json.beginObject()
+                    .name("id").value(movie.getId())
+                    .name("title").value(movie.getTitle())
+                    .name("imdbRating").value(movie.getImdbRating())
+                    .name("personalRating").value(movie.getPersonalRating())
+                    .name("fileLink").value(movie.getFileLink())
+                    .name("lastView").value(movie.hasBeenViewed() ? movie.getLastViewAsString() : null);
+
+            json.name("categories").beginArray();
+            for (Category c : movie.getCategories()) {
+                json.value(c.getName());
+            }
+            json.endArray();
+
+            VideoInfo info = movie.getVideoInfo();
+            if (info != null) {
+                json.name("durationSeconds").value(info.getDurationSeconds())
+                        .name("width").value(info.getWidth())
+                        .name("height").value(info.getHeight())
+                        .name("codec").value(info.getCodec());
+            }
+            json.endObject();
+            out.write('\n');
+
+            reportProgress(++count[0], progress);
+        });
+
+        out.flush();
+        return count[0];
+    }
+
+    // ---------- Columnar ----------
+
+    private long exportColumnar(FileChannel channel, LongConsumer progress) throws IOException {
+        ChannelOutput out = new ChannelOutput(channel);
+
+        // Header with the category dictionary (rows only store category IDs)
+        out.write(MAGIC, 0, MAGIC.length);
+        List<Category> categories = new ArrayList<>();
+        for (CategoryDAO categoryDao : categoryDaos) {
+            categories.addAll(categoryDao.getAllCategories());
+        }
+        ColumnBuffer header = new ColumnBuffer();
+        header.writeVarLong(categories.size());
+        for (Category c : categories) {
+            header.writeVarLong(c.getId());
+            header.writeString(c.getName());
+        }
+        out.write(header.bytes, 0, header.size);
+
+        RowGroup group = new RowGroup();
+        List<long[]> groups = new ArrayList<>(); // (offset, rows) per row group
+        long[] count = {0};
+
+        streamMovies(movie -> {
+            group.add(movie);
+            if (group.rows == ROW_GROUP_SIZE) {
+                groups.add(new long[]{out.position(), group.rows});
+                group.writeTo(out);
+            }
+            reportProgress(++count[0], progress);
+        });
+
+        if (group.rows > 0) {
+            groups.add(new long[]{out.position(), group.rows});
+            group.writeTo(out);
+        }
+
+        // Footer: where each row group starts, so readers can skip or read groups in parallel
+        long footerOffset = out.position();
+        ColumnBuffer footer = new ColumnBuffer();
+        footer.writeVarLong(groups.size());
+        for (long[] g : groups) {
+            footer.writeLong(g[0]);
+            footer.writeInt((int) g[1]);
+        }
+        footer.writeLong(count[0]);
+        footer.writeLong(footerOffset);
+        footer.write(MAGIC, 0, MAGIC.length);
+        out.write(footer.bytes, 0, footer.size);
+
+        out.flush();
+        return count[0];
+    }
+
+    private static void reportProgress(long count, LongConsumer progress) {
+        if (count % PROGRESS_INTERVAL == 0) {
+            progress.accept(count);
+        }
+    }
+
+    /**
+     * Up to ROW_GROUP_SIZE rows, buffered column by column.
+     */
+    private static final class RowGroup {
+        private final ColumnBuffer ids = new ColumnBuffer();
+        private final ColumnBuffer titles = new ColumnBuffer();
+        private final ColumnBuffer imdbRatings = new ColumnBuffer();
+        private final ColumnBuffer personalRatings = new ColumnBuffer();
+        private final ColumnBuffer fileLinks = new ColumnBuffer();
+        private final ColumnBuffer lastViews = new ColumnBuffer();
+        private final ColumnBuffer categories = new ColumnBuffer();
+        private final ColumnBuffer durations = new ColumnBuffer();
+        private final ColumnBuffer widths = new ColumnBuffer();
+        private final ColumnBuffer heights = new ColumnBuffer();
+        private final ColumnBuffer codecs = new ColumnBuffer();
+
+        private final ColumnBuffer[] columns = {ids, titles, imdbRatings, personalRatings, fileLinks,
+                lastViews, categories, durations, widths, heights, codecs};
+
+        int rows;
+        private int previousId;
+        private byte[] previousLink = new byte[0];
+
+        void add(Movie movie) {
+            ids.writeVarLong(movie.getId() - previousId);
+            previousId = movie.getId();
+
+            titles.writeString(movie.getTitle());
+            imdbRatings.writeVarLong(zigzag(Math.round(movie.getImdbRating() * 100)));
+            personalRatings.writeVarLong(zigzag(Math.round(movie.getPersonalRating() * 100)));
+
+            // Movies in the same folder share a long prefix: store only the differing tail
+            byte[] link = (movie.getFileLink() == null) ? new byte[0] : movie.getFileLink().getBytes(StandardCharsets.UTF_8);
+            int shared = Arrays.mismatch(previousLink, link);
+            if (shared < 0) {
+                shared = link.length; // identical
+            }
+            fileLinks.writeVarLong(shared);
+            fileLinks.writeVarLong(link.length - shared);
+            fileLinks.write(link, shared, link.length - shared);
+            previousLink = link;
+
+            lastViews.writeVarLong(movie.hasBeenViewed() ? movie.getLastViewDay() + 1 : 0);
+
+            categories.writeVarLong(movie.getCategories().size());
+            for (Category c : movie.getCategories()) {
+                categories.writeVarLong(c.getId());
+            }
+
+            VideoInfo info = movie.getVideoInfo();
+            durations.writeVarLong(info == null ? 0 : info.getDurationSeconds());
+            widths.writeVarLong(info == null ? 0 : info.getWidth());
+            heights.writeVarLong(info == null ? 0 : info.getHeight());
+            codecs.writeString(info == null || info.getCodec() == null ? "" : info.getCodec());
+
+            rows++;
+        }
+
+        void writeTo(ChannelOutput out) throws IOException {
+            ColumnBuffer lengths = new ColumnBuffer();
+            lengths.writeInt(rows);
+            out.write(lengths.bytes, 0, lengths.size);
+
+            for (ColumnBuffer column : columns) {
+                lengths.size = 0;
+                lengths.writeInt(column.size);
+                out.write(lengths.bytes, 0, lengths.size);
+                out.write(column.bytes, 0, column.size);
+                column.size = 0;
+            }
+
+            // Every row group can be decoded on its own
+            rows = 0;
+            previousId = 0;
+            previousLink = new byte[0];
+        }
+
+        private static long zigzag(long v) {
+            return (v << 1) ^ (v >> 63);
+        }
+    }
+
+    /**
+     * Growable byte array with varint/fixed-width helpers. Reused between row groups.
+     */
+    private static final class ColumnBuffer {
+        byte[] bytes = new byte[1024];
+        int size;
+
+        void write(byte[] b, int off, int len) {
+            ensure(len);
+            System.arraycopy(b, off, bytes, size, len);
+            size += len;
+        }
+
+        void writeVarLong(long v) {
+            ensure(10);
+            while ((v & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            bytes[size++] = (byte) v;
+        }
+
+        void writeInt(int v) {
+            ensure(4);
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                bytes[size++] = (byte) (v >>> shift);
+            }
+        }
+
+        void writeLong(long v) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                bytes[size++] = (byte) (v >>> shift);
+            }
+        }
+
+        void writeString(String s) {
+            byte[] b = (s == null) ? new byte[0] : s.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(b.length);
+            write(b, 0, b.length);
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+    }
+
+    /**
+     * Fixed-size direct buffer in front of the FileChannel; tracks the file position.
+     */
+    private static final class ChannelOutput {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private long written;
+
+        ChannelOutput(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        long position() {
+            return written + buffer.position();
+        }
+
+        void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (!buffer.hasRemaining()) {
+                    flush();
+                }
+                int n = Math.min(len, buffer.remaining());
+                buffer.put(b, off, n);
+                off += n;
+                len -= n;
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                written += channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
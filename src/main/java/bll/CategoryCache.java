@@ -0,0 +1,82 @@
+package bll;
+
+import be.Category;
+import dal.CategoryDAO;
+import dal.DatabaseUnavailableException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read-through cache of the category list.
+ *
+ * Categories rarely change, so the list is loaded once and afterwards only the
+ * CategoryVersion counter is read (one single-row query). The list is reloaded
+ * only when another client changed the categories.
+ *
+ * Changes made through this client update the cache directly (e.g. a new category
+ * is added with the ID returned by the insert) instead of invalidating it.
+ *
+ * While the database is unreachable the cached list is returned as is.
+ */
+public class CategoryCache {
+
+    private final CategoryDAO categoryDao;
+
+    private List<Category> categories;
+    private int version;
+
+    public CategoryCache(CategoryDAO categoryDao) {
+        this.categoryDao = categoryDao;
+    }
+
+    /**
+     * Returns the current categories, reloading them only if the version changed.
+     */
+    public synchronized List<Category> getAll() {
+        int current;
+        try {
+            current = categoryDao.getCategoryVersion();
+        } catch (DatabaseUnavailableException e) {
+            if (categories == null) {
+                throw e;
+            }
+            return new ArrayList<>(categories);
+        }
+
+        if (categories == null || current != version) {
+            // Version is read before the list: a change in between only causes one extra reload later
+            categories = new ArrayList<>(categoryDao.getAllCategories());
+            version = current;
+        }
+        return new ArrayList<>(categories);
+    }
+
+    /**
+     * Returns the categories as last loaded, without asking the database (empty if never loaded).
+     * Used while changes are queued offline, when any query would only wait for a timeout.
+     */
+    public synchronized List<Category> getCached() {
+        return (categories != null) ? new ArrayList<>(categories) : new ArrayList<>();
+    }
+
+    /**
+     * Records a category created by this client.
+     */
+    public synchronized void added(Category category) {
+        if (categories != null) {
+            categories.add(category);
+            version++;
+        }
+    }
+
+    /**
+     * Records a category deleted (or merged away) by this client.
+     */
+    public synchronized void removed(Category category) {
+        if (categories != null) {
+            categories.removeIf(c -> c.getId() == category.getId());
+            version++;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package bll;
+
+import be.Movie;
+import dal.FingerprintCache;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Finds movies that point to the same video content under different paths or names.
+ *
+ * A fingerprint is a SHA-256 over the file size, the first and the last SAMPLE_SIZE bytes.
+ * Only those samples are read (memory-mapped), so a multi-GB file costs two small reads.
+ * Files with a unique size can never be duplicates and are not hashed at all.
+ */
+public class DuplicateFinder {
+
+    // Bytes sampled at the start and at the end of each file
+    private static final int SAMPLE_SIZE = 1024 * 1024;
+
+    // Hashing is disk bound; more threads than this mostly make the disk seek around
+    private static final int MAX_THREADS = 4;
+
+    private final FingerprintCache cache;
+
+    public DuplicateFinder(FingerprintCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Returns all groups of two or more movies with identical fingerprints,
+     * biggest files first (they free the most space). Missing files are ignored.
+     */
+    public List<DuplicateGroup> findDuplicates(List<Movie> movies) throws InterruptedException {
+
+        // 1) Group by file size (cheap metadata read)
+        Map<Long, List<FileRef>> bySize = new HashMap<>();
+        for (Movie movie : movies) {
+            String link = movie.getFileLink();
+            if (link == null || link.isBlank()) {
+                continue;
+            }
+            try {
+                Path path = Paths.get(link);
+                BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+                if (attrs.isRegularFile()) {
+                    FileRef ref = new FileRef(movie, path, attrs.size(), attrs.lastModifiedTime().toMillis());
+                    bySize.computeIfAbsent(ref.size, k -> new ArrayList<>()).add(ref);
+                }
+            } catch (Exception ignored) {
+                // Missing / unreachable file -> cannot be a duplicate
+            }
+        }
+
+        List<FileRef> toHash = new ArrayList<>();
+        for (List<FileRef> sameSize : bySize.values()) {
+            if (sameSize.size() > 1) {
+                toHash.addAll(sameSize);
+            }
+        }
+
+        // 2) Fingerprint the remaining candidates in parallel
+        int threads = Math.max(1, Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors()));
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (FileRef ref : toHash) {
+                futures.add(pool.submit(() -> {
+                    ref.fingerprint = fingerprint(ref);
+                    return null;
+                }));
+            }
+            for (Future<?> f : futures) {
+                try {
+                    f.get();
+                } catch (ExecutionException e) {
+                    e.getCause().printStackTrace(); // One unreadable file must not stop the scan
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        cache.save();
+
+        // 3) Group by fingerprint
+        Map<String, DuplicateGroup> groups = new HashMap<>();
+        for (FileRef ref : toHash) {
+            if (ref.fingerprint != null) {
+                groups.computeIfAbsent(ref.fingerprint, k -> new DuplicateGroup(k, ref.size))
+                        .movies.add(ref.movie);
+            }
+        }
+
+        List<DuplicateGroup> result = new ArrayList<>();
+        for (DuplicateGroup group : groups.values()) {
+            if (group.movies.size() > 1) {
+                result.add(group);
+            }
+        }
+        result.sort(Comparator.comparingLong(DuplicateGroup::getFileSize).reversed());
+        return result;
+    }
+
+    /**
+     * Returns the cached fingerprint or computes (and caches) a new one.
+     */
+    private String fingerprint(FileRef ref) throws IOException {
+        String key = ref.path.toAbsolutePath().normalize().toString();
+
+        String cached = cache.get(key, ref.size, ref.lastModified);
+        if (cached != null) {
+            return cached;
+        }
+
+        String fingerprint = computeFingerprint(ref.path, ref.size);
+        cache.put(key, ref.size, ref.lastModified, fingerprint);
+        return fingerprint;
+    }
+
+    /**
+     * Hashes size + head + tail of the file using memory-mapped reads.
+     */
+    static String computeFingerprint(Path path, long size) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // Every JRE ships SHA-256
+        }
+
+        // Size is part of the fingerprint so two files with equal samples but different length never match
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            digest.update((byte) (size >>> shift));
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (size <= 2L * SAMPLE_SIZE) {
+                // Small file: the whole content is cheaper than two overlapping samples
+                if (size > 0) {
+                    digest.update(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+                }
+            } else {
+                MappedByteBuffer head = channel.map(FileChannel.MapMode.READ_ONLY, 0, SAMPLE_SIZE);
+                digest.update(head);
+                MappedByteBuffer tail = channel.map(FileChannel.MapMode.READ_ONLY, size - SAMPLE_SIZE, SAMPLE_SIZE);
+                digest.update(tail);
+            }
+        }
+
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Movies whose files have the same fingerprint.
+     */
+    public static class DuplicateGroup {
+        private final String fingerprint;
+        private final long fileSize;
+        private final List<Movie> movies = new ArrayList<>();
+
+        DuplicateGroup(String fingerprint, long fileSize) {
+            this.fingerprint = fingerprint;
+            this.fileSize = fileSize;
+        }
+
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        public long getFileSize() {
+            return fileSize;
+        }
+
+        public List<Movie> getMovies() {
+            return movies;
+        }
+    }
+
+    /**
+     * A movie file together with its metadata, used while scanning.
+     */
+    private static final class FileRef {
+        final Movie movie;
+        final Path path;
+        final long size;
+        final long lastModified;
+        volatile String fingerprint;
+
+        FileRef(Movie movie, Path path, long size, long lastModified) {
+            this.movie = movie;
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+}
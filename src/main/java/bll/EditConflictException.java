@@ -0,0 +1,30 @@
+package bll;
+
+import be.Movie;
+
+/**
+ * Thrown when a movie could not be saved because another client changed or deleted it
+ * after it was loaded (optimistic locking). Nothing was written.
+ *
+ * Carries the current state of the movie so the UI can refresh just that row.
+ */
+public class EditConflictException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Movie current;
+
+    public EditConflictException(Movie current) {
+        super(current == null
+                ? "The movie was deleted by another user."
+                : "The movie \"" + current.getTitle() + "\" was changed by another user.");
+        this.current = current;
+    }
+
+    /**
+     * Returns the movie as it is stored now, or null if it was deleted.
+     */
+    public Movie getCurrent() {
+        return current;
+    }
+}
@@ -0,0 +1,49 @@
+package bll;
+
+import be.Movie;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of one library ingestion burst.
+ * The UI uses it to update its model incrementally instead of reloading everything.
+ */
+public class LibraryChanges {
+
+    // Movies inserted for new files (already carry their generated IDs)
+    private final List<Movie> added = new ArrayList<>();
+
+    // Movie ID -> new file path, for files that were moved or renamed
+    private final Map<Integer, String> moved = new LinkedHashMap<>();
+
+    // IDs of movies whose file disappeared. They are only reported, never deleted here:
+    // the file may be on a share or disk that is just not mounted right now.
+    private final List<Integer> missingIds = new ArrayList<>();
+
+    public List<Movie> getAdded() {
+        return added;
+    }
+
+    public Map<Integer, String> getMoved() {
+        return moved;
+    }
+
+    public List<Integer> getMissingIds() {
+        return missingIds;
+    }
+
+    /**
+     * Returns true when the burst has nothing to report (no change, no missing file).
+     */
+    public boolean isEmpty() {
+        return added.isEmpty() && moved.isEmpty() && missingIds.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return added.size() + " added, " + moved.size() + " moved, " + missingIds.size() + " missing";
+    }
+}
@@ -0,0 +1,297 @@
+package bll;
+
+import be.Category;
+import be.Movie;
+import be.MovieQuery;
+import dal.MovieDAO;
+import dal.Shard;
+import dal.ShardSet;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Treats several library databases (see dal.ShardSet) as one catalog.
+ *
+ * Reads fan out to all libraries IN PARALLEL, so a search costs as much as the slowest library,
+ * not the sum of all of them. Sorted searches are merged with a k-way merge: every library returns
+ * its rows already sorted (and at most offset + limit of them), and a priority queue over the
+ * heads of those lists produces the combined order without sorting everything again.
+ *
+ * Categories are shared by NAME: "Drama" in two libraries is one category for the user. When a
+ * movie of one library gets a category from another, it is translated to (or created in) its own
+ * library by name.
+ *
+ * With a single library everything runs directly on the calling thread.
+ */
+public class LibraryFederation {
+
+    private final ShardSet shards;
+    private final ExecutorService pool;
+    private final Map<Integer, CategoryCache> categoryCaches = new HashMap<>();
+
+    public LibraryFederation(ShardSet shards) {
+        this.shards = shards;
+        this.pool = shards.size() == 1 ? null : Executors.newFixedThreadPool(shards.size(), r -> {
+            Thread t = new Thread(r, "library-query");
+            t.setDaemon(true);
+            return t;
+        });
+        for (Shard shard : shards.all()) {
+            categoryCaches.put(shard.getIndex(), new CategoryCache(shard.getCategoryDao()));
+        }
+    }
+
+    public ShardSet getShards() {
+        return shards;
+    }
+
+    /**
+     * Runs the call on every library at once and returns the results in library order.
+     * The first failure is rethrown as is.
+     */
+    public <T> List<T> fanOut(Function<Shard, T> call) {
+        if (pool == null) {
+            return List.of(call.apply(shards.primary()));
+        }
+
+        List<CompletableFuture<T>> futures = new ArrayList<>();
+        for (Shard shard : shards.all()) {
+            futures.add(CompletableFuture.supplyAsync(() -> call.apply(shard), pool));
+        }
+
+        List<T> results = new ArrayList<>(futures.size());
+        try {
+            for (CompletableFuture<T> future : futures) {
+                results.add(future.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        return results;
+    }
+
+    // ---------- Movies ----------
+
+    public List<Movie> getAllMovies() {
+        List<List<Movie>> perShard = fanOut(shard -> shard.getMovieDao().getAllMovies());
+        if (perShard.size() == 1) {
+            return perShard.get(0);
+        }
+
+        int total = 0;
+        for (List<Movie> movies : perShard) {
+            total += movies.size();
+        }
+        List<Movie> all = new ArrayList<>(total);
+        perShard.forEach(all::addAll);
+        return all;
+    }
+
+    /**
+     * File link -> movie ID of every movie in every library (global IDs, so each ID tells its library).
+     */
+    public Map<String, Integer> getFileLinks() {
+        List<Map<String, Integer>> perShard = fanOut(shard -> shard.getMovieDao().getFileLinks());
+        if (perShard.size() == 1) {
+            return perShard.get(0);
+        }
+
+        Map<String, Integer> all = new HashMap<>();
+        perShard.forEach(all::putAll);
+        return all;
+    }
+
+    /**
+     * Runs the query on every library and merges the sorted results, then applies the paging.
+     */
+    public List<Movie> findMovies(MovieQuery query) {
+        if (shards.size() == 1) {
+            return shards.primary().getMovieDao().findMovies(query);
+        }
+
+        // The category filter is translated by name; libraries without that category are skipped
+        String categoryName = (query.getCategoryId() != null) ? categoryName(query.getCategoryId()) : null;
+
+        List<List<Movie>> perShard = fanOut(shard -> {
+            MovieQuery local = query.copy();
+            if (categoryName != null) {
+                Category category = findByName(shard, categoryName);
+                if (category == null) {
+                    return List.of();
+                }
+                local.category(category.getId());
+            }
+            // Any of the first offset + limit rows may come from this library
+            local.page(0, query.getLimit() > 0 ? query.getOffset() + query.getLimit() : 0);
+            return shard.getMovieDao().findMovies(local);
+        });
+
+        return mergeSorted(perShard, comparatorFor(query), query.getOffset(), query.getLimit());
+    }
+
+    /**
+     * k-way merge of lists that are each sorted by the comparator; skips "offset" rows and returns
+     * at most "limit" (0 = all). Costs O(n log k) for n rows from k lists.
+     */
+    static List<Movie> mergeSorted(List<List<Movie>> lists, Comparator<Movie> order, int offset, int limit) {
+        // Heap entries: {list index, position in that list}
+        PriorityQueue<int[]> heads = new PriorityQueue<>(Math.max(1, lists.size()),
+                (a, b) -> order.compare(lists.get(a[0]).get(a[1]), lists.get(b[0]).get(b[1])));
+        for (int i = 0; i < lists.size(); i++) {
+            if (!lists.get(i).isEmpty()) {
+                heads.add(new int[]{i, 0});
+            }
+        }
+
+        List<Movie> result = new ArrayList<>(limit > 0 ? limit : 16);
+        int skipped = 0;
+        while (!heads.isEmpty() && (limit <= 0 || result.size() < limit)) {
+            int[] head = heads.poll();
+            List<Movie> list = lists.get(head[0]);
+            Movie movie = list.get(head[1]);
+
+            if (skipped < offset) {
+                skipped++;
+            } else {
+                result.add(movie);
+            }
+
+            if (head[1] + 1 < list.size()) {
+                head[1]++;
+                heads.add(head);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Same order as MovieDAO.findMovies(): the sort column, then the ID ascending.
+     * Global IDs keep the per-library ID order, so the tie-breaker agrees with the database.
+     */
+    static Comparator<Movie> comparatorFor(MovieQuery query) {
+        Comparator<Movie> byField = switch (query.getSortField()) {
+            case ID -> Comparator.comparingInt(Movie::getId);
+            case TITLE -> Comparator.comparing(Movie::getTitle, Comparator.nullsFirst(MovieDAO.TITLE_ORDER));
+            case IMDB_RATING -> Comparator.comparingDouble(Movie::getImdbRating);
+            case PERSONAL_RATING -> Comparator.comparingDouble(Movie::getPersonalRating);
+            // NEVER_VIEWED is Long.MIN_VALUE, so never-viewed movies come first like NULLs do in SQL
+            case LAST_VIEW -> Comparator.comparingLong(Movie::getLastViewDay);
+        };
+        if (query.isDescending()) {
+            byField = byField.reversed();
+        }
+        return byField.thenComparingInt(Movie::getId);
+    }
+
+    // ---------- Categories ----------
+
+    public CategoryCache categoryCache(Shard shard) {
+        return categoryCaches.get(shard.getIndex());
+    }
+
+    /**
+     * All categories, one per name (the first library that has a name provides its ID).
+     */
+    public List<Category> getAllCategories() {
+        List<List<Category>> perShard = fanOut(shard -> categoryCache(shard).getAll());
+        if (perShard.size() == 1) {
+            return perShard.get(0);
+        }
+
+        Map<String, Category> byName = new LinkedHashMap<>();
+        for (List<Category> categories : perShard) {
+            for (Category category : categories) {
+                byName.putIfAbsent(category.getName().toLowerCase(), category);
+            }
+        }
+        return new ArrayList<>(byName.values());
+    }
+
+    /**
+     * Returns the given categories as categories of the given library, matched by name.
+     * Names the library does not have yet are created there.
+     */
+    public List<Category> categoriesFor(Shard shard, List<Category> categories) {
+        List<Category> result = new ArrayList<>(categories.size());
+        for (Category category : categories) {
+            if (category.getId() >= 0 && Shard.indexOf(category.getId()) == shard.getIndex()) {
+                result.add(category);
+                continue;
+            }
+            Category own = findByName(shard, category.getName());
+            if (own == null) {
+                own = shard.getCategoryDao().createCategory(category.getName());
+                categoryCache(shard).added(own);
+            }
+            result.add(own);
+        }
+        return result;
+    }
+
+    /**
+     * Like categoriesFor, for changes queued offline: only the cached categories are used, and
+     * a name the library does not have becomes a category with ID -1 ("not stored yet").
+     * The journal keeps such categories by name; they are created when the change is replayed.
+     */
+    public List<Category> cachedCategoriesFor(Shard shard, List<Category> categories) {
+        List<Category> cached = categoryCache(shard).getCached();
+        List<Category> result = new ArrayList<>(categories.size());
+        for (Category category : categories) {
+            if (category.getId() >= 0 && Shard.indexOf(category.getId()) == shard.getIndex()) {
+                result.add(category);
+                continue;
+            }
+            Category own = null;
+            for (Category c : cached) {
+                if (c.getName().equalsIgnoreCase(category.getName())) {
+                    own = c;
+                    break;
+                }
+            }
+            result.add(own != null ? own : new Category(-1, category.getName()));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the category with this name in the given library, or null.
+     */
+    public Category findByName(Shard shard, String name) {
+        for (Category category : categoryCache(shard).getAll()) {
+            if (category.getName().equalsIgnoreCase(name)) {
+                return category;
+            }
+        }
+        return null;
+    }
+
+    private String categoryName(int categoryId) {
+        for (Category category : categoryCache(shards.owner(categoryId)).getAll()) {
+            if (category.getId() == categoryId) {
+                return category.getName();
+            }
+        }
+        throw new IllegalArgumentException("Unknown category " + categoryId + ".");
+    }
+
+    // ---------- Routing ----------
+
+    /**
+     * Groups IDs by the library that owns them (keeps the order within each library).
+     */
+    public Map<Shard, List<Integer>> groupByShard(Collection<Integer> ids) {
+        Map<Shard, List<Integer>> groups = new LinkedHashMap<>();
+        for (int id : ids) {
+            groups.computeIfAbsent(shards.owner(id), s -> new ArrayList<>()).add(id);
+        }
+        return groups;
+    }
+}
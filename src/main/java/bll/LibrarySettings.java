@@ -0,0 +1,67 @@
+package bll;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Settings for the library folder watcher, loaded from library.settings.
+ * Keeps the folder list out of the code so every install can point to its own disks.
+ */
+public class LibrarySettings {
+
+    // Name and location of the configuration file inside resources
+    private static final String CONFIG_FILE_NAME = "/library.settings";
+
+    private final List<Path> folders = new ArrayList<>();
+    private long debounceMillis = 1500;
+
+    /**
+     * Loads the library settings. Missing settings simply mean "no folders watched".
+     */
+    public LibrarySettings() {
+        Properties props = new Properties();
+
+        try (InputStream is = getClass().getResourceAsStream(CONFIG_FILE_NAME)) {
+            if (is != null) {
+                props.load(is);
+            }
+        } catch (IOException e) {
+            System.err.println("Could not load '" + CONFIG_FILE_NAME + "'. Library folders will not be watched.");
+            e.printStackTrace();
+        }
+
+        // JVM argument wins over the file (handy for testing another disk)
+        String rawFolders = System.getProperty("library.folders", props.getProperty("folders", ""));
+
+        for (String part : rawFolders.split(";")) {
+            if (!part.isBlank()) {
+                folders.add(Paths.get(part.trim()).toAbsolutePath().normalize());
+            }
+        }
+
+        try {
+            debounceMillis = Long.parseLong(props.getProperty("debounceMillis", "1500").trim());
+        } catch (NumberFormatException ignored) {
+            // Keep the default quiet period
+        }
+    }
+
+    /**
+     * Returns the folders that should be watched (may be empty).
+     */
+    public List<Path> getFolders() {
+        return folders;
+    }
+
+    /**
+     * Returns the quiet period after the last file event before a burst is ingested.
+     */
+    public long getDebounceMillis() {
+        return debounceMillis;
+    }
+}
@@ -0,0 +1,284 @@
+package bll;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Watches the configured library folders and ingests new, moved and deleted movie files.
+ *
+ * File events arrive in bursts (copying a folder of movies fires many events), so they are
+ * collected until the folders have been quiet for the debounce period and then applied
+ * through MovieManager as ONE transaction per burst.
+ *
+ * A burst (or the startup scan) that cannot be applied, typically because the database is
+ * unreachable, is kept and retried with a growing delay, so files copied in during an outage
+ * are ingested once the database is back instead of waiting for the next start.
+ *
+ * Runs on its own daemon thread; the listener is called from that thread,
+ * so UI code must hop back to the FX thread itself.
+ */
+public class LibraryWatcher implements AutoCloseable {
+
+    // A burst is flushed at the latest after this many debounce periods,
+    // so a never-ending copy still shows up in the catalog.
+    private static final int MAX_DEBOUNCE_PERIODS = 10;
+
+    // Delay before retrying a failed apply; doubles per failure up to the maximum
+    private static final long FIRST_RETRY_MILLIS = 5_000;
+    private static final long MAX_RETRY_MILLIS = 5 * 60_000;
+
+    private final MovieManager manager;
+    private final List<Path> roots;
+    private final long debounceMillis;
+    private final Consumer<LibraryChanges> listener;
+
+    private final Map<WatchKey, Path> watchedDirs = new HashMap<>();
+    private final Set<Path> pendingCreated = new LinkedHashSet<>();
+    private final Set<Path> pendingDeleted = new LinkedHashSet<>();
+
+    // True until a full scan has succeeded (the startup scan, retried if it failed)
+    private boolean scanPending = true;
+    // When the next attempt after a failure is due (0 = not backing off)
+    private long retryAt;
+    private long retryDelay = FIRST_RETRY_MILLIS;
+
+    private WatchService watchService;
+    private Thread thread;
+    private volatile boolean running;
+
+    /**
+     * Creates a watcher for the given folders.
+     *
+     * @param manager        business layer used to apply the changes
+     * @param roots          library folders to watch (recursively)
+     * @param debounceMillis quiet period after the last event before a burst is applied
+     * @param listener       receives the result of every non-empty burst
+     */
+    public LibraryWatcher(MovieManager manager,
+                          List<Path> roots,
+                          long debounceMillis,
+                          Consumer<LibraryChanges> listener) {
+        this.manager = manager;
+        this.roots = roots;
+        this.debounceMillis = debounceMillis;
+        this.listener = listener;
+    }
+
+    /**
+     * Registers all folders and starts the background thread.
+     * The first thing the thread does is a full scan, so files added or removed
+     * while the application was closed are reconciled too.
+     */
+    public void start() throws IOException {
+        watchService = FileSystems.getDefault().newWatchService();
+
+        for (Path root : roots) {
+            if (Files.isDirectory(root)) {
+                registerTree(root);
+            } else {
+                System.err.println("Library folder not found, skipping: " + root);
+            }
+        }
+
+        running = true;
+        thread = new Thread(this::run, "library-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the background thread and releases the watch service.
+     */
+    @Override
+    public void close() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+        }
+        try {
+            if (watchService != null) {
+                watchService.close();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // ---------- Background loop ----------
+
+    private void run() {
+        long burstStart = 0;
+        long lastEvent = 0;
+
+        while (running) {
+            try {
+                WatchKey key;
+
+                if (!scanPending && pendingCreated.isEmpty() && pendingDeleted.isEmpty()) {
+                    // Nothing pending: sleep until the next event
+                    key = watchService.take();
+                    burstStart = System.currentTimeMillis();
+                } else {
+                    long now = System.currentTimeMillis();
+                    long due;
+                    if (retryAt > 0) {
+                        // Backing off after a failure; events keep being collected meanwhile
+                        due = retryAt;
+                    } else if (scanPending) {
+                        due = now;
+                    } else {
+                        long quietUntil = lastEvent + debounceMillis;
+                        long hardLimit = burstStart + debounceMillis * MAX_DEBOUNCE_PERIODS;
+                        due = Math.min(quietUntil, hardLimit);
+                    }
+                    long wait = due - now;
+
+                    key = (wait > 0) ? watchService.poll(wait, TimeUnit.MILLISECONDS) : null;
+
+                    if (key == null) {
+                        flush();
+                        continue;
+                    }
+                }
+
+                lastEvent = System.currentTimeMillis();
+                handleEvents(key);
+
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            } catch (Exception e) {
+                // One failing burst must not kill the watcher
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Collects the events of one watch key into the pending sets.
+     */
+    private void handleEvents(WatchKey key) throws IOException {
+        Path dir = watchedDirs.get(key);
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+            WatchEvent.Kind<?> kind = event.kind();
+
+            if (kind == OVERFLOW) {
+                // Events were lost; the roots as "deleted" + a walk resolve everything
+                pendingDeleted.addAll(roots);
+                for (Path root : roots) {
+                    addExistingFiles(root);
+                }
+                continue;
+            }
+
+            if (dir == null) {
+                continue;
+            }
+
+            Path child = dir.resolve((Path) event.context());
+
+            if (kind == ENTRY_CREATE) {
+                if (Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                    // New folder: watch it and pick up files that were copied before registration
+                    registerTree(child);
+                    addExistingFiles(child);
+                } else {
+                    pendingCreated.add(child);
+                }
+            } else if (kind == ENTRY_DELETE) {
+                pendingCreated.remove(child);
+                pendingDeleted.add(child);
+            }
+            // ENTRY_MODIFY only extends the quiet period (a large file is still being copied)
+        }
+
+        if (!key.reset()) {
+            watchedDirs.remove(key);
+        }
+    }
+
+    /**
+     * Applies the pending burst (or the pending full scan) and clears it.
+     * On failure everything stays pending and the next attempt is scheduled.
+     */
+    private void flush() {
+        LibraryChanges changes;
+        try {
+            if (scanPending) {
+                // The scan compares the whole library, so it covers the collected events as well
+                changes = manager.scanLibrary(roots);
+            } else {
+                changes = manager.applyLibraryChanges(new ArrayList<>(pendingCreated),
+                                                      new ArrayList<>(pendingDeleted));
+            }
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            retryAt = System.currentTimeMillis() + retryDelay;
+            retryDelay = Math.min(retryDelay * 2, MAX_RETRY_MILLIS);
+            return;
+        }
+
+        // Only now: the thread is the only writer, so nothing was added during the apply
+        scanPending = false;
+        pendingCreated.clear();
+        pendingDeleted.clear();
+        retryAt = 0;
+        retryDelay = FIRST_RETRY_MILLIS;
+
+        publish(changes);
+    }
+
+    private void publish(LibraryChanges changes) {
+        if (!changes.isEmpty() && listener != null) {
+            listener.accept(changes);
+        }
+    }
+
+    // ---------- Registration ----------
+
+    /**
+     * Registers a folder and all its sub folders with the watch service.
+     */
+    private void registerTree(Path start) throws IOException {
+        Files.walkFileTree(start, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                WatchKey key = dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+                watchedDirs.put(key, dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                // Unreadable folders are skipped instead of aborting the whole registration
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Adds every file below the folder to the pending "created" set.
+     */
+    private void addExistingFiles(Path dir) throws IOException {
+        Files.walkFileTree(dir, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile()) {
+                    pendingCreated.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
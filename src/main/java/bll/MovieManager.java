@@ -2,11 +2,36 @@ package bll;
 
 import be.Category;
 import be.Movie;
+import be.MovieQuery;
+import be.VideoInfo;
 import dal.CategoryDAO;
+import dal.DatabaseUnavailableException;
+import dal.FingerprintCache;
+import dal.JournalEntry;
+import dal.JournalReplicator;
+import dal.LocalStorage;
 import dal.MovieDAO;
+import dal.MigrationRunner;
+import dal.Shard;
+import dal.ShardSet;
+import dal.WriteJournal;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
 
 /**
  * Business Logic Layer (BLL) manager for Movies and Categories.
@@ -17,22 +42,139 @@ import java.util.List;
  */
 public class MovieManager {
 
-    // Data access objects (DAL layer)
-    private final MovieDAO movieDao = new MovieDAO();
-    private final CategoryDAO categoryDao = new CategoryDAO();
+    // Library databases from db.settings (usually one); reads fan out, writes go to the owner
+    private final ShardSet shards = ShardSet.load();
+    private final LibraryFederation federation = new LibraryFederation(shards);
+
+    // Data access objects (DAL layer) of the primary library: new movies, categories, folder ingestion
+    private final MovieDAO movieDao = shards.primary().getMovieDao();
+    private final CategoryDAO categoryDao = shards.primary().getCategoryDao();
+
+    // Category list, reloaded only when the server-side category version changes
+    private final CategoryCache categoryCache = federation.categoryCache(shards.primary());
+
+    // In-memory models kept in sync by the CRUD methods below (all guarded by modelLock)
+    private final Object modelLock = new Object();
+    private final RecommendationEngine recommendations = new RecommendationEngine();
+    private final StaleMovieIndex staleMovies = new StaleMovieIndex();
+    private final TitleIndex titles = new TitleIndex();
+
+    // Watch history aggregates (guarded by modelLock): read from ViewEvents once, then updated per view
+    private WatchStats watchStats = new WatchStats();
+    private volatile boolean watchHistoryLoaded;
+
+    // Last catalog loaded from the database, served while the database is unreachable
+    private volatile List<Movie> lastCatalog;
+    private volatile boolean servingFromCache;
+
+    // Offline mode: writes that could not reach the database (null if the journal cannot be opened)
+    private static final long REPLICATION_INTERVAL_SECONDS = 5;
+    private final WriteJournal journal;
+    private final JournalReplicator replicator;
+    private final AtomicInteger nextTemporaryId = new AtomicInteger(-1);
+    private final Map<Integer, Movie> createdOffline = new HashMap<>();
+    private ScheduledExecutorService replication;
+    private volatile Consumer<String> replicationListener = message -> { };
+
+    public MovieManager() {
+        WriteJournal openedJournal = null;
+        JournalReplicator openedReplicator = null;
+        try {
+            openedJournal = WriteJournal.openDefault();
+            openedReplicator = new JournalReplicator(openedJournal, shards,
+                    LocalStorage.getAppDataDir().resolve("writes.ids"), new ReplicationEvents());
+            nextTemporaryId.set(openedReplicator.lowestTemporaryId() - 1);
+        } catch (IOException e) {
+            System.err.println("Offline mode disabled: could not open the write journal.");
+            e.printStackTrace();
+        }
+        journal = openedJournal;
+        replicator = openedReplicator;
+    }
+
+    /**
+     * Brings the database schema up to date by applying pending versioned migrations
+     * (every library database, in parallel). Call once at startup, before loading any data.
+     *
+     * @throws IllegalStateException when a migration fails
+     */
+    public void prepareDatabase() {
+        federation.fanOut(shard -> new MigrationRunner(shard.getConnectionProvider()).migrate());
+
+        // Changes saved while offline in an earlier session go first, so the catalog includes them
+        if (journal != null && !journal.isEmpty()) {
+            replicateNow();
+            startReplication();
+        }
+    }
 
     /**
      * Loads all movies from the database, including their categories.
+     *
+     * While the database is unreachable (retries used up or circuit breaker open) the last
+     * loaded catalog is returned instead, see isServingFromCache().
+     *
+     * @throws DatabaseUnavailableException if the database is down and nothing was loaded before
      */
     public List<Movie> getAllMovies() {
-        return movieDao.getAllMovies();
+        List<Movie> movies;
+        try {
+            movies = federation.getAllMovies();
+        } catch (DatabaseUnavailableException e) {
+            List<Movie> cached = lastCatalog;
+            if (cached == null) {
+                throw e;
+            }
+            servingFromCache = true;
+            return new ArrayList<>(cached);
+        }
+
+        servingFromCache = false;
+        lastCatalog = new ArrayList<>(movies);
+        synchronized (modelLock) {
+            recommendations.rebuild(movies);
+            staleMovies.rebuild(movies);
+            titles.rebuild(movies);
+        }
+        if (!watchHistoryLoaded) {
+            loadWatchHistory(movies);
+        }
+        return movies;
     }
 
     /**
-     * Loads all categories from the database.
+     * Returns a short string that changes whenever movies or categories change in any library
+     * (see MovieDAO.getChangeStamp()). Much cheaper than getAllMovies(), so callers that keep
+     * the catalog in memory can poll it and only reload when it differs.
+     */
+    public String getCatalogStamp() {
+        return federation.fanOut(shard -> shard.getMovieDao().getChangeStamp()
+                + "/" + shard.getCategoryDao().getCategoryVersion()).toString();
+    }
+
+    /**
+     * Returns true if the last getAllMovies() call returned cached data because the database was down.
+     */
+    public boolean isServingFromCache() {
+        return servingFromCache;
+    }
+
+    /**
+     * Returns all categories. Served from the cache unless another client changed them.
      */
     public List<Category> getAllCategories() {
-        return categoryDao.getAllCategories();
+        return federation.getAllCategories();
+    }
+
+    /**
+     * Returns the names of the configured libraries; the first one is the primary library.
+     */
+    public List<String> getLibraryNames() {
+        List<String> names = new ArrayList<>();
+        for (Shard shard : shards.all()) {
+            names.add(shard.getName());
+        }
+        return names;
     }
 
     // ---------- MOVIE CRUD ----------
@@ -40,12 +182,26 @@ public class MovieManager {
     /**
      * Creates a new movie and assigns the selected categories.
      * Any "last view" value should be handled by the database (DATE) or set later.
+     *
+     * @return the stored movie (generated ID, categories, version), ready to be shown as is
      */
-    public void createMovie(String title,
+    public Movie createMovie(String title,
                             double imdb,
                             double personal,
                             String fileLink,
                             List<Category> categories) {
+        return createMovie(title, imdb, personal, fileLink, categories, null);
+    }
+
+    /**
+     * Creates a new movie in the given library (null = the primary library).
+     */
+    public Movie createMovie(String title,
+                            double imdb,
+                            double personal,
+                            String fileLink,
+                            List<Category> categories,
+                            String library) {
 
         // Basic defensive checks to avoid invalid data passing to DAL
         if (title == null || title.isBlank()) {
@@ -55,16 +211,43 @@ public class MovieManager {
             categories = new ArrayList<>();
         }
 
+        Shard shard = (library == null) ? shards.primary() : shards.byName(library);
+        if (shard == null) {
+            throw new IllegalArgumentException("Unknown library: " + library);
+        }
+
         // ID -1 means "not stored yet" (it will be generated by the database)
-        // lastView is intentionally left empty; it can be updated when the movie is viewed.
-        Movie newMovie = new Movie(-1, title.trim(), personal, imdb, fileLink, "");
+        // The movie starts as never viewed; the date is set when it is played.
+        Movie newMovie = new Movie(-1, title.trim(), personal, imdb, fileLink, Movie.NEVER_VIEWED);
+
+        // Offline creation is only possible in the primary library (temporary IDs belong to it)
+        boolean canQueue = journal != null && shard == shards.primary();
 
         // Pass entity + categories to the DAO, which handles DB insert and relations
-        movieDao.createMovie(newMovie, categories);
+        Movie created;
+        if (isWritingOffline() && canQueue) {
+            created = createOffline(newMovie, federation.cachedCategoriesFor(shard, categories));
+        } else {
+            try {
+                created = shard.getMovieDao().createMovie(newMovie, federation.categoriesFor(shard, categories));
+            } catch (DatabaseUnavailableException e) {
+                if (!canQueue) {
+                    throw e;
+                }
+                // Mapping the categories may itself have failed (creating a missing one)
+                created = createOffline(newMovie, federation.cachedCategoriesFor(shard, categories));
+            }
+        }
+
+        onMovieChanged(created);
+        return created;
     }
 
     /**
      * Updates an existing movie and its category relationships.
+     *
+     * @throws EditConflictException if another client changed or deleted the movie since it was
+     *                               loaded; the exception carries the current state of that one row
      */
     public void updateMovie(Movie movie, List<Category> categories) {
         if (movie == null) {
@@ -73,7 +256,41 @@ public class MovieManager {
         if (categories == null) {
             categories = new ArrayList<>();
         }
-        movieDao.updateMovie(movie, categories);
+
+        Shard owner = shards.owner(movie.getId());
+
+        if (isWritingOffline() || movie.getId() < 0) {
+            updateOffline(movie, federation.cachedCategoriesFor(owner, categories));
+            return;
+        }
+
+        List<Category> requested = categories;
+        boolean saved;
+        try {
+            categories = federation.categoriesFor(owner, requested);
+            saved = owner.getMovieDao().updateMovie(movie, categories);
+        } catch (DatabaseUnavailableException e) {
+            if (journal == null) {
+                throw e;
+            }
+            updateOffline(movie, federation.cachedCategoriesFor(owner, requested));
+            return;
+        }
+
+        if (!saved) {
+            // Lost the race: re-read only this row and index what is really stored
+            Movie current = owner.getMovieDao().getMovie(movie.getId());
+            if (current != null) {
+                onMovieChanged(current);
+            } else {
+                onMovieRemoved(movie.getId());
+            }
+            throw new EditConflictException(current);
+        }
+
+        // Keep the entity in line with what was stored, then update the model incrementally
+        movie.setCategories(new ArrayList<>(categories));
+        onMovieChanged(movie);
     }
 
     /**
@@ -83,65 +300,870 @@ public class MovieManager {
         if (movie == null) {
             throw new IllegalArgumentException("Movie cannot be null.");
         }
-        movieDao.deleteMovie(movie);
+        requireDeletable(List.of(movie));
+        shards.owner(movie.getId()).getMovieDao().deleteMovie(movie);
+        onMovieRemoved(movie.getId());
     }
 
     // ---------- CATEGORY CRUD ----------
 
     /**
      * Creates a new category.
+     *
+     * @return the stored category with its generated ID
      */
-    public void createCategory(String name) {
+    public Category createCategory(String name) {
         if (name == null || name.isBlank()) {
             throw new IllegalArgumentException("Category name cannot be empty.");
         }
-        categoryDao.createCategory(name.trim());
+        Category created = categoryDao.createCategory(name.trim());
+        categoryCache.added(created);
+        return created;
     }
 
     /**
-     * Deletes the given category.
+     * Deletes the given category (in every library that has a category of that name) and removes
+     * it from the loaded movies, so the caller does not need to reload the catalog.
+     *
+     * @param catalog the movies currently loaded in the UI
+     * @return the movies that lost the category
      */
-    public void deleteCategory(Category category) {
+    public List<Movie> deleteCategory(Category category, Collection<Movie> catalog) {
         if (category == null) {
             throw new IllegalArgumentException("Category cannot be null.");
         }
-        categoryDao.deleteCategory(category);
+        for (Shard shard : shards.all()) {
+            Category own = federation.findByName(shard, category.getName());
+            if (own != null) {
+                shard.getCategoryDao().deleteCategory(own);
+                federation.categoryCache(shard).removed(own);
+            }
+        }
+
+        List<Movie> affected = new ArrayList<>();
+        for (Movie movie : catalog) {
+            if (movie.getCategories().removeIf(c -> c.getName().equalsIgnoreCase(category.getName()))) {
+                affected.add(movie);
+                onMovieChanged(movie);
+            }
+        }
+        return affected;
     }
 
-    // ---------- SEARCH (simple title search) ----------
+    /**
+     * Merges "source" into "target": every movie of the source category gets the target
+     * category, then the source is deleted. The loaded movies are updated in place.
+     *
+     * @param catalog the movies currently loaded in the UI
+     * @return the movies whose categories changed
+     */
+    public List<Movie> mergeCategory(Category source, Category target, Collection<Movie> catalog) {
+        if (source == null || target == null) {
+            throw new IllegalArgumentException("Category cannot be null.");
+        }
+        if (source.getId() == target.getId() || source.getName().equalsIgnoreCase(target.getName())) {
+            throw new IllegalArgumentException("Cannot merge a category into itself.");
+        }
+
+        // Merged in every library that has the source; the target is created there when missing
+        Map<Integer, Category> targets = new HashMap<>();
+        for (Shard shard : shards.all()) {
+            Category ownSource = federation.findByName(shard, source.getName());
+            if (ownSource == null) {
+                continue;
+            }
+            Category ownTarget = federation.categoriesFor(shard, List.of(target)).get(0);
+            shard.getCategoryDao().mergeCategory(ownSource, ownTarget);
+            federation.categoryCache(shard).removed(ownSource);
+            targets.put(shard.getIndex(), ownTarget);
+        }
+
+        List<Movie> affected = new ArrayList<>();
+        for (Movie movie : catalog) {
+            List<Category> cats = movie.getCategories();
+            if (!cats.removeIf(c -> c.getName().equalsIgnoreCase(source.getName()))) {
+                continue;
+            }
+            boolean hasTarget = cats.stream().anyMatch(c -> c.getName().equalsIgnoreCase(target.getName()));
+            if (!hasTarget) {
+                cats.add(targets.getOrDefault(Shard.indexOf(movie.getId()), target));
+            }
+            affected.add(movie);
+            onMovieChanged(movie);
+        }
+        return affected;
+    }
+
+    // ---------- SEARCH ----------
 
     /**
-     * Simple search by title.
+     * Simple search by title or category name.
      * Note: In JavaFX, filtering is often done in the UI layer using FilteredList.
      * This method is still useful if you want a plain search without TableView filtering.
      */
     public List<Movie> searchMovies(String query) {
-        List<Movie> allMovies = getAllMovies();
-        List<Movie> results = new ArrayList<>();
+        return findMovies(new MovieQuery().text(query));
+    }
+
+    /**
+     * Finds movies by text, category, rating and last view ranges, sorted and paged by the database.
+     * Only matching rows are loaded, so this does not depend on the catalog size.
+     * With several libraries the query runs on all of them in parallel and the results are merged.
+     */
+    public List<Movie> findMovies(MovieQuery query) {
+        if (query == null) {
+            throw new IllegalArgumentException("Query cannot be null.");
+        }
+        return federation.findMovies(query);
+    }
+
+    // ---------- LAST VIEW ----------
+
+    /**
+     * Updates the "last viewed" date for a movie.
+     * This should normally store the current date in the database (SQL DATE).
+     */
+    public void updateLastView(int id) {
+        long viewedAt = saveLastView(id);
+        Movie movie;
+        synchronized (modelLock) {
+            recommendations.markWatched(id);
+            staleMovies.markWatched(id);
+            movie = recommendations.get(id);
+        }
+        recordView(movie, id, viewedAt);
+    }
+
+    /**
+     * Updates the "last viewed" date of the movie to today, in the database and in the entity.
+     */
+    public void updateLastView(Movie movie) {
+        long viewedAt = saveLastView(movie.getId());
+        movie.setLastViewDay(LocalDate.now().toEpochDay());
+        onMovieChanged(movie);
+        recordView(movie, movie.getId(), viewedAt);
+    }
+
+    /**
+     * Stores the view (last view date and history event) and returns its time.
+     */
+    private long saveLastView(int id) {
+        long viewedAt = System.currentTimeMillis();
+        long today = LocalDate.now().toEpochDay();
+        if (isWritingOffline() || id < 0) {
+            appendToJournal(JournalEntry.lastView(id, today));
+            return viewedAt;
+        }
+        try {
+            shards.owner(id).getMovieDao().updateLastView(id, viewedAt);
+        } catch (DatabaseUnavailableException e) {
+            if (journal == null) {
+                throw e;
+            }
+            appendToJournal(JournalEntry.lastView(id, today));
+        }
+        return viewedAt;
+    }
+
+    // ---------- WATCH STATISTICS ----------
+
+    /**
+     * Returns how often the movie was watched (all time).
+     */
+    public int getPlayCount(int movieId) {
+        synchronized (modelLock) {
+            return watchStats.getPlayCount(movieId);
+        }
+    }
+
+    /**
+     * Returns how often the movie was watched in the given month.
+     */
+    public int getPlayCount(int movieId, YearMonth month) {
+        synchronized (modelLock) {
+            return watchStats.getPlayCount(movieId, month);
+        }
+    }
+
+    /**
+     * Returns up to "count" movies watched most often in the given month, most watched first.
+     * Answered from counters kept in memory, so the size of the history does not matter.
+     */
+    public List<Movie> getMostWatched(YearMonth month, int count) {
+        synchronized (modelLock) {
+            return moviesByIds(watchStats.getMostWatched(month, count));
+        }
+    }
+
+    public List<Movie> getMostWatchedThisMonth(int count) {
+        return getMostWatched(YearMonth.now(), count);
+    }
+
+    /**
+     * Returns up to "count" movies ranked by recent popularity: every view counts, but a view
+     * loses half its weight every WatchStats.DEFAULT_HALF_LIFE.
+     */
+    public List<Movie> getMostPopular(int count) {
+        synchronized (modelLock) {
+            return moviesByIds(watchStats.getMostPopular(count));
+        }
+    }
+
+    /**
+     * Returns category name -> watched seconds (runtime of every view), most watched first.
+     */
+    public Map<String, Long> getWatchTimeByCategory() {
+        synchronized (modelLock) {
+            return watchStats.getWatchTimeByCategory();
+        }
+    }
+
+    private void recordView(Movie movie, int id, long viewedAt) {
+        int seconds = 0;
+        List<String> categoryNames = List.of();
+        if (movie != null) {
+            seconds = movie.getVideoInfo() != null ? movie.getVideoInfo().getDurationSeconds() : 0;
+            categoryNames = categoryNamesOf(movie);
+        }
+        synchronized (modelLock) {
+            watchStats.record(id, viewedAt, seconds, categoryNames);
+        }
+    }
+
+    /**
+     * Folds the ViewEvents history of every library into fresh counters (one streamed pass each,
+     * in parallel). Watch time is attributed to the movies' current categories; views of deleted
+     * movies are skipped. If the history cannot be read now, the next catalog load tries again.
+     */
+    private void loadWatchHistory(List<Movie> catalog) {
+        Map<Integer, Movie> byId = new HashMap<>(catalog.size() * 2);
+        Map<Integer, List<String>> namesById = new HashMap<>();
+        for (Movie movie : catalog) {
+            byId.put(movie.getId(), movie);
+        }
 
-        if (query == null || query.isBlank()) {
-            return allMovies;
+        List<WatchStats> perShard;
+        try {
+            perShard = federation.fanOut(shard -> {
+                WatchStats stats = new WatchStats();
+                shard.getViewEventDao().streamEvents((movieId, viewedAt, seconds) -> {
+                    Movie movie = byId.get(movieId);
+                    if (movie != null) {
+                        List<String> names;
+                        synchronized (namesById) {
+                            names = namesById.computeIfAbsent(movieId, id -> categoryNamesOf(movie));
+                        }
+                        stats.record(movieId, viewedAt, seconds, names);
+                    }
+                });
+                return stats;
+            });
+        } catch (RuntimeException e) {
+            System.err.println("Watch history not loaded: " + e.getMessage());
+            return;
         }
 
-        String q = query.trim().toLowerCase();
+        WatchStats loaded = new WatchStats();
+        perShard.forEach(loaded::merge);
+        synchronized (modelLock) {
+            watchStats = loaded;
+        }
+        watchHistoryLoaded = true;
+    }
+
+    private static List<String> categoryNamesOf(Movie movie) {
+        List<String> names = new ArrayList<>(movie.getCategories().size());
+        for (Category category : movie.getCategories()) {
+            names.add(category.getName());
+        }
+        return names;
+    }
 
-        for (Movie m : allMovies) {
-            String title = (m.getTitle() == null) ? "" : m.getTitle().toLowerCase();
-            if (title.contains(q)) {
-                results.add(m);
+    /**
+     * The loaded movies with the given IDs, in the order of the IDs (caller holds modelLock).
+     */
+    private List<Movie> moviesByIds(List<Integer> ids) {
+        List<Movie> result = new ArrayList<>(ids.size());
+        for (int id : ids) {
+            Movie movie = recommendations.get(id);
+            if (movie != null) {
+                result.add(movie);
             }
         }
+        return result;
+    }
+
+    // ---------- OFFLINE MODE ----------
 
-        return results;
+    /**
+     * Returns the number of changes waiting to be written to the database (0 when online).
+     */
+    public int getPendingWriteCount() {
+        return journal == null ? 0 : journal.readPending().size();
     }
 
-    // ---------- LAST VIEW ----------
+    /**
+     * Receives replication news for the user ("3 offline change(s) saved", conflicts).
+     * Called from a background thread.
+     */
+    public void setReplicationListener(Consumer<String> listener) {
+        this.replicationListener = (listener != null) ? listener : message -> { };
+    }
 
     /**
-     * Updates the "last viewed" date for a movie.
-     * This should normally store the current date in the database (SQL DATE).
+     * While older changes are still queued, new ones are queued behind them (keeps the order).
      */
-    public void updateLastView(int id) {
-        movieDao.updateLastView(id);
+    private boolean isWritingOffline() {
+        return journal != null && !journal.isEmpty();
+    }
+
+    private Movie createOffline(Movie movie, List<Category> categories) {
+        movie.setId(nextTemporaryId.getAndDecrement());
+        movie.setVersion(0);
+        movie.setCategories(new ArrayList<>(categories));
+        appendToJournal(JournalEntry.createMovie(movie, categories));
+
+        synchronized (createdOffline) {
+            createdOffline.put(movie.getId(), movie);
+        }
+        List<Movie> cached = lastCatalog;
+        if (cached != null) {
+            List<Movie> updated = new ArrayList<>(cached);
+            updated.add(movie);
+            lastCatalog = updated;
+        }
+        return movie;
+    }
+
+    private void updateOffline(Movie movie, List<Category> categories) {
+        appendToJournal(JournalEntry.updateMovie(movie, categories, movie.getVersion()));
+
+        // Same result the server will have once the edit is replayed
+        movie.setCategories(new ArrayList<>(categories));
+        movie.setVersion(movie.getVersion() + 1);
+        onMovieChanged(movie);
+    }
+
+    private void appendToJournal(JournalEntry entry) {
+        journal.append(entry);
+        startReplication();
+    }
+
+    /**
+     * Starts the background replicator (once); it drains the journal whenever the database answers.
+     */
+    private synchronized void startReplication() {
+        if (replication != null || replicator == null) {
+            return;
+        }
+        replication = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "journal-replicator");
+            t.setDaemon(true);
+            return t;
+        });
+        replication.scheduleWithFixedDelay(this::replicateNow,
+                REPLICATION_INTERVAL_SECONDS, REPLICATION_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private void replicateNow() {
+        if (journal.isEmpty()) {
+            return;
+        }
+        try {
+            int count = replicator.drain();
+            if (count > 0) {
+                replicationListener.accept(count + " offline change(s) saved to the database");
+            }
+        } catch (DatabaseUnavailableException e) {
+            // Still offline; the circuit breaker keeps these attempts cheap
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Applies replication results to the loaded entities.
+     */
+    private final class ReplicationEvents implements JournalReplicator.Listener {
+
+        @Override
+        public void created(int temporaryId, int movieId) {
+            Movie movie;
+            synchronized (createdOffline) {
+                movie = createdOffline.remove(temporaryId);
+            }
+            // Views of the offline movie now belong to its real ID
+            synchronized (modelLock) {
+                watchStats.renameMovie(temporaryId, movieId);
+            }
+            if (movie != null) {
+                onMovieRemoved(temporaryId);
+                movie.setId(movieId);
+                onMovieChanged(movie);
+            }
+        }
+
+        @Override
+        public void conflict(JournalEntry entry, String reason) {
+            System.err.println("Offline change not applied (" + reason + "): " + entry);
+            replicationListener.accept("Offline change to '" + describe(entry) + "' was not applied: " + reason);
+        }
+
+        private String describe(JournalEntry entry) {
+            if (entry.getTitle() != null) {
+                return entry.getTitle();
+            }
+            List<Movie> cached = lastCatalog;
+            if (cached != null) {
+                for (Movie movie : cached) {
+                    if (movie.getId() == entry.getMovieId()) {
+                        return movie.getTitle();
+                    }
+                }
+            }
+            return "movie " + entry.getMovieId();
+        }
+    }
+
+    // ---------- RECOMMENDATIONS ----------
+
+    /**
+     * Returns up to "count" movies to watch next, based on personal ratings and categories.
+     * Works on the in-memory model (no database access), so it is cheap to call from the UI.
+     */
+    public List<Movie> getRecommendations(int count) {
+        synchronized (modelLock) {
+            return recommendations.recommend(count);
+        }
+    }
+
+    // ---------- CLEANUP CANDIDATES ----------
+
+    /**
+     * Returns the movies that are candidates for deletion (low rating, not watched for a long time),
+     * least recently watched first. The set is maintained as movies change, so this is cheap.
+     */
+    public List<Movie> getCleanupCandidates() {
+        synchronized (modelLock) {
+            return staleMovies.getCandidates();
+        }
+    }
+
+    /**
+     * Returns the number of cleanup candidates without building the list.
+     */
+    public int getCleanupCandidateCount() {
+        synchronized (modelLock) {
+            return staleMovies.getCandidateCount();
+        }
+    }
+
+    /**
+     * Changes what counts as a cleanup candidate.
+     *
+     * @param maxRating     movies with a personal rating below this value qualify
+     * @param unwatchedDays movies not watched for more than this many days qualify
+     */
+    public void setCleanupThresholds(double maxRating, int unwatchedDays) {
+        if (unwatchedDays < 0) {
+            throw new IllegalArgumentException("Days cannot be negative.");
+        }
+        synchronized (modelLock) {
+            staleMovies.setThresholds(maxRating, unwatchedDays);
+        }
+    }
+
+    public double getCleanupMaxRating() {
+        synchronized (modelLock) {
+            return staleMovies.getMaxRating();
+        }
+    }
+
+    public int getCleanupUnwatchedDays() {
+        synchronized (modelLock) {
+            return staleMovies.getUnwatchedDays();
+        }
+    }
+
+    // ---------- BULK OPERATIONS ----------
+
+    /**
+     * Deletes several movies in one database transaction (set-based, not one call per movie).
+     *
+     * @throws IllegalStateException if a movie was created offline, or offline changes are still queued
+     */
+    public void deleteMovies(List<Movie> movies) {
+        if (movies == null || movies.isEmpty()) {
+            return;
+        }
+        requireDeletable(movies);
+        List<Integer> ids = idsOf(movies);
+        federation.groupByShard(ids).forEach((shard, shardIds) -> shard.getMovieDao().deleteMovies(shardIds));
+        ids.forEach(this::onMovieRemoved);
+    }
+
+    /**
+     * Replaces the categories of several movies in one database transaction.
+     * Offline (see groupForBulkWrite) every movie gets a queued edit instead.
+     */
+    public void setCategories(List<Movie> movies, List<Category> categories) {
+        if (movies == null || movies.isEmpty()) {
+            return;
+        }
+        List<Category> chosen = (categories == null) ? new ArrayList<>() : categories;
+
+        List<Movie> queued = new ArrayList<>();
+        Map<Shard, List<Movie>> online = groupForBulkWrite(movies, queued);
+
+        // Each library stores its own categories of the same names (only translated for the libraries involved)
+        Map<Shard, List<Category>> perShard = new HashMap<>();
+        Function<Shard, List<Category>> ownCategories =
+                shard -> perShard.computeIfAbsent(shard, s -> federation.categoriesFor(s, chosen));
+
+        for (Map.Entry<Shard, List<Movie>> group : online.entrySet()) {
+            List<Category> own = ownCategories.apply(group.getKey());
+            if (!tryBulkWrite(() -> group.getKey().getMovieDao().setCategoriesForMovies(idsOf(group.getValue()), own))) {
+                queued.addAll(group.getValue());
+                continue;
+            }
+            for (Movie movie : group.getValue()) {
+                movie.setCategories(new ArrayList<>(own));
+                movie.setVersion(movie.getVersion() + 1);
+                onMovieChanged(movie);
+            }
+        }
+
+        for (Movie movie : queued) {
+            updateOffline(movie, ownCategories.apply(shards.owner(movie.getId())));
+        }
+    }
+
+    /**
+     * Gives several movies the same personal rating in one database transaction.
+     * Offline (see groupForBulkWrite) every movie gets a queued edit instead.
+     */
+    public void setPersonalRating(List<Movie> movies, double rating) {
+        if (movies == null || movies.isEmpty()) {
+            return;
+        }
+
+        List<Movie> queued = new ArrayList<>();
+        Map<Shard, List<Movie>> online = groupForBulkWrite(movies, queued);
+
+        for (Map.Entry<Shard, List<Movie>> group : online.entrySet()) {
+            if (!tryBulkWrite(() -> group.getKey().getMovieDao().updatePersonalRatings(idsOf(group.getValue()), rating))) {
+                queued.addAll(group.getValue());
+                continue;
+            }
+            for (Movie movie : group.getValue()) {
+                movie.setPersonalRating(rating);
+                movie.setVersion(movie.getVersion() + 1);
+                onMovieChanged(movie);
+            }
+        }
+
+        for (Movie movie : queued) {
+            movie.setPersonalRating(rating);
+            updateOffline(movie, movie.getCategories());
+        }
+    }
+
+    /**
+     * Groups the movies of a bulk edit by library. Movies whose edit has to go through the journal
+     * are put into "queued" instead: movies created offline (their CREATE is still queued), and every
+     * movie while older changes are queued. A set-based write bumps the versions, so running it ahead
+     * of a queued edit would turn that edit into a conflict when it is replayed.
+     */
+    private Map<Shard, List<Movie>> groupForBulkWrite(List<Movie> movies, List<Movie> queued) {
+        Map<Shard, List<Movie>> online = new LinkedHashMap<>();
+        boolean offline = isWritingOffline();
+        for (Movie movie : movies) {
+            if (offline || movie.getId() < 0) {
+                queued.add(movie);
+            } else {
+                online.computeIfAbsent(shards.owner(movie.getId()), s -> new ArrayList<>()).add(movie);
+            }
+        }
+        return online;
+    }
+
+    /**
+     * Runs a set-based write. Returns false if the database is unreachable and the edits can be queued.
+     */
+    private boolean tryBulkWrite(Runnable write) {
+        try {
+            write.run();
+            return true;
+        } catch (DatabaseUnavailableException e) {
+            if (journal == null) {
+                throw e;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Deletes are not journaled, so they need the movies to be stored on the server and no
+     * queued change ahead of them (a queued CREATE or edit would bring a deleted movie back).
+     */
+    private void requireDeletable(List<Movie> movies) {
+        for (Movie movie : movies) {
+            if (movie.getId() < 0) {
+                throw new IllegalStateException("\"" + movie.getTitle()
+                        + "\" was created offline and is not stored on the server yet.");
+            }
+        }
+        if (isWritingOffline()) {
+            throw new IllegalStateException("Offline changes are still being saved. Try again once they are stored.");
+        }
+    }
+
+    private static List<Integer> idsOf(List<Movie> movies) {
+        List<Integer> ids = new ArrayList<>(movies.size());
+        for (Movie movie : movies) {
+            ids.add(movie.getId());
+        }
+        return ids;
+    }
+
+    // ---------- In-memory models ----------
+
+    private void onMovieChanged(Movie movie) {
+        synchronized (modelLock) {
+            recommendations.update(movie);
+            staleMovies.update(movie);
+            titles.update(movie);
+        }
+    }
+
+    private void onMovieRemoved(int movieId) {
+        synchronized (modelLock) {
+            recommendations.remove(movieId);
+            staleMovies.remove(movieId);
+            titles.remove(movieId);
+            watchStats.remove(movieId);
+        }
+    }
+
+    // ---------- VIDEO INFO ----------
+
+    /**
+     * Reads runtime, resolution and codec for every movie whose file is new or changed,
+     * and stores the results in one database transaction.
+     * This touches the disk, so call it from a background thread.
+     *
+     * @return movie ID -> new information (only the movies that were scanned)
+     */
+    public Map<Integer, VideoInfo> scanVideoInfo(List<Movie> movies) throws InterruptedException {
+        Map<Integer, VideoInfo> infos = new VideoInfoScanner().scan(movies);
+        for (Map.Entry<Shard, List<Integer>> group : federation.groupByShard(infos.keySet()).entrySet()) {
+            Map<Integer, VideoInfo> own = new HashMap<>();
+            for (int id : group.getValue()) {
+                own.put(id, infos.get(id));
+            }
+            group.getKey().getMovieDao().saveVideoInfo(own);
+        }
+        return infos;
+    }
+
+    // ---------- DUPLICATES ----------
+
+    /**
+     * Finds movies whose files have identical content (same fingerprint).
+     * Fingerprints are cached on disk, so a repeated scan only hashes new or changed files.
+     * This touches the disk for every file, so call it from a background thread.
+     */
+    public List<DuplicateFinder.DuplicateGroup> findDuplicates(List<Movie> movies)
+            throws IOException, InterruptedException {
+        return new DuplicateFinder(new FingerprintCache()).findDuplicates(movies);
+    }
+
+    /**
+     * Returns the loaded movies whose title probably means the same film as the given title
+     * ("Matrix, The", "the matrix (1999)" for "The Matrix"), best match first.
+     * Works on the in-memory title index, so it is cheap enough to call before every save.
+     *
+     * @param excludeId the movie being edited (it is not its own duplicate), or 0
+     */
+    public List<TitleIndex.Match> findSimilarTitles(String title, int excludeId) {
+        synchronized (modelLock) {
+            return titles.findSimilar(title, excludeId);
+        }
+    }
+
+    /**
+     * Groups the loaded movies whose titles probably mean the same film, biggest groups first.
+     * The grouping takes seconds on a large catalog, so it runs on a snapshot of the title
+     * index outside modelLock: edits (and the threads syncing the catalog) are not held up.
+     */
+    public List<List<Movie>> findTitleDuplicates() {
+        TitleIndex.Snapshot snapshot;
+        synchronized (modelLock) {
+            snapshot = titles.snapshot();
+        }
+        return snapshot.findDuplicateGroups();
+    }
+
+    // ---------- EXPORT ----------
+
+    /**
+     * Streams the whole catalog from the database to a file (CSV, NDJSON or columnar binary).
+     * Memory use does not depend on the catalog size. Call it from a background thread.
+     *
+     * @param progress receives the number of movies written so far; may be null
+     * @return the number of movies exported
+     */
+    public long exportCatalog(Path target, CatalogExporter.Format format, LongConsumer progress) throws IOException {
+        List<MovieDAO> movieDaos = new ArrayList<>();
+        List<CategoryDAO> categoryDaos = new ArrayList<>();
+        for (Shard shard : shards.all()) {
+            movieDaos.add(shard.getMovieDao());
+            categoryDaos.add(shard.getCategoryDao());
+        }
+        return new CatalogExporter(movieDaos, categoryDaos).export(target, format, progress);
+    }
+
+    // ---------- LIBRARY INGESTION ----------
+
+    /**
+     * Returns true when the path points to an allowed movie format (.mp4 or .mpeg4).
+     * Used by both the manual form and the folder watcher so the rule lives in one place.
+     */
+    public static boolean isSupportedVideoFile(String path) {
+        if (path == null) {
+            return false;
+        }
+        String lower = path.trim().toLowerCase();
+        return lower.endsWith(".mp4") || lower.endsWith(".mpeg4");
+    }
+
+    /**
+     * Walks the given library folders and reconciles them with the catalog:
+     * unknown files are added, moved files keep their movie and missing files are reported.
+     * Folders that do not exist (e.g. an unplugged disk) are skipped entirely.
+     */
+    public LibraryChanges scanLibrary(Collection<Path> roots) throws IOException {
+        List<Path> onDisk = new ArrayList<>();
+        List<Path> mountedRoots = new ArrayList<>();
+
+        for (Path root : roots) {
+            if (!Files.isDirectory(root)) {
+                continue;
+            }
+            mountedRoots.add(root);
+            try (Stream<Path> files = Files.walk(root)) {
+                files.filter(Files::isRegularFile).forEach(onDisk::add);
+            }
+        }
+
+        // Passing the roots as "deleted" makes every known link below them a candidate;
+        // applyLibraryChanges() only reports the ones whose file no longer exists.
+        return applyLibraryChanges(onDisk, mountedRoots);
+    }
+
+    /**
+     * Applies one burst of file system changes to the catalog in a single transaction per library.
+     * A deleted path may be a file or a whole folder; everything below it is treated as gone.
+     * A gone file and a new file with the same file name in one burst are treated as a move,
+     * so the movie keeps its ratings, categories and last view date.
+     *
+     * Movies whose file is gone are not deleted, only listed in LibraryChanges.getMissingIds():
+     * an unmounted share looks exactly like deleted files, and deleting would lose the ratings.
+     * The caller decides (deleteMovies() after asking the user).
+     */
+    public LibraryChanges applyLibraryChanges(Collection<Path> created, Collection<Path> deleted) {
+        LibraryChanges changes = new LibraryChanges();
+
+        // Sorted so a deleted folder can be resolved with one range lookup instead of a full scan
+        // A file can belong to any library, so all of them are asked
+        TreeMap<String, Integer> known = new TreeMap<>(federation.getFileLinks());
+
+        // 1) Resolve which known movies really lost their file
+        Map<String, Integer> gone = new LinkedHashMap<>();
+        for (Path path : deleted) {
+            String link = toLink(path);
+
+            Integer id = known.get(link);
+            if (id != null && !Files.exists(path)) {
+                gone.put(link, id);
+            }
+
+            String prefix = link.endsWith(File.separator) ? link : link + File.separator;
+            for (Map.Entry<String, Integer> entry : known.subMap(prefix, prefix + Character.MAX_VALUE).entrySet()) {
+                if (!Files.exists(Paths.get(entry.getKey()))) {
+                    gone.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+
+        // Index gone files by file name so moves can be matched in O(1)
+        Map<String, Deque<Integer>> goneByName = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : gone.entrySet()) {
+            String name = Paths.get(entry.getKey()).getFileName().toString();
+            goneByName.computeIfAbsent(name, k -> new ArrayDeque<>()).add(entry.getValue());
+        }
+
+        // 2) New files become new movies, unless they match a gone file (move/rename)
+        Set<String> seen = new HashSet<>();
+        Set<Integer> movedIds = new HashSet<>();
+        for (Path path : created) {
+            String link = toLink(path);
+            if (!isSupportedVideoFile(link) || known.containsKey(link)
+                    || !seen.add(link) || !Files.isRegularFile(path)) {
+                continue;
+            }
+
+            Deque<Integer> sameName = goneByName.get(path.getFileName().toString());
+            if (sameName != null && !sameName.isEmpty()) {
+                int movieId = sameName.poll();
+                changes.getMoved().put(movieId, link);
+                movedIds.add(movieId);
+            } else {
+                changes.getAdded().add(new Movie(-1, titleFromFile(path), 0, 0, link, Movie.NEVER_VIEWED));
+            }
+        }
+
+        for (int id : gone.values()) {
+            if (!movedIds.contains(id)) {
+                changes.getMissingIds().add(id);
+            }
+        }
+
+        if (!changes.getAdded().isEmpty() || !changes.getMoved().isEmpty()) {
+            // New files go to the primary library; a moved file is updated in the library that owns its movie
+            Map<Shard, Map<Integer, String>> movedByShard = new LinkedHashMap<>();
+            for (Map.Entry<Integer, String> entry : changes.getMoved().entrySet()) {
+                movedByShard.computeIfAbsent(shards.owner(entry.getKey()), s -> new LinkedHashMap<>())
+                        .put(entry.getKey(), entry.getValue());
+            }
+
+            Map<Integer, String> movedInPrimary = movedByShard.remove(shards.primary());
+            movieDao.applyLibraryChanges(changes.getAdded(), movedInPrimary != null ? movedInPrimary : Map.of());
+            movedByShard.forEach((shard, moved) -> shard.getMovieDao().applyLibraryChanges(List.of(), moved));
+
+            changes.getAdded().forEach(this::onMovieChanged);
+        }
+
+        return changes;
+    }
+
+    /**
+     * Normalizes a path into the form stored in the File Link column.
+     */
+    private static String toLink(Path path) {
+        return path.toAbsolutePath().normalize().toString();
+    }
+
+    /**
+     * Builds a readable title from a file name, e.g. "The.Matrix_1999.mp4" -> "The Matrix 1999".
+     */
+    private static String titleFromFile(Path path) {
+        String name = path.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        if (dot > 0) {
+            name = name.substring(0, dot);
+        }
+        String title = name.replace('.', ' ').replace('_', ' ').replaceAll("\\s+", " ").trim();
+        return title.isEmpty() ? name : title;
     }
 }
@@ -0,0 +1,256 @@
+package bll;
+
+import be.VideoInfo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Minimal MP4 (ISO base media file) parser that extracts runtime, resolution and codec.
+ *
+ * Only box headers are read while walking the top level of the file; the 'moov' box is the
+ * only box read completely (it is small compared to the media data), using positional reads.
+ * Nothing else of the file is touched, so a 20 GB movie costs a few kilobytes of IO.
+ *
+ * Box layout used: moov > mvhd (duration), moov > trak > tkhd (size),
+ * moov > trak > mdia > hdlr (track type), moov > trak > mdia > minf > stbl > stsd (codec).
+ */
+public class Mp4MetadataReader {
+
+    // Safety limit: a 'moov' bigger than this is not a normal movie file
+    private static final long MAX_MOOV_SIZE = 64L * 1024 * 1024;
+
+    /**
+     * Reads the video information of an MP4 file.
+     *
+     * @param path         the file to read
+     * @param fileModified last-modified time of the file, stored along with the result
+     * @return the video information, or null when the file has no readable 'moov' box
+     */
+    public VideoInfo read(Path path, long fileModified) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer moov = readMoov(channel);
+            if (moov == null) {
+                return null;
+            }
+            Result result = new Result();
+            parseContainer(moov, result);
+
+            int seconds = (result.timescale > 0) ? (int) (result.duration / result.timescale) : 0;
+            return new VideoInfo(seconds, result.width, result.height, result.codec, fileModified);
+        }
+    }
+
+    /**
+     * Walks the top-level boxes and returns the content of 'moov' (without its header).
+     */
+    private ByteBuffer readMoov(FileChannel channel) throws IOException {
+        long fileSize = channel.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(16);
+
+        while (position + 8 <= fileSize) {
+            header.clear();
+            header.limit(16);
+            readFully(channel, header, position, (int) Math.min(16, fileSize - position));
+            header.flip();
+
+            long size = header.getInt() & 0xFFFFFFFFL;
+            String type = fourCC(header);
+            int headerSize = 8;
+
+            if (size == 1) {
+                // 64-bit "largesize" follows the type
+                if (header.remaining() < 8) {
+                    return null;
+                }
+                size = header.getLong();
+                headerSize = 16;
+            } else if (size == 0) {
+                // Box extends to the end of the file
+                size = fileSize - position;
+            }
+
+            if (size < headerSize) {
+                return null; // Corrupt file; stop instead of looping forever
+            }
+
+            if ("moov".equals(type)) {
+                long contentSize = size - headerSize;
+                if (contentSize > MAX_MOOV_SIZE) {
+                    return null;
+                }
+                ByteBuffer moov = ByteBuffer.allocate((int) contentSize);
+                readFully(channel, moov, position + headerSize, (int) contentSize);
+                moov.flip();
+                return moov;
+            }
+
+            position += size;
+        }
+
+        return null;
+    }
+
+    /**
+     * Parses all child boxes in the buffer (from its position to its limit).
+     */
+    private void parseContainer(ByteBuffer buffer, Result result) {
+        while (buffer.remaining() >= 8) {
+            int start = buffer.position();
+            long size = buffer.getInt() & 0xFFFFFFFFL;
+            String type = fourCC(buffer);
+            int headerSize = 8;
+
+            if (size == 1) {
+                size = buffer.getLong();
+                headerSize = 16;
+            } else if (size == 0) {
+                size = buffer.limit() - start;
+            }
+
+            if (size < headerSize || start + size > buffer.limit()) {
+                return; // Truncated or corrupt box
+            }
+
+            int end = (int) (start + size);
+            ByteBuffer content = buffer.duplicate();
+            content.position(start + headerSize).limit(end);
+
+            switch (type) {
+                case "trak" -> {
+                    Result track = new Result();
+                    parseContainer(content.slice(), track);
+                    if ("vide".equals(track.handler)) {
+                        result.width = track.width;
+                        result.height = track.height;
+                        result.codec = track.codec;
+                    }
+                }
+                case "mdia", "minf", "stbl" -> parseContainer(content.slice(), result);
+                case "mvhd" -> parseMvhd(content.slice(), result);
+                case "tkhd" -> parseTkhd(content.slice(), result);
+                case "hdlr" -> parseHdlr(content.slice(), result);
+                case "stsd" -> parseStsd(content.slice(), result);
+                default -> {
+                    // Not needed
+                }
+            }
+
+            buffer.position(end);
+        }
+    }
+
+    private void parseMvhd(ByteBuffer b, Result result) {
+        int version = b.get() & 0xFF;
+        skip(b, 3); // flags
+
+        if (version == 1) {
+            skip(b, 16); // creation + modification time (64-bit)
+            result.timescale = b.getInt() & 0xFFFFFFFFL;
+            result.duration = b.getLong();
+        } else {
+            skip(b, 8);
+            result.timescale = b.getInt() & 0xFFFFFFFFL;
+            result.duration = b.getInt() & 0xFFFFFFFFL;
+        }
+    }
+
+    private void parseTkhd(ByteBuffer b, Result result) {
+        int version = b.get() & 0xFF;
+        skip(b, 3);
+
+        // creation, modification, track ID, reserved, duration
+        skip(b, (version == 1) ? 32 : 20);
+        // reserved(8) + layer(2) + alternate group(2) + volume(2) + reserved(2) + matrix(36)
+        skip(b, 52);
+
+        if (b.remaining() >= 8) {
+            // Width and height are 16.16 fixed point
+            result.width = b.getInt() >>> 16;
+            result.height = b.getInt() >>> 16;
+        }
+    }
+
+    private void parseHdlr(ByteBuffer b, Result result) {
+        skip(b, 8); // version/flags + pre_defined
+        if (b.remaining() >= 4) {
+            result.handler = fourCC(b);
+        }
+    }
+
+    private void parseStsd(ByteBuffer b, Result result) {
+        skip(b, 8); // version/flags + entry count
+        if (b.remaining() < 8) {
+            return;
+        }
+        skip(b, 4); // entry size
+        String format = fourCC(b);
+        result.codec = codecName(format);
+
+        // Visual sample entry: reserved(6) + data ref index(2) + pre_defined/reserved(16) + width(2) + height(2)
+        if (result.width == 0 && b.remaining() >= 28) {
+            skip(b, 24);
+            result.width = b.getShort() & 0xFFFF;
+            result.height = b.getShort() & 0xFFFF;
+        }
+    }
+
+    /**
+     * Maps the sample entry four character code to a readable codec name.
+     */
+    private static String codecName(String fourCC) {
+        return switch (fourCC) {
+            case "avc1", "avc3" -> "H.264";
+            case "hvc1", "hev1" -> "H.265";
+            case "av01" -> "AV1";
+            case "vp09" -> "VP9";
+            case "mp4v" -> "MPEG-4";
+            default -> fourCC.trim();
+        };
+    }
+
+    // ---------- Helper methods ----------
+
+    private static String fourCC(ByteBuffer b) {
+        byte[] bytes = new byte[4];
+        b.get(bytes);
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    private static void skip(ByteBuffer b, int count) {
+        b.position(Math.min(b.limit(), b.position() + count));
+    }
+
+    /**
+     * Positional read that does not move the channel position (safe for concurrent use).
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position, int length)
+            throws IOException {
+        buffer.limit(buffer.position() + length);
+        long pos = position;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, pos);
+            if (read < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+            pos += read;
+        }
+    }
+
+    /**
+     * Values collected while walking the boxes.
+     */
+    private static final class Result {
+        long timescale;
+        long duration;
+        int width;
+        int height;
+        String codec;
+        String handler;
+    }
+}
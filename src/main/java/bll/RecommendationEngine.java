@@ -0,0 +1,324 @@
+package bll;
+
+import be.Category;
+import be.Movie;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * In-process "watch next" recommendations based on personal ratings and categories.
+ *
+ * Model:
+ * - every movie is a sparse binary vector over categories (sorted int[] of category indexes)
+ * - a taste profile holds, per category, the sum of (personal rating - NEUTRAL_RATING) of all
+ *   rated movies in it, so liked categories go up and disliked ones go down
+ * - a category co-occurrence matrix spreads that taste to related categories
+ *   (people who like "Thriller" movies usually also get "Crime" movies recommended)
+ *
+ * Everything is kept in primitive arrays and updated incrementally (add, remove,
+ * rating change), so a request is one pass over the catalog plus a top-k heap.
+ * Not thread-safe on its own; MovieManager calls it under its own lock.
+ */
+public class RecommendationEngine {
+
+    // Ratings above this count as "liked", below as "disliked"
+    private static final double NEUTRAL_RATING = 5.5;
+
+    // How much taste flows to co-occurring categories
+    private static final double CO_OCCURRENCE_WEIGHT = 0.3;
+
+    // Small pull towards movies with a good public rating
+    private static final double IMDB_WEIGHT = 0.05;
+
+    // Movies watched more recently than this are not suggested again
+    private static final int RECENTLY_WATCHED_DAYS = 180;
+
+    // Category ID -> dense index used in all arrays
+    private final Map<Integer, Integer> categoryIndex = new HashMap<>();
+
+    // Per category: rating-weighted taste, and co-occurrence counts [a][b]
+    private double[] taste = new double[16];
+    private int[][] coOccurrence = new int[16][16];
+
+    // Movie ID -> slot; slots hold a copy of the values the model was built from
+    private final Map<Integer, Integer> slotOf = new HashMap<>();
+    private final List<Movie> movies = new ArrayList<>();
+    private final List<int[]> movieCategories = new ArrayList<>();
+    private double[] ratings = new double[64];
+    private long[] lastViewDays = new long[64];
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+
+    /**
+     * Rebuilds the whole model from the catalog.
+     */
+    public void rebuild(List<Movie> catalog) {
+        categoryIndex.clear();
+        taste = new double[16];
+        coOccurrence = new int[16][16];
+        slotOf.clear();
+        movies.clear();
+        movieCategories.clear();
+        freeSlots.clear();
+        ratings = new double[Math.max(64, catalog.size())];
+        lastViewDays = new long[ratings.length];
+
+        for (Movie movie : catalog) {
+            add(movie);
+        }
+    }
+
+    /**
+     * Adds a movie to the model (or replaces it when it is already known).
+     */
+    public void add(Movie movie) {
+        if (slotOf.containsKey(movie.getId())) {
+            remove(movie.getId());
+        }
+
+        int slot;
+        if (!freeSlots.isEmpty()) {
+            slot = freeSlots.pop();
+            movies.set(slot, movie);
+            movieCategories.set(slot, toVector(movie.getCategories()));
+        } else {
+            slot = movies.size();
+            movies.add(movie);
+            movieCategories.add(toVector(movie.getCategories()));
+            ensureMovieCapacity(slot + 1);
+        }
+
+        slotOf.put(movie.getId(), slot);
+        ratings[slot] = movie.getPersonalRating();
+        lastViewDays[slot] = movie.getLastViewDay();
+
+        applyToModel(movieCategories.get(slot), ratings[slot], +1);
+    }
+
+    /**
+     * Removes a movie from the model.
+     */
+    public void remove(int movieId) {
+        Integer slot = slotOf.remove(movieId);
+        if (slot == null) {
+            return;
+        }
+        applyToModel(movieCategories.get(slot), ratings[slot], -1);
+
+        movies.set(slot, null);
+        movieCategories.set(slot, new int[0]);
+        freeSlots.push(slot);
+    }
+
+    /**
+     * Returns the movie with this ID as known to the model, or null.
+     */
+    public Movie get(int movieId) {
+        Integer slot = slotOf.get(movieId);
+        return slot == null ? null : movies.get(slot);
+    }
+
+    /**
+     * Re-reads rating, categories and last view of a changed movie.
+     * Only the difference is applied, so this costs O(categories^2) regardless of catalog size.
+     */
+    public void update(Movie movie) {
+        Integer slot = slotOf.get(movie.getId());
+        if (slot == null) {
+            add(movie);
+            return;
+        }
+
+        applyToModel(movieCategories.get(slot), ratings[slot], -1);
+
+        movies.set(slot, movie);
+        movieCategories.set(slot, toVector(movie.getCategories()));
+        ratings[slot] = movie.getPersonalRating();
+        lastViewDays[slot] = movie.getLastViewDay();
+
+        applyToModel(movieCategories.get(slot), ratings[slot], +1);
+    }
+
+    /**
+     * Records that a movie was just watched, so it is not suggested again for a while.
+     */
+    public void markWatched(int movieId) {
+        Integer slot = slotOf.get(movieId);
+        if (slot != null) {
+            lastViewDays[slot] = LocalDate.now().toEpochDay();
+        }
+    }
+
+    /**
+     * Returns up to k movies to watch next, best first.
+     */
+    public List<Movie> recommend(int k) {
+        if (k <= 0) {
+            return new ArrayList<>();
+        }
+
+        double[] expanded = expandedTaste();
+        long cutoff = LocalDate.now().toEpochDay() - RECENTLY_WATCHED_DAYS;
+
+        // Min-heap of the best k (primitive arrays: heapScore[0] is the worst of the best)
+        double[] heapScore = new double[k];
+        int[] heapSlot = new int[k];
+        int size = 0;
+
+        for (int slot = 0; slot < movies.size(); slot++) {
+            Movie movie = movies.get(slot);
+            if (movie == null || lastViewDays[slot] > cutoff) {
+                continue;
+            }
+
+            int[] cats = movieCategories.get(slot);
+            double score = 0;
+            for (int c : cats) {
+                score += expanded[c];
+            }
+            if (cats.length > 0) {
+                score /= Math.sqrt(cats.length); // Many categories should not win by count alone
+            }
+            score += IMDB_WEIGHT * movie.getImdbRating();
+
+            if (size < k) {
+                heapScore[size] = score;
+                heapSlot[size] = slot;
+                siftUp(heapScore, heapSlot, size++);
+            } else if (score > heapScore[0]) {
+                heapScore[0] = score;
+                heapSlot[0] = slot;
+                siftDown(heapScore, heapSlot, size);
+            }
+        }
+
+        // Drain the heap (worst first) and reverse to get best first
+        Movie[] result = new Movie[size];
+        for (int i = size - 1; i >= 0; i--) {
+            result[i] = movies.get(heapSlot[0]);
+            heapScore[0] = heapScore[i];
+            heapSlot[0] = heapSlot[i];
+            siftDown(heapScore, heapSlot, i);
+        }
+        return new ArrayList<>(Arrays.asList(result));
+    }
+
+    // ---------- Model maintenance ----------
+
+    /**
+     * Adds (sign = +1) or removes (sign = -1) one movie's contribution.
+     */
+    private void applyToModel(int[] cats, double rating, int sign) {
+        double weight = sign * (rating - NEUTRAL_RATING);
+        for (int a : cats) {
+            taste[a] += weight;
+            for (int b : cats) {
+                if (a != b) {
+                    coOccurrence[a][b] += sign;
+                }
+            }
+        }
+    }
+
+    /**
+     * Taste plus a share of the taste of co-occurring categories (row-normalized).
+     */
+    private double[] expandedTaste() {
+        int n = categoryIndex.size();
+        double[] expanded = new double[n];
+
+        for (int a = 0; a < n; a++) {
+            int rowTotal = 0;
+            double spread = 0;
+            for (int b = 0; b < n; b++) {
+                int count = coOccurrence[a][b];
+                if (count > 0) {
+                    rowTotal += count;
+                    spread += count * taste[b];
+                }
+            }
+            expanded[a] = taste[a] + ((rowTotal > 0) ? CO_OCCURRENCE_WEIGHT * spread / rowTotal : 0);
+        }
+        return expanded;
+    }
+
+    /**
+     * Converts categories to a sorted array of dense indexes, registering new categories.
+     */
+    private int[] toVector(List<Category> categories) {
+        if (categories == null || categories.isEmpty()) {
+            return new int[0];
+        }
+        int[] vector = new int[categories.size()];
+        int count = 0;
+        for (Category category : categories) {
+            Integer index = categoryIndex.get(category.getId());
+            if (index == null) {
+                index = categoryIndex.size();
+                categoryIndex.put(category.getId(), index);
+                ensureCategoryCapacity(index + 1);
+            }
+            vector[count++] = index;
+        }
+        Arrays.sort(vector, 0, count);
+        return vector;
+    }
+
+    private void ensureMovieCapacity(int needed) {
+        if (needed > ratings.length) {
+            int newSize = Math.max(needed, ratings.length * 2);
+            ratings = Arrays.copyOf(ratings, newSize);
+            lastViewDays = Arrays.copyOf(lastViewDays, newSize);
+        }
+    }
+
+    private void ensureCategoryCapacity(int needed) {
+        if (needed > taste.length) {
+            int newSize = Math.max(needed, taste.length * 2);
+            taste = Arrays.copyOf(taste, newSize);
+            int[][] grown = new int[newSize][newSize];
+            for (int i = 0; i < coOccurrence.length; i++) {
+                System.arraycopy(coOccurrence[i], 0, grown[i], 0, coOccurrence[i].length);
+            }
+            coOccurrence = grown;
+        }
+    }
+
+    // ---------- Primitive min-heap ----------
+
+    private static void siftUp(double[] score, int[] slot, int i) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (score[i] >= score[parent]) {
+                return;
+            }
+            swap(score, slot, i, parent);
+            i = parent;
+        }
+    }
+
+    private static void siftDown(double[] score, int[] slot, int size) {
+        int i = 0;
+        while (true) {
+            int left = 2 * i + 1;
+            int right = left + 1;
+            int smallest = i;
+            if (left < size && score[left] < score[smallest]) smallest = left;
+            if (right < size && score[right] < score[smallest]) smallest = right;
+            if (smallest == i) {
+                return;
+            }
+            swap(score, slot, i, smallest);
+            i = smallest;
+        }
+    }
+
+    private static void swap(double[] score, int[] slot, int a, int b) {
+        double s = score[a];
+        score[a] = score[b];
+        score[b] = s;
+        int t = slot[a];
+        slot[a] = slot[b];
+        slot[b] = t;
+    }
+}
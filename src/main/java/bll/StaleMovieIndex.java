@@ -0,0 +1,192 @@
+package bll;
+
+import be.Movie;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Maintained set of "deletion candidates": movies with a low personal rating
+ * that have not been watched for a long time.
+ *
+ * Movies are kept in an index ordered by (personal rating, last view day), and the
+ * candidates for the current thresholds are kept in a separate set that is updated
+ * on every add/update/remove. Asking for the candidates is therefore free; only a
+ * threshold change (or a new day) re-evaluates, and that uses a skip scan over the
+ * index instead of looking at every movie.
+ *
+ * Not thread-safe on its own; MovieManager calls it under its own lock.
+ */
+public class StaleMovieIndex {
+
+    public static final double DEFAULT_MAX_RATING = 6.0;
+    public static final int DEFAULT_UNWATCHED_DAYS = 730;
+
+    // Index order: rating, then last view day, then ID (to keep entries unique)
+    private static final Comparator<Entry> BY_RATING_AND_DAY = Comparator
+            .comparingDouble((Entry e) -> e.rating)
+            .thenComparingLong(e -> e.day)
+            .thenComparingInt(e -> e.id);
+
+    // Candidates are shown oldest first
+    private static final Comparator<Entry> BY_DAY = Comparator
+            .comparingLong((Entry e) -> e.day)
+            .thenComparingInt(e -> e.id);
+
+    private final TreeSet<Entry> index = new TreeSet<>(BY_RATING_AND_DAY);
+    private final Map<Integer, Entry> byId = new HashMap<>();
+    private final TreeSet<Entry> candidates = new TreeSet<>(BY_DAY);
+
+    private double maxRating = DEFAULT_MAX_RATING;
+    private int unwatchedDays = DEFAULT_UNWATCHED_DAYS;
+
+    // Day the candidates were computed for; they are re-evaluated when the date changes
+    private long today = LocalDate.now().toEpochDay();
+
+    /**
+     * Rebuilds the index from the catalog.
+     */
+    public void rebuild(List<Movie> catalog) {
+        index.clear();
+        byId.clear();
+        candidates.clear();
+        for (Movie movie : catalog) {
+            update(movie);
+        }
+    }
+
+    /**
+     * Adds or re-indexes a movie after its rating or last view date changed.
+     * Movies that were never viewed are not indexed (they are not "old", just unwatched).
+     */
+    public void update(Movie movie) {
+        remove(movie.getId());
+
+        if (!movie.hasBeenViewed()) {
+            return;
+        }
+
+        Entry entry = new Entry(movie.getId(), movie.getPersonalRating(), movie.getLastViewDay(), movie);
+        index.add(entry);
+        byId.put(entry.id, entry);
+        if (isCandidate(entry)) {
+            candidates.add(entry);
+        }
+    }
+
+    /**
+     * Removes a movie from the index.
+     */
+    public void remove(int movieId) {
+        Entry old = byId.remove(movieId);
+        if (old != null) {
+            index.remove(old);
+            candidates.remove(old);
+        }
+    }
+
+    /**
+     * Records that a movie was watched today.
+     */
+    public void markWatched(int movieId) {
+        Entry old = byId.get(movieId);
+        if (old != null) {
+            remove(movieId);
+            Entry entry = new Entry(movieId, old.rating, LocalDate.now().toEpochDay(), old.movie);
+            index.add(entry);
+            byId.put(movieId, entry);
+        }
+    }
+
+    /**
+     * Changes the thresholds and re-evaluates the candidates.
+     *
+     * @param maxRating     movies rated below this value qualify
+     * @param unwatchedDays movies not watched for more than this many days qualify
+     */
+    public void setThresholds(double maxRating, int unwatchedDays) {
+        this.maxRating = maxRating;
+        this.unwatchedDays = unwatchedDays;
+        recomputeCandidates();
+    }
+
+    public double getMaxRating() {
+        return maxRating;
+    }
+
+    public int getUnwatchedDays() {
+        return unwatchedDays;
+    }
+
+    /**
+     * Returns the number of candidates for the current thresholds.
+     */
+    public int getCandidateCount() {
+        refreshIfNewDay();
+        return candidates.size();
+    }
+
+    /**
+     * Returns the candidates, least recently watched first.
+     */
+    public List<Movie> getCandidates() {
+        refreshIfNewDay();
+        List<Movie> result = new ArrayList<>(candidates.size());
+        for (Entry e : candidates) {
+            result.add(e.movie);
+        }
+        return result;
+    }
+
+    // ---------- Internals ----------
+
+    private boolean isCandidate(Entry e) {
+        return e.rating < maxRating && e.day < today - unwatchedDays;
+    }
+
+    private void refreshIfNewDay() {
+        long now = LocalDate.now().toEpochDay();
+        if (now != today) {
+            today = now;
+            recomputeCandidates();
+        }
+    }
+
+    /**
+     * Skip scan over the (rating, day) index: inside each rating value the days are sorted,
+     * so as soon as a day is too recent we jump straight to the next rating value.
+     */
+    private void recomputeCandidates() {
+        candidates.clear();
+        long cutoff = today - unwatchedDays;
+
+        Entry e = index.isEmpty() ? null : index.first();
+        while (e != null && e.rating < maxRating) {
+            if (e.day < cutoff) {
+                candidates.add(e);
+                e = index.higher(e);
+            } else {
+                // Rest of this rating value is too recent: skip to the next rating
+                e = index.higher(new Entry(Integer.MAX_VALUE, e.rating, Long.MAX_VALUE, null));
+            }
+        }
+    }
+
+    /**
+     * Index entry; rating and day are copied so a later change to the Movie
+     * object can still find and remove the old entry.
+     */
+    private static final class Entry {
+        final int id;
+        final double rating;
+        final long day;
+        final Movie movie;
+
+        Entry(int id, double rating, long day, Movie movie) {
+            this.id = id;
+            this.rating = rating;
+            this.day = day;
+            this.movie = movie;
+        }
+    }
+}
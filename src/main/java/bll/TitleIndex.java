@@ -0,0 +1,569 @@
+package bll;
+
+import be.Movie;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds movies whose titles are probably the same film written differently, such as
+ * "The Matrix", "Matrix, The" and "the matrix (1999)".
+ *
+ * Every title is normalized first: lower case, accents removed, a release year in brackets
+ * taken out, leading or trailing articles dropped, "&" read as "and", punctuation removed.
+ * Titles with the same normalized form are duplicates right away.
+ *
+ * Near matches are typos: at most MAX_TYPOS character edits between the normalized titles
+ * ("Lord of the Rings" / "Lord of the Ring", "Starwars" / "Star Wars"). The index uses blocking,
+ * so a check compares against a handful of titles instead of the whole catalog: every normalized
+ * title is cut into MAX_TYPOS + 1 segments ("lord ", "of the", " rings"). An edit touches at
+ * most one segment, so a title within MAX_TYPOS edits still contains one of them unchanged,
+ * moved by at most MAX_TYPOS characters. Titles are indexed under their segments, keyed by
+ * segment number, title length and the numbers in the title ("Rocky 2" and "Rocky 3" are
+ * different films however similar the text is), and a check looks up the few substrings of its
+ * own title that could be such a segment. Segments are several characters long and bound to
+ * a position and a title length, so they rarely match by chance and the lists stay short.
+ * The few candidates left are compared with Jaro-Winkler similarity.
+ *
+ * Two titles with different release years are never duplicates (remakes keep their title).
+ *
+ * The duplicate report groups titles around a leader (the first title of the group) instead of
+ * chaining matches, so "Man and" ~ "Man an" ~ "Man on" does not pull in half the catalog.
+ *
+ * Not thread-safe on its own; MovieManager calls it under its own lock. The duplicate report
+ * runs on a snapshot() so that it does not need the lock.
+ */
+public class TitleIndex {
+
+    // Jaro-Winkler similarity from which two normalized titles count as the same
+    public static final double DEFAULT_THRESHOLD = 0.95;
+
+    // Character edits (typos) two normalized titles may differ by
+    private static final int MAX_TYPOS = 2;
+
+    // Segments per title: MAX_TYPOS edits leave at least one of them unchanged
+    private static final int SEGMENTS = MAX_TYPOS + 1;
+
+    private static final Pattern YEAR = Pattern.compile("[\\(\\[]\\s*((?:18|19|20)\\d\\d)\\s*[\\)\\]]");
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALNUM = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern TRAILING_ARTICLE = Pattern.compile(",\\s*(the|a|an)\\s*$");
+    private static final Pattern LEADING_ARTICLE = Pattern.compile("^(the|a|an)\\s+");
+    private static final Pattern DIGITS = Pattern.compile("\\d+");
+
+    // Roman numerals of sequels, read as numbers ("i" is left alone: "I, Robot")
+    private static final Map<String, String> ROMAN = Map.of(
+            "ii", "2", "iii", "3", "iv", "4", "v", "5", "vi", "6", "vii", "7", "viii", "8", "ix", "9", "x", "10");
+
+    private final double threshold;
+
+    private final Map<Integer, Entry> byId = new HashMap<>();
+    private final Blocks blocks = new Blocks();
+
+    // Marks the entries already looked at by the current candidate search (see Entry.visited)
+    private int visit;
+
+    public TitleIndex() {
+        this(DEFAULT_THRESHOLD);
+    }
+
+    public TitleIndex(double threshold) {
+        this.threshold = threshold;
+    }
+
+    // ---------- Maintenance ----------
+
+    /**
+     * Rebuilds the index from the catalog.
+     */
+    public void rebuild(List<Movie> catalog) {
+        byId.clear();
+        blocks.clear();
+
+        for (Movie movie : catalog) {
+            add(new Entry(movie));
+        }
+    }
+
+    /**
+     * Adds a movie, or re-indexes it after its title changed.
+     */
+    public void update(Movie movie) {
+        Entry old = byId.get(movie.getId());
+        if (old != null) {
+            if (Objects.equals(old.title, movie.getTitle())) {
+                old.movie = movie;
+                return;
+            }
+            remove(movie.getId());
+        }
+
+        add(new Entry(movie));
+    }
+
+    private void add(Entry entry) {
+        byId.put(entry.movie.getId(), entry);
+        blocks.add(entry);
+    }
+
+    /**
+     * Removes a movie from the index.
+     */
+    public void remove(int movieId) {
+        Entry entry = byId.remove(movieId);
+        if (entry != null) {
+            blocks.remove(entry);
+        }
+    }
+
+    // ---------- Queries ----------
+
+    /**
+     * Returns the indexed movies whose title probably means the same film, best match first.
+     *
+     * @param excludeId a movie to leave out (the one being edited), or 0
+     */
+    public List<Match> findSimilar(String title, int excludeId) {
+        if (title == null || title.isBlank()) {
+            return List.of();
+        }
+        Key key = normalize(title);
+
+        List<Match> matches = new ArrayList<>();
+        for (Entry candidate : blocks.candidates(key, ++visit)) {
+            if (candidate.movie.getId() == excludeId) {
+                continue;
+            }
+            double similarity = similarity(key, candidate.key);
+            if (similarity >= threshold) {
+                matches.add(new Match(candidate.movie, similarity));
+            }
+        }
+        matches.sort(Comparator.comparingDouble(Match::getSimilarity).reversed()
+                .thenComparing(m -> m.getMovie().getId()));
+        return matches;
+    }
+
+    /**
+     * Groups all indexed movies that are probably the same film (groups of two or more),
+     * biggest groups first. Same as snapshot().findDuplicateGroups().
+     */
+    public List<List<Movie>> findDuplicateGroups() {
+        return snapshot().findDuplicateGroups();
+    }
+
+    /**
+     * Copies the indexed titles for a duplicate report that runs without the caller's lock.
+     * Cheap: only the entries are copied, the normalized keys are shared.
+     */
+    public Snapshot snapshot() {
+        List<Entry> entries = new ArrayList<>(byId.size());
+        for (Entry entry : byId.values()) {
+            entries.add(new Entry(entry));
+        }
+        return new Snapshot(entries, threshold);
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    /**
+     * The titles of the index at one moment, detached from it (see snapshot()).
+     */
+    public static final class Snapshot {
+
+        private final List<Entry> entries;
+        private final double threshold;
+
+        private Snapshot(List<Entry> entries, double threshold) {
+            this.entries = entries;
+            this.threshold = threshold;
+        }
+
+        /**
+         * Groups the movies that are probably the same film (groups of two or more),
+         * biggest groups first.
+         *
+         * Movies are taken in ID order. Each one joins the group of the most similar earlier
+         * leader (the lowest ID on a tie), or becomes a leader itself. Only leaders go into the
+         * blocks of this pass, so every title is compared with a few candidate leaders, and each
+         * pair at most once.
+         */
+        public List<List<Movie>> findDuplicateGroups() {
+            entries.sort(Comparator.comparingInt(e -> e.movie.getId()));
+
+            Blocks leaders = new Blocks();
+            Map<Entry, List<Movie>> groups = new LinkedHashMap<>();
+            int visit = 0;
+
+            for (Entry entry : entries) {
+                Entry best = null;
+                double bestSimilarity = threshold;
+                for (Entry leader : leaders.candidates(entry.key, ++visit)) {
+                    double similarity = similarity(entry.key, leader.key);
+                    if (similarity < bestSimilarity) {
+                        continue;
+                    }
+                    if (best == null || similarity > bestSimilarity
+                            || leader.movie.getId() < best.movie.getId()) {
+                        best = leader;
+                        bestSimilarity = similarity;
+                    }
+                }
+
+                if (best == null) {
+                    leaders.add(entry);
+                } else {
+                    groups.computeIfAbsent(best, l -> new ArrayList<>(List.of(l.movie))).add(entry.movie);
+                }
+            }
+
+            List<List<Movie>> result = new ArrayList<>(groups.values());
+            result.sort(Comparator.<List<Movie>>comparingInt(List::size).reversed()
+                    .thenComparing(g -> g.get(0).getTitle(), String.CASE_INSENSITIVE_ORDER));
+            return result;
+        }
+    }
+
+    // ---------- Blocking ----------
+
+    /**
+     * The titles indexed under their segments (see the class comment).
+     */
+    private static final class Blocks {
+
+        // Segment key (see segmentKey) -> titles with that segment
+        private final Map<Long, List<Entry>> segments = new HashMap<>();
+
+        void clear() {
+            segments.clear();
+        }
+
+        void add(Entry entry) {
+            String text = entry.key.text;
+            for (int segment = 0; segment < SEGMENTS; segment++) {
+                long key = segmentKey(entry.key.numbers, text.length(), segment, text,
+                        segmentStart(text.length(), segment), segmentStart(text.length(), segment + 1));
+                segments.computeIfAbsent(key, k -> new ArrayList<>(1)).add(entry);
+            }
+        }
+
+        void remove(Entry entry) {
+            String text = entry.key.text;
+            for (int segment = 0; segment < SEGMENTS; segment++) {
+                long key = segmentKey(entry.key.numbers, text.length(), segment, text,
+                        segmentStart(text.length(), segment), segmentStart(text.length(), segment + 1));
+                List<Entry> list = segments.get(key);
+                if (list == null) {
+                    continue;
+                }
+                list.remove(entry);
+                if (list.isEmpty()) {
+                    segments.remove(key);
+                }
+            }
+        }
+
+        /**
+         * Titles with the same numbers that have one of their segments, unchanged, at most
+         * MAX_TYPOS characters away from where it would be in the given title, and not too many
+         * other characters. Every title within MAX_TYPOS edits is among them.
+         *
+         * @param visit a number not used by an earlier search, to skip entries seen twice
+         */
+        List<Entry> candidates(Key key, int visit) {
+            String text = key.text;
+            long letters = lettersOf(text);
+            List<Entry> result = new ArrayList<>();
+
+            // Titles a few edits away are at most MAX_TYPOS characters longer or shorter
+            int maxLength = text.length() + MAX_TYPOS;
+            for (int length = Math.max(0, text.length() - MAX_TYPOS); length <= maxLength; length++) {
+                for (int segment = 0; segment < SEGMENTS; segment++) {
+                    int start = segmentStart(length, segment);
+                    int size = segmentStart(length, segment + 1) - start;
+
+                    // Edits before the segment move it by at most MAX_TYPOS characters
+                    int from = Math.max(0, start - MAX_TYPOS);
+                    int to = Math.min(text.length() - size, start + MAX_TYPOS);
+                    for (int at = from; at <= to; at++) {
+                        List<Entry> list = segments.get(segmentKey(key.numbers, length, segment, text, at, at + size));
+                        if (list == null) {
+                            continue;
+                        }
+                        for (Entry entry : list) {
+                            if (entry.visited == visit) {
+                                continue;
+                            }
+                            entry.visited = visit;
+                            // One edit adds or removes at most two of the characters in a title
+                            if (Long.bitCount(entry.letters ^ letters) <= 2 * MAX_TYPOS) {
+                                result.add(entry);
+                            }
+                        }
+                    }
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * The characters of the text as a bit set (character code modulo 64, so a few share a bit).
+     */
+    private static long lettersOf(String text) {
+        long letters = 0;
+        for (int i = 0; i < text.length(); i++) {
+            letters |= 1L << text.charAt(i);
+        }
+        return letters;
+    }
+
+    /**
+     * Where a segment of a title of the given length starts (segment SEGMENTS: the end).
+     */
+    private static int segmentStart(int length, int segment) {
+        return segment * length / SEGMENTS;
+    }
+
+    /**
+     * Hash of (numbers in the title, title length, segment number, segment text), the key of
+     * a segment list. Two different segments may share a key; that only adds a candidate,
+     * which the similarity check then drops.
+     */
+    private static long segmentKey(String numbers, int length, int segment, String text, int from, int to) {
+        long hash = ((long) numbers.hashCode() << 32) ^ ((long) length << 8) ^ segment;
+        for (int i = from; i < to; i++) {
+            hash = (hash ^ text.charAt(i)) * 0x100000001B3L;
+        }
+        // Spread the bits: HashMap only uses the low bits of Long.hashCode()
+        return hash * 0x9E3779B97F4A7C15L;
+    }
+
+    // ---------- Similarity ----------
+
+    private static double similarity(Key a, Key b) {
+        if (a.year != 0 && b.year != 0 && a.year != b.year) {
+            return 0;
+        }
+        if (!a.numbers.equals(b.numbers)) {
+            return 0;
+        }
+        if (a.text.equals(b.text)) {
+            return 1.0;
+        }
+        // Jaro-Winkler scores the match; the edit limit keeps "Alien" from matching "Alien Resurrection"
+        return withinEdits(a.text, b.text, MAX_TYPOS) ? jaroWinkler(a.text, b.text) : 0;
+    }
+
+    /**
+     * True if the Levenshtein distance of the strings is at most max. Only the band of width
+     * 2 * max + 1 around the diagonal is computed, and it stops as soon as max is exceeded.
+     */
+    static boolean withinEdits(String s1, String s2, int max) {
+        int len1 = s1.length();
+        int len2 = s2.length();
+        if (Math.abs(len1 - len2) > max) {
+            return false;
+        }
+
+        int outside = max + 1;
+        int[] previous = new int[len2 + 1];
+        int[] current = new int[len2 + 1];
+        for (int j = 0; j <= len2; j++) {
+            previous[j] = Math.min(j, outside);
+        }
+
+        for (int i = 1; i <= len1; i++) {
+            int from = Math.max(1, i - max);
+            int to = Math.min(len2, i + max);
+            current[0] = Math.min(i, outside);
+            if (from > 1) {
+                current[from - 1] = outside;
+            }
+
+            int best = current[0];
+            for (int j = from; j <= to; j++) {
+                int cost = (s1.charAt(i - 1) == s2.charAt(j - 1)) ? 0 : 1;
+                int value = Math.min(previous[j - 1] + cost, Math.min(previous[j], current[j - 1]) + 1);
+                current[j] = Math.min(value, outside);
+                best = Math.min(best, current[j]);
+            }
+            if (to < len2) {
+                current[to + 1] = outside;
+            }
+            if (best > max) {
+                return false;
+            }
+
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[len2] <= max;
+    }
+
+    /**
+     * Jaro-Winkler similarity (0 = nothing in common, 1 = equal), with the usual prefix
+     * scale of 0.1 for up to four common leading characters.
+     */
+    static double jaroWinkler(String s1, String s2) {
+        int len1 = s1.length();
+        int len2 = s2.length();
+        if (len1 == 0 || len2 == 0) {
+            return (len1 == len2) ? 1.0 : 0.0;
+        }
+
+        int window = Math.max(0, Math.max(len1, len2) / 2 - 1);
+        boolean[] matched1 = new boolean[len1];
+        boolean[] matched2 = new boolean[len2];
+
+        int matches = 0;
+        for (int i = 0; i < len1; i++) {
+            int from = Math.max(0, i - window);
+            int to = Math.min(len2 - 1, i + window);
+            for (int j = from; j <= to; j++) {
+                if (!matched2[j] && s1.charAt(i) == s2.charAt(j)) {
+                    matched1[i] = true;
+                    matched2[j] = true;
+                    matches++;
+                    break;
+                }
+            }
+        }
+        if (matches == 0) {
+            return 0.0;
+        }
+
+        // Matched characters that appear in a different order
+        int transpositions = 0;
+        int k = 0;
+        for (int i = 0; i < len1; i++) {
+            if (!matched1[i]) {
+                continue;
+            }
+            while (!matched2[k]) {
+                k++;
+            }
+            if (s1.charAt(i) != s2.charAt(k)) {
+                transpositions++;
+            }
+            k++;
+        }
+
+        double m = matches;
+        double jaro = (m / len1 + m / len2 + (m - transpositions / 2.0) / m) / 3.0;
+
+        int prefix = 0;
+        while (prefix < 4 && prefix < len1 && prefix < len2 && s1.charAt(prefix) == s2.charAt(prefix)) {
+            prefix++;
+        }
+        return jaro + prefix * 0.1 * (1.0 - jaro);
+    }
+
+    // ---------- Normalization ----------
+
+    /**
+     * Returns the comparable form of a title and the release year found in it (0 if none).
+     */
+    static Key normalize(String title) {
+        String text = title.trim();
+
+        int year = 0;
+        Matcher matcher = YEAR.matcher(text);
+        if (matcher.find()) {
+            year = Integer.parseInt(matcher.group(1));
+            text = matcher.replaceAll(" ");
+        }
+
+        text = Normalizer.normalize(text, Normalizer.Form.NFD);
+        text = MARKS.matcher(text).replaceAll("");
+        text = text.toLowerCase(Locale.ROOT).replace("&", " and ");
+
+        // "Matrix, The" -> "matrix"; "The Matrix" -> "matrix"
+        text = TRAILING_ARTICLE.matcher(text.trim()).replaceAll("");
+        text = NON_ALNUM.matcher(text).replaceAll(" ").trim();
+        text = LEADING_ARTICLE.matcher(text).replaceAll("");
+
+        // "rocky ii" -> "rocky 2"
+        StringBuilder words = new StringBuilder(text.length());
+        StringBuilder numbers = new StringBuilder();
+        for (String word : text.split(" ")) {
+            word = ROMAN.getOrDefault(word, word);
+            if (words.length() > 0) {
+                words.append(' ');
+            }
+            words.append(word);
+            if (DIGITS.matcher(word).matches()) {
+                numbers.append(numbers.length() > 0 ? " " : "").append(word);
+            }
+        }
+
+        return new Key(words.toString(), year, numbers.toString());
+    }
+
+    static final class Key {
+        final String text;
+        final int year;
+
+        // Numbers in the title, in order ("" if none)
+        final String numbers;
+
+        Key(String text, int year, String numbers) {
+            this.text = text;
+            this.year = year;
+            this.numbers = numbers;
+        }
+    }
+
+    private static final class Entry {
+        Movie movie;
+        final String title;
+        final Key key;
+
+        // lettersOf(key.text), next to visited so that the candidate search reads one object
+        final long letters;
+
+        // Last candidate search that looked at this entry
+        int visited;
+
+        Entry(Movie movie) {
+            this.movie = movie;
+            this.title = movie.getTitle();
+            this.key = normalize(title == null ? "" : title);
+            this.letters = lettersOf(key.text);
+        }
+
+        // Copy for a Snapshot, with its own visit marker
+        Entry(Entry other) {
+            this.movie = other.movie;
+            this.title = other.title;
+            this.key = other.key;
+            this.letters = other.letters;
+        }
+    }
+
+    /**
+     * A movie with a similar title and how similar it is (1.0 = same normalized title).
+     */
+    public static final class Match {
+        private final Movie movie;
+        private final double similarity;
+
+        Match(Movie movie, double similarity) {
+            this.movie = movie;
+            this.similarity = similarity;
+        }
+
+        public Movie getMovie() {
+            return movie;
+        }
+
+        public double getSimilarity() {
+            return similarity;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package bll;
+
+import be.Movie;
+import be.VideoInfo;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Reads video information for many movies using a small, bounded worker pool.
+ *
+ * The scan is incremental: a movie is only parsed again when the file's last-modified
+ * time differs from the one stored with its current VideoInfo.
+ */
+public class VideoInfoScanner {
+
+    // Parsing is IO bound (a few small reads per file); two workers keep one disk busy
+    private static final int THREADS = 2;
+
+    // Bounded queue: the submitting thread runs tasks itself when workers fall behind,
+    // so a 100k movie library never puts 100k tasks in memory at once.
+    private static final int QUEUE_CAPACITY = 64;
+
+    private final Mp4MetadataReader reader = new Mp4MetadataReader();
+
+    /**
+     * Scans all movies whose file is new or changed since the last scan.
+     *
+     * @return movie ID -> freshly read information (only the movies that were scanned)
+     */
+    public Map<Integer, VideoInfo> scan(List<Movie> movies) throws InterruptedException {
+        Map<Integer, VideoInfo> results = new ConcurrentHashMap<>();
+
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                THREADS, THREADS, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+
+        try {
+            for (Movie movie : movies) {
+                String link = movie.getFileLink();
+                if (!MovieManager.isSupportedVideoFile(link)) {
+                    continue;
+                }
+                int movieId = movie.getId();
+                VideoInfo current = movie.getVideoInfo();
+
+                pool.execute(() -> scanOne(movieId, link, current, results));
+            }
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        }
+
+        return results;
+    }
+
+    private void scanOne(int movieId, String link, VideoInfo current, Map<Integer, VideoInfo> results) {
+        try {
+            Path path = Paths.get(link);
+            if (!Files.isRegularFile(path)) {
+                return;
+            }
+
+            long modified = Files.getLastModifiedTime(path).toMillis();
+            if (current != null && current.getFileModified() == modified) {
+                return; // Unchanged since the last scan
+            }
+
+            VideoInfo info = reader.read(path, modified);
+
+            // Store an empty result for unreadable files too, so they are not parsed on every start
+            results.put(movieId, (info != null) ? info : new VideoInfo(0, 0, 0, null, modified));
+
+        } catch (Exception e) {
+            // A broken file must not stop the scan of the others
+            System.err.println("Could not read video info of '" + link + "': " + e.getMessage());
+        }
+    }
+}
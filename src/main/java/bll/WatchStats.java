@@ -0,0 +1,275 @@
+package bll;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Watch statistics folded from the ViewEvents history: play counts per movie, watch time per
+ * category, play counts per calendar month and a popularity score that fades with age.
+ *
+ * Every counter is updated incrementally by record(), so the history is read once at startup
+ * and never queried again. Rankings only look at movies that have counters, and a month's bucket
+ * only holds the movies watched in that month, so "most watched this month" costs the same
+ * whether there is one month of history or ten years.
+ *
+ * Popularity uses forward decay: a view at time t adds 2^((t - landmark) / halfLife) to the
+ * movie's score. All scores share the landmark, so comparing them ranks by the decayed value
+ * without touching any other movie when an event arrives. The decayed value at "now" is
+ * score * 2^(-(now - landmark) / halfLife). Before the weights get too large for a double,
+ * the landmark is moved forward and every score is rescaled once.
+ *
+ * Not thread-safe on its own; MovieManager calls it under its own lock.
+ */
+public class WatchStats {
+
+    public static final Duration DEFAULT_HALF_LIFE = Duration.ofDays(30);
+
+    // Doubles go up to about 2^1024; rescale long before that
+    private static final double MAX_WEIGHT = 0x1p500;
+
+    private final double halfLifeMillis;
+    private final ZoneId zone;
+
+    // Time the decay weights are relative to (set by the first event)
+    private long landmark;
+    private boolean hasLandmark;
+
+    private final Map<Integer, MovieStats> movies = new HashMap<>();
+    private final Map<YearMonth, Map<Integer, int[]>> monthly = new HashMap<>();
+    private final Map<String, Long> categorySeconds = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private long eventCount;
+
+    public WatchStats() {
+        this(DEFAULT_HALF_LIFE, ZoneId.systemDefault());
+    }
+
+    /**
+     * @param halfLife after this time a view counts half as much for popularity
+     * @param zone     time zone that decides which month a view belongs to
+     */
+    public WatchStats(Duration halfLife, ZoneId zone) {
+        if (halfLife.isZero() || halfLife.isNegative()) {
+            throw new IllegalArgumentException("Half-life must be positive.");
+        }
+        this.halfLifeMillis = halfLife.toMillis();
+        this.zone = zone;
+    }
+
+    // ---------- Updates ----------
+
+    /**
+     * Adds one view.
+     *
+     * @param viewedAt       time of the view in epoch milliseconds
+     * @param watchedSeconds time watched (the runtime of the movie, 0 if unknown)
+     * @param categoryNames  categories the watch time counts for
+     */
+    public void record(int movieId, long viewedAt, int watchedSeconds, Collection<String> categoryNames) {
+        if (!hasLandmark) {
+            landmark = viewedAt;
+            hasLandmark = true;
+        }
+        double weight = weight(viewedAt);
+        if (weight > MAX_WEIGHT) {
+            rebase(viewedAt);
+            weight = 1.0;
+        }
+
+        MovieStats stats = movies.computeIfAbsent(movieId, id -> new MovieStats());
+        stats.plays++;
+        stats.score += weight;
+
+        monthly.computeIfAbsent(monthOf(viewedAt), m -> new HashMap<>())
+                .computeIfAbsent(movieId, id -> new int[1])[0]++;
+
+        if (watchedSeconds > 0) {
+            for (String name : categoryNames) {
+                categorySeconds.merge(name, (long) watchedSeconds, Long::sum);
+            }
+        }
+        eventCount++;
+    }
+
+    /**
+     * Adds everything counted by the other instance (e.g. the history of another library).
+     */
+    public void merge(WatchStats other) {
+        if (!other.hasLandmark) {
+            return;
+        }
+        if (!hasLandmark) {
+            landmark = other.landmark;
+            hasLandmark = true;
+        }
+        // Common landmark = the later one, so no weight grows while converting
+        if (other.landmark > landmark) {
+            rebase(other.landmark);
+        }
+        double factor = Math.pow(2, (other.landmark - landmark) / halfLifeMillis);
+
+        for (Map.Entry<Integer, MovieStats> entry : other.movies.entrySet()) {
+            MovieStats theirs = entry.getValue();
+            MovieStats stats = movies.computeIfAbsent(entry.getKey(), id -> new MovieStats());
+            stats.plays += theirs.plays;
+            stats.score += theirs.score * factor;
+        }
+        other.monthly.forEach((month, counts) -> {
+            Map<Integer, int[]> bucket = monthly.computeIfAbsent(month, m -> new HashMap<>());
+            counts.forEach((id, count) -> bucket.computeIfAbsent(id, x -> new int[1])[0] += count[0]);
+        });
+        other.categorySeconds.forEach((name, seconds) -> categorySeconds.merge(name, seconds, Long::sum));
+        eventCount += other.eventCount;
+    }
+
+    /**
+     * Forgets a deleted movie (its watch time stays in the category totals: it was watched).
+     */
+    public void remove(int movieId) {
+        if (movies.remove(movieId) == null) {
+            return;
+        }
+        Iterator<Map<Integer, int[]>> buckets = monthly.values().iterator();
+        while (buckets.hasNext()) {
+            Map<Integer, int[]> bucket = buckets.next();
+            bucket.remove(movieId);
+            if (bucket.isEmpty()) {
+                buckets.remove();
+            }
+        }
+    }
+
+    /**
+     * Moves the counters of a movie to a new ID (an offline movie that received its real ID).
+     */
+    public void renameMovie(int oldId, int newId) {
+        MovieStats stats = movies.remove(oldId);
+        if (stats == null) {
+            return;
+        }
+        movies.put(newId, stats);
+        for (Map<Integer, int[]> bucket : monthly.values()) {
+            int[] count = bucket.remove(oldId);
+            if (count != null) {
+                bucket.put(newId, count);
+            }
+        }
+    }
+
+    // ---------- Queries ----------
+
+    public long getEventCount() {
+        return eventCount;
+    }
+
+    public int getPlayCount(int movieId) {
+        MovieStats stats = movies.get(movieId);
+        return stats == null ? 0 : stats.plays;
+    }
+
+    /**
+     * Returns the decayed number of views at the given time (a view one half-life ago counts 0.5).
+     */
+    public double getPopularity(int movieId, long now) {
+        MovieStats stats = movies.get(movieId);
+        if (stats == null) {
+            return 0;
+        }
+        return stats.score * Math.pow(2, -(now - landmark) / halfLifeMillis);
+    }
+
+    /**
+     * Returns the IDs of the most popular movies (decayed views), most popular first.
+     */
+    public List<Integer> getMostPopular(int count) {
+        return top(movies, stats -> stats.score, count);
+    }
+
+    /**
+     * Returns the IDs of the movies watched most often in the given month, most watched first.
+     */
+    public List<Integer> getMostWatched(YearMonth month, int count) {
+        return top(monthly.getOrDefault(month, Map.of()), plays -> plays[0], count);
+    }
+
+    /**
+     * Returns the number of views of the movie in the given month.
+     */
+    public int getPlayCount(int movieId, YearMonth month) {
+        int[] plays = monthly.getOrDefault(month, Map.of()).get(movieId);
+        return plays == null ? 0 : plays[0];
+    }
+
+    /**
+     * Returns category name -> watched seconds, most watched first.
+     */
+    public Map<String, Long> getWatchTimeByCategory() {
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(categorySeconds.entrySet());
+        entries.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> entry : entries) {
+            result.put(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    public YearMonth monthOf(long epochMillis) {
+        return YearMonth.from(Instant.ofEpochMilli(epochMillis).atZone(zone));
+    }
+
+    // ---------- Helpers ----------
+
+    private double weight(long time) {
+        return Math.pow(2, (time - landmark) / halfLifeMillis);
+    }
+
+    /**
+     * Moves the landmark to the given time and rescales every score accordingly.
+     */
+    private void rebase(long newLandmark) {
+        double factor = Math.pow(2, -(newLandmark - landmark) / halfLifeMillis);
+        for (MovieStats stats : movies.values()) {
+            stats.score *= factor;
+        }
+        landmark = newLandmark;
+    }
+
+    /**
+     * The "count" keys with the highest values, highest first (ties: lower ID first).
+     * Uses a min-heap of size count, so it is O(n log count) instead of sorting everything.
+     */
+    private static <V> List<Integer> top(Map<Integer, V> values, ToDoubleFunction<V> valueOf, int count) {
+        if (count <= 0) {
+            return List.of();
+        }
+
+        Comparator<Map.Entry<Integer, V>> order = Comparator
+                .comparingDouble((Map.Entry<Integer, V> e) -> valueOf.applyAsDouble(e.getValue()))
+                .thenComparing(Map.Entry::getKey, Comparator.reverseOrder());
+
+        // Smallest of the current top entries at the head
+        PriorityQueue<Map.Entry<Integer, V>> heap = new PriorityQueue<>(count + 1, order);
+        for (Map.Entry<Integer, V> entry : values.entrySet()) {
+            heap.add(entry);
+            if (heap.size() > count) {
+                heap.poll();
+            }
+        }
+
+        List<Integer> ids = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            ids.add(heap.poll().getKey());
+        }
+        Collections.reverse(ids);
+        return ids;
+    }
+
+    private static final class MovieStats {
+        int plays;
+        double score;
+    }
+}
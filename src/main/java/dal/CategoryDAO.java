@@ -9,86 +9,154 @@ import java.util.List;
 /**
  * Data Access Object (DAO) responsible for CRUD operations on Categories.
  * This class belongs to the DAL layer and should contain only database logic.
+ *
+ * Every change also increments the single-row CategoryVersion counter (same transaction),
+ * so clients can check with one tiny query whether their cached list is still current.
  */
 public class CategoryDAO {
 
-    private final ConnectionProvider cp = new ConnectionProvider();
+    private static final String SQL_BUMP_VERSION = "UPDATE CategoryVersion SET Version = Version + 1 WHERE ID = 1";
+
+    // Timeouts, retries and the circuit breaker for every statement below
+    private final SqlExecutor db;
+
+    // Category IDs are global IDs of this shard (see Shard)
+    private final int shardIndex;
+
+    /**
+     * DAO for the database in db.settings (a single library).
+     */
+    public CategoryDAO() {
+        this(new ConnectionProvider(), 0);
+    }
+
+    /**
+     * DAO for one library database of a ShardSet.
+     */
+    public CategoryDAO(ConnectionProvider cp, int shardIndex) {
+        this.db = new SqlExecutor(cp);
+        this.shardIndex = shardIndex;
+    }
+
+    /**
+     * Returns the current category version (changes whenever any category is created, deleted or merged).
+     */
+    public int getCategoryVersion() {
+        String sql = "SELECT Version FROM CategoryVersion WHERE ID = 1";
+
+        return db.read("read the category version", conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql);
+                 ResultSet rs = ps.executeQuery()) {
+
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        });
+    }
 
     /**
      * Loads all categories from the database.
      */
     public List<Category> getAllCategories() {
-        List<Category> allCategories = new ArrayList<>();
         String sql = "SELECT ID, Name FROM Categories";
 
-        try (Connection conn = cp.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
+        return db.read("load categories", conn -> {
+            List<Category> allCategories = new ArrayList<>();
 
-            while (rs.next()) {
-                int id = rs.getInt("ID");
-                String name = rs.getString("Name");
-                allCategories.add(new Category(id, name));
-            }
+            try (PreparedStatement ps = conn.prepareStatement(sql);
+                 ResultSet rs = ps.executeQuery()) {
 
-        } catch (SQLException e) {
-            // In a real project you would throw a custom exception or log properly
-            e.printStackTrace();
-        }
+                while (rs.next()) {
+                    int id = Shard.toGlobal(shardIndex, rs.getInt(1));
+                    String name = rs.getString(2);
+                    allCategories.add(new Category(id, name));
+                }
+            }
 
-        return allCategories;
+            return allCategories;
+        });
     }
 
     /**
      * Creates a new category in the database.
      * The database is responsible for generating the ID (IDENTITY / auto-increment).
+     *
+     * @return the stored category with its generated ID
      */
-    public void createCategory(String name) {
+    public Category createCategory(String name) {
         String sql = "INSERT INTO Categories (Name) VALUES (?)";
 
-        try (Connection conn = cp.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
+        return db.write("create category", conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+                 PreparedStatement psBump = conn.prepareStatement(SQL_BUMP_VERSION)) {
+
+                ps.setString(1, name);
+                ps.executeUpdate();
 
-            ps.setString(1, name);
-            ps.executeUpdate();
+                Category created;
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    if (!keys.next()) {
+                        throw new SQLException("Category created but no generated ID was returned.");
+                    }
+                    created = new Category(Shard.toGlobal(shardIndex, keys.getInt(1)), name);
+                }
 
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+                psBump.executeUpdate();
+                return created;
+            }
+        });
     }
 
     /**
-     * Deletes a category and removes its relations to movies.
-     * First we delete from the relation table, then from the Categories table.
+     * Deletes a category. Its relations to movies are removed by the
+     * ON DELETE CASCADE foreign key (migration V4), using the CategID index.
      */
     public void deleteCategory(Category category) {
-        String sqlRel = "DELETE FROM CategMovie WHERE CategID = ?";
-        String sqlCat = "DELETE FROM Categories WHERE ID = ?";
+        String sql = "DELETE FROM Categories WHERE ID = ?";
 
-        try (Connection conn = cp.getConnection()) {
+        db.write("delete category", conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql);
+                 PreparedStatement psBump = conn.prepareStatement(SQL_BUMP_VERSION)) {
 
-            // Use a transaction to ensure both deletes succeed or both are rolled back
-            conn.setAutoCommit(false);
+                ps.setInt(1, Shard.toLocal(category.getId()));
+                ps.executeUpdate();
 
-            try (PreparedStatement psRel = conn.prepareStatement(sqlRel);
-                 PreparedStatement psCat = conn.prepareStatement(sqlCat)) {
-
-                psRel.setInt(1, category.getId());
-                psRel.executeUpdate();
-
-                psCat.setInt(1, category.getId());
-                psCat.executeUpdate();
-
-                conn.commit();
-            } catch (SQLException ex) {
-                conn.rollback();
-                throw ex;
-            } finally {
-                conn.setAutoCommit(true);
+                psBump.executeUpdate();
             }
+            return null;
+        });
+    }
 
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+    /**
+     * Merges the source category into the target category.
+     * All relations are moved with ONE set-based UPDATE (movies that already have the target
+     * are skipped), then the source is deleted; its leftover relations cascade away.
+     */
+    public void mergeCategory(Category source, Category target) {
+        String sqlMove = """
+                UPDATE CategMovie
+                SET CategID = ?
+                WHERE CategID = ?
+                  AND NOT EXISTS (SELECT 1 FROM CategMovie x
+                                  WHERE x.MovieID = CategMovie.MovieID AND x.CategID = ?)
+                """;
+        String sqlDelete = "DELETE FROM Categories WHERE ID = ?";
+
+        db.write("merge categories", conn -> {
+            try (PreparedStatement psMove = conn.prepareStatement(sqlMove);
+                 PreparedStatement psDelete = conn.prepareStatement(sqlDelete);
+                 PreparedStatement psBump = conn.prepareStatement(SQL_BUMP_VERSION)) {
+
+                psMove.setInt(1, Shard.toLocal(target.getId()));
+                psMove.setInt(2, Shard.toLocal(source.getId()));
+                psMove.setInt(3, Shard.toLocal(target.getId()));
+                psMove.executeUpdate();
+
+                psDelete.setInt(1, Shard.toLocal(source.getId()));
+                psDelete.executeUpdate();
+
+                psBump.executeUpdate();
+            }
+            return null;
+        });
     }
 }
@@ -0,0 +1,90 @@
+package dal;
+
+/**
+ * Circuit breaker for one database.
+ *
+ * CLOSED:    calls go through; consecutive outage failures are counted.
+ * OPEN:      after "threshold" failures in a row, calls fail immediately (no connect attempt,
+ *            no waiting for timeouts) until the cool-down has passed.
+ * HALF_OPEN: after the cool-down ONE probe call is let through; success closes the circuit,
+ *            failure opens it again for another cool-down. Other calls keep failing fast meanwhile.
+ *
+ * Only failures that mean "the server is not there" are recorded (connection loss, timeouts,
+ * throttling); a constraint violation proves the server is fine and counts as a success.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int threshold;
+    private final long openMillis;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probeInFlight;
+
+    public CircuitBreaker(int threshold, long openMillis) {
+        this.threshold = Math.max(1, threshold);
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * Returns true if a call may be attempted now. In HALF_OPEN only the first caller gets true.
+     */
+    public synchronized boolean allowRequest() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openMillis) {
+            state = State.HALF_OPEN;
+            probeInFlight = false;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probeInFlight) {
+                return false;
+            }
+            probeInFlight = true;
+            return true;
+        }
+        return state == State.CLOSED;
+    }
+
+    public synchronized void recordSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        probeInFlight = false;
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= threshold) {
+            if (state != State.OPEN) {
+                System.err.println("Database circuit opened after " + consecutiveFailures + " failure(s).");
+            }
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+            probeInFlight = false;
+        }
+    }
+
+    /**
+     * Ends a call without a verdict (it failed for a reason that says nothing about the database).
+     * In HALF_OPEN this lets the next caller probe instead; in the other states it changes nothing.
+     */
+    public synchronized void releaseProbe() {
+        probeInFlight = false;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Milliseconds until the next probe is allowed (0 unless the circuit is OPEN).
+     */
+    public synchronized long getRetryInMillis() {
+        return state == State.OPEN ? Math.max(0, openMillis - (System.currentTimeMillis() - openedAt)) : 0;
+    }
+}
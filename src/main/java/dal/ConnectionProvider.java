@@ -1,48 +1,106 @@
 package dal;
 
 import com.microsoft.sqlserver.jdbc.SQLServerDataSource;
-import com.microsoft.sqlserver.jdbc.SQLServerException;
+import org.sqlite.Collation;
+import org.sqlite.SQLiteConfig;
+import org.sqlite.SQLiteDataSource;
 
+import javax.sql.DataSource;
 import java.io.IOException;
 import java.io.InputStream;
 import java.sql.Connection;
+import java.sql.SQLException;
 import java.util.Properties;
 
 /**
  * Provides database connections using configuration loaded from a properties file.
  * This class centralizes all database connection settings for the application.
+ *
+ * Two backends are supported:
+ * - SQL Server (default, the shared school/home server)
+ * - an embedded SQLite file (backend=sqlite), for offline use and local testing
  */
 public class ConnectionProvider {
 
+    /**
+     * Database backends the DAL can talk to.
+     */
+    public enum Backend {
+        SQLSERVER,
+        SQLITE
+    }
+
+    /**
+     * How large reads are transferred ("readProfile" in db.settings).
+     * The readFetchSize, bulkFetchSize and responseBuffering settings override the profile's values.
+     */
+    public enum ReadProfile {
+        // Rows are handed to the DAO as they arrive; the driver holds about one fetch of rows
+        STREAMING("adaptive", 500, 5000),
+        // The whole result is read into driver memory first (frees the server side sooner)
+        BUFFERED("full", 0, 0);
+
+        private final String responseBuffering;
+        private final int readFetchSize;
+        private final int bulkFetchSize;
+
+        ReadProfile(String responseBuffering, int readFetchSize, int bulkFetchSize) {
+            this.responseBuffering = responseBuffering;
+            this.readFetchSize = readFetchSize;
+            this.bulkFetchSize = bulkFetchSize;
+        }
+    }
+
     // Name and location of the configuration file inside resources
     private static final String CONFIG_FILE_NAME = "/db.settings";
 
-    // SQL Server data source used to create connections
-    private final SQLServerDataSource ds;
+    // MovieDAO.TITLE_ORDER as an SQLite collation, registered on every SQLite connection
+    private static final Collation TITLE_ORDER = new Collation() {
+        @Override
+        protected int xCompare(String a, String b) {
+            return MovieDAO.TITLE_ORDER.compare(a, b);
+        }
+    };
+
+    // Data source used to create connections (SQL Server or SQLite)
+    private DataSource ds;
+    private Backend backend = Backend.SQLSERVER;
+    private ReadProfile readProfile = ReadProfile.STREAMING;
+    private Properties settings = new Properties();
+
+    // Identifies the database (server + name, or file), e.g. to share one circuit breaker per database
+    private String target = "sqlserver";
 
     /**
      * Initializes the data source and loads database configuration.
      */
     public ConnectionProvider() {
-        ds = new SQLServerDataSource();
         try {
-            loadProperties();
+            configure(loadSettings());
         } catch (IOException e) {
             // If the configuration cannot be loaded, the application cannot connect to the database
             System.err.println("Could not load '" + CONFIG_FILE_NAME + "'. Database connection will fail.");
             e.printStackTrace();
+            ds = new SQLServerDataSource();
         }
     }
 
+    /**
+     * Initializes the data source from the given settings instead of db.settings.
+     */
+    public ConnectionProvider(Properties props) {
+        configure(props);
+    }
+
     /**
      * Loads database connection properties from the db.settings file.
      */
-    private void loadProperties() throws IOException {
+    static Properties loadSettings() throws IOException {
 
         Properties props = new Properties();
 
         // Load properties file from classpath
-        try (InputStream is = getClass().getResourceAsStream(CONFIG_FILE_NAME)) {
+        try (InputStream is = ConnectionProvider.class.getResourceAsStream(CONFIG_FILE_NAME)) {
             if (is == null) {
                 throw new IOException(
                         "Property file '" + CONFIG_FILE_NAME + "' not found in classpath."
@@ -51,28 +109,124 @@ public class ConnectionProvider {
             props.load(is);
         }
 
+        return props;
+    }
+
+    private void configure(Properties props) {
+        settings = props;
+        String backendName = props.getProperty("backend", "sqlserver").trim();
+        backend = Backend.valueOf(backendName.toUpperCase());
+        readProfile = ReadProfile.valueOf(props.getProperty("readProfile", "streaming").trim().toUpperCase());
+
+        if (backend == Backend.SQLITE) {
+            ds = createSqliteDataSource(props);
+            target = "sqlite:" + props.getProperty("file", "mymovies.db");
+        } else {
+            ds = createSqlServerDataSource(props, readProfile);
+            target = "sqlserver://" + props.getProperty("server") + ":" + props.getProperty("port", "1433")
+                    + "/" + props.getProperty("database");
+        }
+    }
+
+    private static DataSource createSqlServerDataSource(Properties props, ReadProfile readProfile) {
+        SQLServerDataSource sqlServer = new SQLServerDataSource();
+
         // Basic connection settings
-        ds.setServerName(props.getProperty("server"));
-        ds.setDatabaseName(props.getProperty("database"));
-        ds.setUser(props.getProperty("user"));
-        ds.setPassword(props.getProperty("password"));
+        sqlServer.setServerName(props.getProperty("server"));
+        sqlServer.setDatabaseName(props.getProperty("database"));
+        sqlServer.setUser(props.getProperty("user"));
+        sqlServer.setPassword(props.getProperty("password"));
 
         // Optional connection settings
-        ds.setPortNumber(Integer.parseInt(props.getProperty("port", "1433")));
-        ds.setEncrypt(Boolean.parseBoolean(props.getProperty("encrypt", "true")));
-        ds.setTrustServerCertificate(
+        sqlServer.setPortNumber(Integer.parseInt(props.getProperty("port", "1433")));
+        sqlServer.setEncrypt(Boolean.parseBoolean(props.getProperty("encrypt", "true")));
+        sqlServer.setTrustServerCertificate(
                 Boolean.parseBoolean(props.getProperty("trustServerCertificate", "true"))
         );
-        ds.setLoginTimeout(Integer.parseInt(props.getProperty("loginTimeout", "5")));
+        sqlServer.setLoginTimeout(Integer.parseInt(props.getProperty("loginTimeout", "5")));
+
+        // If the server does not acknowledge a query timeout (e.g. the VPN dropped), the driver
+        // gives up on the connection after this many extra seconds instead of hanging.
+        sqlServer.setCancelQueryTimeout(Integer.parseInt(props.getProperty("cancelQueryTimeout", "5")));
+
+        // "adaptive": rs.next() returns as soon as the first rows arrive and the driver only keeps
+        // what has not been read yet, instead of reading the whole result before the first row.
+        // Set explicitly so a connection string or driver default cannot switch it to "full".
+        sqlServer.setResponseBuffering(props.getProperty("responseBuffering", readProfile.responseBuffering));
+
+        return sqlServer;
+    }
+
+    private static DataSource createSqliteDataSource(Properties props) {
+        SQLiteConfig config = new SQLiteConfig();
+
+        // SQLite ignores foreign keys unless asked; the schema relies on ON DELETE CASCADE
+        config.enforceForeignKeys(true);
+
+        // Store DATE values as 'YYYY-MM-DD' text (readable, sortable, same as SQL Server's DATE)
+        config.setDateClass("TEXT");
+        config.setDateStringFormat("yyyy-MM-dd");
+
+        // Writers wait for each other instead of failing immediately with SQLITE_BUSY
+        config.setBusyTimeout(Integer.parseInt(props.getProperty("busyTimeoutMillis", "5000")));
+        config.setJournalMode(SQLiteConfig.JournalMode.WAL);
+
+        SQLiteDataSource sqlite = new SQLiteDataSource(config);
+        sqlite.setUrl("jdbc:sqlite:" + props.getProperty("file", "mymovies.db"));
+        return sqlite;
+    }
+
+    /**
+     * Returns the backend this provider connects to.
+     */
+    public Backend getBackend() {
+        return backend;
+    }
+
+    public ReadProfile getReadProfile() {
+        return readProfile;
+    }
+
+    /**
+     * Returns the fetch size (rows per round trip) for reads, or for bulk reads such as
+     * catalog loads and exports. 0 leaves the choice to the driver.
+     */
+    public int getFetchSize(boolean bulk) {
+        return bulk ? getIntSetting("bulkFetchSize", readProfile.bulkFetchSize)
+                : getIntSetting("readFetchSize", readProfile.readFetchSize);
+    }
+
+    /**
+     * Returns the database this provider connects to, e.g. "sqlserver://host:1433/MyMovie".
+     */
+    public String getTarget() {
+        return target;
+    }
+
+    /**
+     * Returns a numeric setting from db.settings, or the default when it is missing.
+     */
+    public int getIntSetting(String key, int defaultValue) {
+        String value = settings.getProperty(key);
+        return (value == null || value.isBlank()) ? defaultValue : Integer.parseInt(value.trim());
     }
 
     /**
      * Returns a new database connection.
      *
-     * @return a valid SQL Server connection
-     * @throws SQLServerException if the connection cannot be established
+     * @return a valid database connection
+     * @throws SQLException if the connection cannot be established
      */
-    public Connection getConnection() throws SQLServerException {
-        return ds.getConnection();
+    public Connection getConnection() throws SQLException {
+        Connection conn = ds.getConnection();
+        if (backend == Backend.SQLITE) {
+            try {
+                Collation.create(conn, MovieDAO.TITLE_COLLATION, TITLE_ORDER);
+            } catch (SQLException e) {
+                conn.close();
+                throw e;
+            }
+        }
+        return conn;
     }
 }
@@ -0,0 +1,17 @@
+package dal;
+
+/**
+ * Thrown when the database cannot be reached: the retries of a transient failure were used up,
+ * or the circuit breaker is open and the call was not even attempted.
+ *
+ * Extends IllegalStateException (what the DAOs already throw) so existing error handling keeps
+ * working; callers that can do something better, like serving cached data, catch this type.
+ */
+public class DatabaseUnavailableException extends IllegalStateException {
+
+    private static final long serialVersionUID = 1L;
+
+    public DatabaseUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
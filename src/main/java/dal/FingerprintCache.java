@@ -0,0 +1,120 @@
+package dal;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Persistent cache of file fingerprints, keyed by path and last-modified time.
+ * A fingerprint stays valid as long as the file is not touched, so repeated
+ * duplicate scans only hash files that are new or changed.
+ *
+ * Stored as a small tab-separated text file in the application data folder.
+ * Safe to use from several worker threads at once.
+ */
+public class FingerprintCache {
+
+    private static final String FILE_NAME = "fingerprints.cache";
+
+    private final Path file;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Opens the cache in the application data folder and loads existing entries.
+     */
+    public FingerprintCache() throws IOException {
+        this(LocalStorage.getAppDataDir().resolve(FILE_NAME));
+    }
+
+    public FingerprintCache(Path file) {
+        this.file = file;
+        load();
+    }
+
+    /**
+     * Returns the cached fingerprint, or null when the file is unknown or changed since.
+     */
+    public String get(String path, long size, long lastModified) {
+        Entry entry = entries.get(path);
+        if (entry == null || entry.size != size || entry.lastModified != lastModified) {
+            return null;
+        }
+        return entry.fingerprint;
+    }
+
+    /**
+     * Stores a fingerprint for the given file version (in memory until save() is called).
+     */
+    public void put(String path, long size, long lastModified, String fingerprint) {
+        entries.put(path, new Entry(size, lastModified, fingerprint));
+    }
+
+    /**
+     * Writes the cache to disk. A temporary file is used so a crash never leaves a half-written cache.
+     */
+    public void save() {
+        Path tmp = file.resolveSibling(FILE_NAME + ".tmp");
+
+        try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                Entry v = e.getValue();
+                // Path goes last because it is the only field that may contain tabs
+                writer.write(v.size + "\t" + v.lastModified + "\t" + v.fingerprint + "\t" + e.getKey());
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+
+        try {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void load() {
+        if (!Files.exists(file)) {
+            return;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t", 4);
+                if (parts.length < 4) {
+                    continue; // Skip damaged lines instead of dropping the whole cache
+                }
+                try {
+                    entries.put(parts[3], new Entry(Long.parseLong(parts[0]), Long.parseLong(parts[1]), parts[2]));
+                } catch (NumberFormatException ignored) {
+                    // Damaged line
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * One cached fingerprint together with the file version it belongs to.
+     */
+    private static final class Entry {
+        final long size;
+        final long lastModified;
+        final String fingerprint;
+
+        Entry(long size, long lastModified, String fingerprint) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.fingerprint = fingerprint;
+        }
+    }
+}
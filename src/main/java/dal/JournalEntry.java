@@ -0,0 +1,254 @@
+package dal;
+
+import be.Category;
+import be.Movie;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * One change made while the database was unreachable, as stored in the WriteJournal.
+ *
+ * Every entry has a random idempotency key; the replicator stores that key together with the
+ * change, so an entry that is replayed twice is only applied once.
+ *
+ * Movies created offline get a temporary negative ID. Later entries for the same movie use
+ * that ID; the replicator translates it to the real ID once the movie exists on the server.
+ *
+ * Categories that did not exist yet when the change was queued (ID -1) are kept by name;
+ * the replicator creates them (or finds them, if created meanwhile) when it applies the entry.
+ */
+public final class JournalEntry {
+
+    public enum Kind {
+        CREATE_MOVIE,
+        UPDATE_MOVIE,
+        LAST_VIEW
+    }
+
+    private final Kind kind;
+    private final UUID key;
+    private final long createdAt;
+    private final int movieId;
+
+    // UPDATE_MOVIE: version the edit was based on (optimistic locking on the server)
+    private final int expectedVersion;
+
+    // CREATE_MOVIE / UPDATE_MOVIE: the full new state
+    private final String title;
+    private final double imdbRating;
+    private final double personalRating;
+    private final String fileLink;
+    private final List<Integer> categoryIds;
+    private final List<String> categoryNames;
+
+    // All kinds: last view as epoch day (Movie.NEVER_VIEWED = none)
+    private final long lastViewDay;
+
+    // Position in the journal (set when read back, -1 for new entries)
+    private long offset = -1;
+    private long endOffset = -1;
+
+    private JournalEntry(Kind kind, UUID key, long createdAt, int movieId, int expectedVersion,
+                         String title, double imdbRating, double personalRating, String fileLink,
+                         List<Integer> categoryIds, List<String> categoryNames, long lastViewDay) {
+        this.kind = kind;
+        this.key = key;
+        this.createdAt = createdAt;
+        this.movieId = movieId;
+        this.expectedVersion = expectedVersion;
+        this.title = title;
+        this.imdbRating = imdbRating;
+        this.personalRating = personalRating;
+        this.fileLink = fileLink;
+        this.categoryIds = categoryIds;
+        this.categoryNames = categoryNames;
+        this.lastViewDay = lastViewDay;
+    }
+
+    // ---------- Factories ----------
+
+    /**
+     * A movie created offline; movie.getId() must be its temporary (negative) ID.
+     */
+    public static JournalEntry createMovie(Movie movie, List<Category> categories) {
+        return fromMovie(Kind.CREATE_MOVIE, movie, categories, 0);
+    }
+
+    /**
+     * An edit made offline, based on the given version of the movie.
+     */
+    public static JournalEntry updateMovie(Movie movie, List<Category> categories, int expectedVersion) {
+        return fromMovie(Kind.UPDATE_MOVIE, movie, categories, expectedVersion);
+    }
+
+    /**
+     * The movie was watched on the given day.
+     */
+    public static JournalEntry lastView(int movieId, long epochDay) {
+        return new JournalEntry(Kind.LAST_VIEW, UUID.randomUUID(), System.currentTimeMillis(), movieId, 0,
+                null, 0, 0, null, List.of(), List.of(), epochDay);
+    }
+
+    private static JournalEntry fromMovie(Kind kind, Movie movie, List<Category> categories, int expectedVersion) {
+        List<Integer> ids = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        for (Category category : categories) {
+            if (category.getId() < 0) {
+                names.add(category.getName());
+            } else {
+                ids.add(category.getId());
+            }
+        }
+        return new JournalEntry(kind, UUID.randomUUID(), System.currentTimeMillis(), movie.getId(), expectedVersion,
+                movie.getTitle(), movie.getImdbRating(), movie.getPersonalRating(), movie.getFileLink(),
+                ids, names, movie.getLastViewDay());
+    }
+
+    // ---------- Binary form ----------
+
+    byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(kind.ordinal());
+            out.writeLong(key.getMostSignificantBits());
+            out.writeLong(key.getLeastSignificantBits());
+            out.writeLong(createdAt);
+            out.writeInt(movieId);
+            out.writeInt(expectedVersion);
+            writeNullable(out, title);
+            out.writeDouble(imdbRating);
+            out.writeDouble(personalRating);
+            writeNullable(out, fileLink);
+            out.writeLong(lastViewDay);
+            out.writeInt(categoryIds.size());
+            for (int id : categoryIds) {
+                out.writeInt(id);
+            }
+            out.writeInt(categoryNames.size());
+            for (String name : categoryNames) {
+                out.writeUTF(name);
+            }
+        } catch (IOException e) {
+            // Cannot happen with an in-memory stream
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static JournalEntry fromBytes(byte[] data) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        Kind kind = Kind.values()[in.readByte()];
+        UUID key = new UUID(in.readLong(), in.readLong());
+        long createdAt = in.readLong();
+        int movieId = in.readInt();
+        int expectedVersion = in.readInt();
+        String title = readNullable(in);
+        double imdbRating = in.readDouble();
+        double personalRating = in.readDouble();
+        String fileLink = readNullable(in);
+        long lastViewDay = in.readLong();
+        int count = in.readInt();
+        List<Integer> categoryIds = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            categoryIds.add(in.readInt());
+        }
+        // Entries written before category names were journaled end here
+        List<String> categoryNames = new ArrayList<>();
+        if (in.available() > 0) {
+            int names = in.readInt();
+            for (int i = 0; i < names; i++) {
+                categoryNames.add(in.readUTF());
+            }
+        }
+        return new JournalEntry(kind, key, createdAt, movieId, expectedVersion, title,
+                imdbRating, personalRating, fileLink, categoryIds, categoryNames, lastViewDay);
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    void setPosition(long offset, long endOffset) {
+        this.offset = offset;
+        this.endOffset = endOffset;
+    }
+
+    // ---------- GETTERS ----------
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public UUID getKey() {
+        return key;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public int getMovieId() {
+        return movieId;
+    }
+
+    public int getExpectedVersion() {
+        return expectedVersion;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public double getImdbRating() {
+        return imdbRating;
+    }
+
+    public double getPersonalRating() {
+        return personalRating;
+    }
+
+    public String getFileLink() {
+        return fileLink;
+    }
+
+    public List<Integer> getCategoryIds() {
+        return categoryIds;
+    }
+
+    /**
+     * Names of categories that did not exist yet when the change was queued.
+     */
+    public List<String> getCategoryNames() {
+        return categoryNames;
+    }
+
+    public long getLastViewDay() {
+        return lastViewDay;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Journal position right after this entry (acknowledging up to here removes it).
+     */
+    public long getEndOffset() {
+        return endOffset;
+    }
+
+    @Override
+    public String toString() {
+        return kind + " movie " + movieId + (title != null ? " '" + title + "'" : "") + " [" + key + "]";
+    }
+}
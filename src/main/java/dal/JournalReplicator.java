@@ -0,0 +1,469 @@
+package dal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Replays the WriteJournal against the database once it is reachable again.
+ *
+ * Entries are applied in journal order, in batches of BATCH_SIZE per transaction. Each entry's
+ * idempotency key is stored in AppliedMutations in the same transaction as the change, and keys
+ * that are already there are skipped - so a batch that was committed but not acknowledged
+ * (crash, lost connection during the commit) is not applied twice.
+ *
+ * Conflicts are reported, not retried forever:
+ * - an edit based on an older version than the server's is dropped (the server wins);
+ * - a change for a movie that no longer exists is dropped;
+ * - an entry the server rejects (e.g. a constraint) is dropped.
+ * The rest of the journal continues in every case.
+ *
+ * With several libraries (ShardSet) every entry is applied to the library owning its movie;
+ * a batch never spans two libraries. Movies created offline always belong to the primary library.
+ */
+public class JournalReplicator {
+
+    /**
+     * Receives the outcome of replayed entries (called after the batch is committed).
+     */
+    public interface Listener {
+
+        /**
+         * A movie created offline now exists on the server with its real ID.
+         */
+        void created(int temporaryId, int movieId);
+
+        /**
+         * An entry was dropped; the server keeps its own state.
+         */
+        void conflict(JournalEntry entry, String reason);
+    }
+
+    private static final int BATCH_SIZE = 100;
+
+    private final WriteJournal journal;
+    private final List<SqlExecutor> executors = new ArrayList<>();
+    private final Listener listener;
+
+    // Temporary ID -> real ID of movies created offline, kept until the journal is empty
+    private final Path idFile;
+    private final Map<Integer, Integer> realIds = new HashMap<>();
+
+    public JournalReplicator(WriteJournal journal, ShardSet shards, Path idFile, Listener listener) {
+        this.journal = journal;
+        this.idFile = idFile;
+        this.listener = listener;
+        for (Shard shard : shards.all()) {
+            executors.add(new SqlExecutor(shard.getConnectionProvider()));
+        }
+        loadIds();
+    }
+
+    /**
+     * Applies all pending entries.
+     *
+     * @return the number of entries processed (applied or reported as conflicts)
+     * @throws DatabaseUnavailableException if the database went away; the remaining entries stay queued
+     */
+    public synchronized int drain() {
+        List<JournalEntry> pending = journal.readPending();
+        int done = 0;
+
+        int start = 0;
+        while (start < pending.size()) {
+            // Consecutive entries of the same library, at most BATCH_SIZE
+            int shard = Shard.indexOf(pending.get(start).getMovieId());
+            int end = start + 1;
+            while (end < pending.size() && end - start < BATCH_SIZE
+                    && Shard.indexOf(pending.get(end).getMovieId()) == shard) {
+                end++;
+            }
+            List<JournalEntry> batch = pending.subList(start, end);
+            start = end;
+            SqlExecutor db = executors.get(Math.min(shard, executors.size() - 1));
+
+            Outcome outcome = new Outcome();
+            try {
+                db.write("replicate offline changes", conn -> {
+                    outcome.clear();
+                    for (JournalEntry entry : batch) {
+                        apply(conn, entry, outcome);
+                    }
+                    return null;
+                });
+            } catch (DatabaseUnavailableException e) {
+                throw e;
+            } catch (IllegalStateException e) {
+                // One entry was rejected: apply them one by one to find it and keep the others
+                outcome.clear();
+                for (JournalEntry entry : batch) {
+                    applyAlone(db, entry, outcome);
+                }
+            }
+
+            finish(outcome, batch.get(batch.size() - 1));
+            done += batch.size();
+        }
+        return done;
+    }
+
+    /**
+     * Returns the lowest temporary ID still known, so new temporary IDs never collide with one.
+     */
+    public synchronized int lowestTemporaryId() {
+        int lowest = 0;
+        for (int id : realIds.keySet()) {
+            lowest = Math.min(lowest, id);
+        }
+        for (JournalEntry entry : journal.readPending()) {
+            lowest = Math.min(lowest, entry.getMovieId());
+        }
+        return lowest;
+    }
+
+    // ---------- Applying ----------
+
+    /**
+     * Results of one batch, published only after its transaction is committed.
+     */
+    private static final class Outcome {
+        final Map<Integer, Integer> created = new HashMap<>();
+        final List<Conflict> conflicts = new ArrayList<>();
+
+        void clear() {
+            created.clear();
+            conflicts.clear();
+        }
+
+        void conflict(JournalEntry entry, String reason) {
+            conflicts.add(new Conflict(entry, reason));
+        }
+    }
+
+    private static final class Conflict {
+        final JournalEntry entry;
+        final String reason;
+
+        Conflict(JournalEntry entry, String reason) {
+            this.entry = entry;
+            this.reason = reason;
+        }
+    }
+
+    private void applyAlone(SqlExecutor db, JournalEntry entry, Outcome outcome) {
+        Outcome single = new Outcome();
+        try {
+            db.write("replicate offline change", conn -> {
+                single.clear();
+                apply(conn, entry, single);
+                return null;
+            });
+            outcome.created.putAll(single.created);
+            outcome.conflicts.addAll(single.conflicts);
+        } catch (DatabaseUnavailableException e) {
+            throw e;
+        } catch (IllegalStateException e) {
+            outcome.conflict(entry, "rejected by the server: " + e.getMessage());
+        }
+    }
+
+    private void apply(Connection conn, JournalEntry entry, Outcome outcome) throws SQLException {
+        Integer alreadyApplied = findAppliedMovieId(conn, entry);
+        if (alreadyApplied != null) {
+            if (entry.getKind() == JournalEntry.Kind.CREATE_MOVIE) {
+                outcome.created.put(entry.getMovieId(), alreadyApplied);
+            }
+            return;
+        }
+
+        Integer movieId = null;
+        switch (entry.getKind()) {
+            case CREATE_MOVIE -> {
+                movieId = insertMovie(conn, entry);
+                outcome.created.put(entry.getMovieId(), movieId);
+            }
+            case UPDATE_MOVIE -> {
+                int id = resolve(entry.getMovieId(), outcome);
+                if (id < 0) {
+                    outcome.conflict(entry, "the movie was never stored on the server");
+                } else if (!updateMovie(conn, entry, id)) {
+                    outcome.conflict(entry, "the movie was changed or deleted on the server");
+                }
+            }
+            case LAST_VIEW -> {
+                int id = resolve(entry.getMovieId(), outcome);
+                if (id < 0 || !updateLastView(conn, entry, id)) {
+                    outcome.conflict(entry, "the movie no longer exists on the server");
+                }
+            }
+        }
+
+        // Stored in the same transaction as the change itself
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO AppliedMutations (MutationKey, MovieID) VALUES (?, ?)")) {
+            ps.setString(1, entry.getKey().toString());
+            if (movieId != null) {
+                ps.setInt(2, movieId);
+            } else {
+                ps.setNull(2, Types.INTEGER);
+            }
+            ps.executeUpdate();
+        }
+    }
+
+    private static Integer findAppliedMovieId(Connection conn, JournalEntry entry) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT MovieID FROM AppliedMutations WHERE MutationKey = ?")) {
+            ps.setString(1, entry.getKey().toString());
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                int movieId = rs.getInt(1);
+                return rs.wasNull() ? Integer.valueOf(0) : Integer.valueOf(movieId);
+            }
+        }
+    }
+
+    private int insertMovie(Connection conn, JournalEntry entry) throws SQLException {
+        String sql = """
+                INSERT INTO Movies (Name, [Site Rating], [Personal Rating], [File Link], [Last View])
+                VALUES (?, ?, ?, ?, ?)
+                """;
+
+        int movieId;
+        try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            ps.setString(1, entry.getTitle());
+            ps.setDouble(2, entry.getImdbRating());
+            ps.setDouble(3, entry.getPersonalRating());
+            ps.setString(4, entry.getFileLink());
+            setLastView(ps, 5, entry.getLastViewDay());
+            ps.executeUpdate();
+
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                if (!keys.next()) {
+                    throw new SQLException("Movie created but no generated ID was returned.");
+                }
+                movieId = keys.getInt(1);
+            }
+        }
+
+        insertCategories(conn, movieId, categoryIdsOf(conn, entry));
+        return movieId;
+    }
+
+    private boolean updateMovie(Connection conn, JournalEntry entry, int movieId) throws SQLException {
+        String sql = """
+                UPDATE Movies
+                SET Name = ?,
+                    [Site Rating] = ?,
+                    [Personal Rating] = ?,
+                    [File Link] = ?,
+                    [Version] = [Version] + 1
+                WHERE ID = ? AND [Version] = ?
+                """;
+
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, entry.getTitle());
+            ps.setDouble(2, entry.getImdbRating());
+            ps.setDouble(3, entry.getPersonalRating());
+            ps.setString(4, entry.getFileLink());
+            ps.setInt(5, Shard.toLocal(movieId));
+            ps.setInt(6, entry.getExpectedVersion());
+            if (ps.executeUpdate() == 0) {
+                return false;
+            }
+        }
+
+        try (PreparedStatement ps = conn.prepareStatement("DELETE FROM CategMovie WHERE MovieID = ?")) {
+            ps.setInt(1, Shard.toLocal(movieId));
+            ps.executeUpdate();
+        }
+        insertCategories(conn, movieId, categoryIdsOf(conn, entry));
+        return true;
+    }
+
+    private static boolean updateLastView(Connection conn, JournalEntry entry, int movieId) throws SQLException {
+        // A view replayed late must not overwrite a newer view made on another client meanwhile
+        String sqlLastView = """
+                UPDATE Movies
+                SET [Last View] = CASE WHEN [Last View] IS NULL OR [Last View] < ? THEN ? ELSE [Last View] END
+                WHERE ID = ?
+                """;
+        try (PreparedStatement ps = conn.prepareStatement(sqlLastView)) {
+            setLastView(ps, 1, entry.getLastViewDay());
+            setLastView(ps, 2, entry.getLastViewDay());
+            ps.setInt(3, Shard.toLocal(movieId));
+            if (ps.executeUpdate() == 0) {
+                return false;
+            }
+        }
+
+        // The view goes into the history with the time it happened, not the time it was replayed
+        String sql = """
+                INSERT INTO ViewEvents (MovieID, ViewedAt, WatchedSeconds)
+                SELECT ID, ?, COALESCE([Duration], 0) FROM Movies WHERE ID = ?
+                """;
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, entry.getCreatedAt());
+            ps.setInt(2, Shard.toLocal(movieId));
+            ps.executeUpdate();
+        }
+        return true;
+    }
+
+    /**
+     * Returns the entry's category IDs plus the IDs of the categories it names, creating those
+     * that do not exist yet (another client may have created one meanwhile: then it is reused).
+     */
+    private static List<Integer> categoryIdsOf(Connection conn, JournalEntry entry) throws SQLException {
+        if (entry.getCategoryNames().isEmpty()) {
+            return entry.getCategoryIds();
+        }
+        int shard = Shard.indexOf(entry.getMovieId());
+        List<Integer> ids = new ArrayList<>(entry.getCategoryIds());
+        for (String name : entry.getCategoryNames()) {
+            ids.add(Shard.toGlobal(shard, findOrCreateCategory(conn, name)));
+        }
+        return ids;
+    }
+
+    private static int findOrCreateCategory(Connection conn, String name) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT ID FROM Categories WHERE UPPER(Name) = UPPER(?)")) {
+            ps.setString(1, name);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getInt(1);
+                }
+            }
+        }
+
+        int categoryId;
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO Categories (Name) VALUES (?)", Statement.RETURN_GENERATED_KEYS)) {
+            ps.setString(1, name);
+            ps.executeUpdate();
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                if (!keys.next()) {
+                    throw new SQLException("Category created but no generated ID was returned.");
+                }
+                categoryId = keys.getInt(1);
+            }
+        }
+
+        // Other clients (and this one's CategoryCache) reload the list
+        try (PreparedStatement ps = conn.prepareStatement(
+                "UPDATE CategoryVersion SET Version = Version + 1 WHERE ID = 1")) {
+            ps.executeUpdate();
+        }
+        return categoryId;
+    }
+
+    /**
+     * Links the movie to the categories that still exist (one may have been deleted meanwhile).
+     */
+    private static void insertCategories(Connection conn, int movieId, List<Integer> categoryIds) throws SQLException {
+        if (categoryIds.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO CategMovie (MovieID, CategID) SELECT ?, ID FROM Categories WHERE ID = ?";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int categoryId : categoryIds) {
+                ps.setInt(1, Shard.toLocal(movieId));
+                ps.setInt(2, Shard.toLocal(categoryId));
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private static void setLastView(PreparedStatement ps, int index, long epochDay) throws SQLException {
+        if (epochDay == be.Movie.NEVER_VIEWED) {
+            ps.setNull(index, Types.DATE);
+        } else {
+            ps.setDate(index, Date.valueOf(LocalDate.ofEpochDay(epochDay)));
+        }
+    }
+
+    /**
+     * Returns the real ID for a movie ID from the journal, or -1 for a temporary ID that has none.
+     */
+    private int resolve(int movieId, Outcome outcome) {
+        if (movieId >= 0) {
+            return movieId;
+        }
+        Integer real = outcome.created.get(movieId);
+        if (real == null) {
+            real = realIds.get(movieId);
+        }
+        return real != null ? real : -1;
+    }
+
+    // ---------- After commit ----------
+
+    private void finish(Outcome outcome, JournalEntry last) {
+        realIds.putAll(outcome.created);
+
+        // IDs are saved before acknowledging, so a crash in between only replays already applied entries
+        if (!outcome.created.isEmpty()) {
+            saveIds();
+        }
+        journal.acknowledge(last.getEndOffset());
+
+        if (journal.isEmpty() && !realIds.isEmpty()) {
+            realIds.clear();
+            saveIds();
+        }
+
+        for (Map.Entry<Integer, Integer> e : outcome.created.entrySet()) {
+            listener.created(e.getKey(), e.getValue());
+        }
+        for (Conflict conflict : outcome.conflicts) {
+            listener.conflict(conflict.entry, conflict.reason);
+        }
+    }
+
+    private void loadIds() {
+        if (!Files.exists(idFile)) {
+            return;
+        }
+        Properties props = new Properties();
+        try (InputStream in = Files.newInputStream(idFile)) {
+            props.load(in);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        for (String key : props.stringPropertyNames()) {
+            realIds.put(Integer.parseInt(key), Integer.parseInt(props.getProperty(key)));
+        }
+    }
+
+    private void saveIds() {
+        Properties props = new Properties();
+        realIds.forEach((temp, real) -> props.setProperty(temp.toString(), real.toString()));
+
+        Path tmp = idFile.resolveSibling(idFile.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            props.store(out, "Temporary -> real IDs of movies created offline");
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        try {
+            Files.move(tmp, idFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
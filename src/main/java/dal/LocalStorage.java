@@ -0,0 +1,27 @@
+package dal;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Location of the local files the application keeps besides the database (caches etc.).
+ * Defaults to ~/.mymovies and can be moved with -Dmymovies.home=...
+ */
+public final class LocalStorage {
+
+    private LocalStorage() {
+    }
+
+    /**
+     * Returns the application data folder, creating it when needed.
+     */
+    public static Path getAppDataDir() throws IOException {
+        String override = System.getProperty("mymovies.home");
+        Path dir = (override != null && !override.isBlank())
+                ? Paths.get(override)
+                : Paths.get(System.getProperty("user.home"), ".mymovies");
+        return Files.createDirectories(dir);
+    }
+}
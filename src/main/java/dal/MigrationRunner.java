@@ -0,0 +1,258 @@
+package dal;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Applies versioned SQL migrations at startup.
+ *
+ * Migrations are SQL files in resources/db/migration/{sqlserver|sqlite}/, listed in order in
+ * that folder's index.txt and named V{version}__{description}.sql. Every applied migration is
+ * recorded in the SchemaVersion table with a SHA-256 checksum of its script:
+ * - versions that are already recorded are skipped
+ * - a recorded version whose script changed afterwards stops the startup (the schema would
+ *   silently differ between installs otherwise)
+ *
+ * Each migration runs in its own transaction together with its SchemaVersion row,
+ * so a failed migration leaves no half-applied state behind.
+ */
+public class MigrationRunner {
+
+    private static final String BASE_PATH = "/db/migration/";
+    private static final Pattern FILE_NAME = Pattern.compile("V(\\d+)__(.+)\\.sql");
+    private static final Pattern BATCH_SEPARATOR = Pattern.compile("(?im)^\\s*GO\\s*$");
+
+    private final ConnectionProvider cp;
+
+    public MigrationRunner() {
+        this(new ConnectionProvider());
+    }
+
+    public MigrationRunner(ConnectionProvider cp) {
+        this.cp = cp;
+    }
+
+    /**
+     * Applies all pending migrations.
+     *
+     * @return the number of migrations applied by this call
+     * @throws IllegalStateException when a migration fails or an applied script was modified
+     */
+    public int migrate() {
+        List<Migration> migrations = loadMigrations();
+        int applied = 0;
+
+        try (Connection conn = cp.getConnection()) {
+
+            createVersionTable(conn);
+
+            for (Migration migration : migrations) {
+                if (applyIfPending(conn, migration)) {
+                    applied++;
+                    System.out.println("Applied migration V" + migration.version + " (" + migration.description + ")");
+                }
+            }
+
+        } catch (SQLException e) {
+            throw new IllegalStateException("Database migration failed: " + e.getMessage(), e);
+        }
+
+        return applied;
+    }
+
+    /**
+     * Applies one migration unless it is already recorded. The version check runs inside the
+     * transaction (with the version table locked on SQL Server), so two clients starting at
+     * the same time never apply the same migration twice.
+     */
+    private boolean applyIfPending(Connection conn, Migration migration) throws SQLException {
+        conn.setAutoCommit(false);
+
+        try {
+            lockVersionTable(conn);
+
+            String recorded = getRecordedChecksum(conn, migration.version);
+            if (recorded != null) {
+                conn.commit();
+                if (!recorded.equalsIgnoreCase(migration.checksum)) {
+                    throw new IllegalStateException("Migration V" + migration.version
+                            + " was modified after it was applied (checksum mismatch).");
+                }
+                return false;
+            }
+
+            try (Statement st = conn.createStatement()) {
+                for (String batch : migration.batches) {
+                    st.execute(batch);
+                }
+            }
+
+            String sql = "INSERT INTO SchemaVersion (Version, Description, Checksum) VALUES (?, ?, ?)";
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setInt(1, migration.version);
+                ps.setString(2, migration.description);
+                ps.setString(3, migration.checksum);
+                ps.executeUpdate();
+            }
+
+            conn.commit();
+            return true;
+
+        } catch (SQLException | RuntimeException ex) {
+            conn.rollback();
+            if (ex instanceof SQLException) {
+                throw new SQLException("Migration V" + migration.version + " failed: " + ex.getMessage(), ex);
+            }
+            throw ex;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    private void createVersionTable(Connection conn) throws SQLException {
+        String sql = (cp.getBackend() == ConnectionProvider.Backend.SQLITE)
+                ? """
+                  CREATE TABLE IF NOT EXISTS SchemaVersion (
+                      Version     INTEGER PRIMARY KEY,
+                      Description TEXT NOT NULL,
+                      Checksum    TEXT NOT NULL,
+                      AppliedOn   TEXT NOT NULL DEFAULT CURRENT_TIMESTAMP
+                  )
+                  """
+                : """
+                  IF OBJECT_ID('SchemaVersion') IS NULL
+                      CREATE TABLE SchemaVersion (
+                          Version     INT PRIMARY KEY,
+                          Description NVARCHAR(200) NOT NULL,
+                          Checksum    CHAR(64) NOT NULL,
+                          AppliedOn   DATETIME2 NOT NULL DEFAULT SYSUTCDATETIME()
+                      )
+                  """;
+
+        try (Statement st = conn.createStatement()) {
+            st.execute(sql);
+        }
+    }
+
+    private void lockVersionTable(Connection conn) throws SQLException {
+        // SQLite serializes writers on its own (busy timeout); SQL Server needs an explicit lock
+        if (cp.getBackend() == ConnectionProvider.Backend.SQLSERVER) {
+            try (Statement st = conn.createStatement()) {
+                st.execute("SELECT COUNT(*) FROM SchemaVersion WITH (TABLOCKX, HOLDLOCK)");
+            }
+        }
+    }
+
+    private String getRecordedChecksum(Connection conn, int version) throws SQLException {
+        String sql = "SELECT Checksum FROM SchemaVersion WHERE Version = ?";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, version);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getString(1).trim() : null;
+            }
+        }
+    }
+
+    // ---------- Loading scripts ----------
+
+    private List<Migration> loadMigrations() {
+        String folder = BASE_PATH + cp.getBackend().name().toLowerCase() + "/";
+        List<Migration> migrations = new ArrayList<>();
+        int lastVersion = 0;
+
+        for (String line : readResource(folder + "index.txt").split("\n")) {
+            String name = line.trim();
+            if (name.isEmpty() || name.startsWith("#")) {
+                continue;
+            }
+
+            Matcher m = FILE_NAME.matcher(name);
+            if (!m.matches()) {
+                throw new IllegalStateException("Invalid migration name: " + name);
+            }
+            int version = Integer.parseInt(m.group(1));
+            if (version <= lastVersion) {
+                throw new IllegalStateException("Migrations must be listed in increasing version order: " + name);
+            }
+            lastVersion = version;
+
+            String script = readResource(folder + name);
+            migrations.add(new Migration(version, m.group(2).replace('_', ' '), checksum(script), splitBatches(script)));
+        }
+
+        return migrations;
+    }
+
+    private static List<String> splitBatches(String script) {
+        List<String> batches = new ArrayList<>();
+        for (String batch : BATCH_SEPARATOR.split(script)) {
+            if (!stripComments(batch).isBlank()) {
+                batches.add(batch);
+            }
+        }
+        return batches;
+    }
+
+    private static String stripComments(String sql) {
+        return sql.replaceAll("(?m)--.*$", "");
+    }
+
+    /**
+     * Reads a text resource with normalized line endings, so a checkout with CRLF
+     * line endings produces the same checksum as one with LF.
+     */
+    private String readResource(String path) {
+        try (InputStream is = getClass().getResourceAsStream(path)) {
+            if (is == null) {
+                throw new IllegalStateException("Migration resource not found: " + path);
+            }
+            StringBuilder sb = new StringBuilder();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    sb.append(line).append('\n');
+                }
+            }
+            return sb.toString();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read migration resource: " + path, e);
+        }
+    }
+
+    private static String checksum(String script) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(script.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // Every JRE ships SHA-256
+        }
+    }
+
+    /**
+     * One migration script split into executable batches.
+     */
+    private static final class Migration {
+        final int version;
+        final String description;
+        final String checksum;
+        final List<String> batches;
+
+        Migration(int version, String description, String checksum, List<String> batches) {
+            this.version = version;
+            this.description = description;
+            this.checksum = checksum;
+            this.batches = batches;
+        }
+    }
+}
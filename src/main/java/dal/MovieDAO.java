@@ -2,10 +2,19 @@ package dal;
 
 import be.Category;
 import be.Movie;
+import be.MovieQuery;
+import be.VideoInfo;
 
+import java.io.IOException;
 import java.sql.*;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Data Access Object (DAO) responsible for database operations on Movies
@@ -15,59 +24,522 @@ import java.util.List;
  */
 public class MovieDAO {
 
-    private final ConnectionProvider cp = new ConnectionProvider();
+    // SQL Server allows ~2100 parameters per statement; IN lists are sent in chunks of this size
+    private static final int IN_CHUNK_SIZE = 1000;
+
+    /**
+     * The order of findMovies() sorted by title, the same on both backends, so that the results
+     * of several libraries can be merged: character by character, each one upper-cased, by
+     * character code; a shorter title counts as padded with spaces (as SQL Server compares).
+     * Accented letters therefore come after Z. The collations of the databases cannot be used:
+     * SQL Server's default sorts accents next to the plain letter ("Amélie" by "Amelie"), and
+     * SQLite's NOCASE only ignores the case of ASCII letters.
+     */
+    public static final Comparator<String> TITLE_ORDER = MovieDAO::compareTitles;
+
+    // SQLite collation that sorts by TITLE_ORDER (registered by ConnectionProvider)
+    static final String TITLE_COLLATION = "TITLE_ORDER";
+
+    // Avoid SELECT * and always use bracketed column names when they contain spaces.
+    private static final String MOVIE_COLUMNS = """
+            SELECT ID,
+                   Name,
+                   [Site Rating],
+                   [Personal Rating],
+                   [File Link],
+                   [Last View],
+                   [Duration],
+                   [Width],
+                   [Height],
+                   [Codec],
+                   [File Modified],
+                   [Version]
+            FROM Movies
+            """;
+
+    // Positions of the MOVIE_COLUMNS columns: rows are decoded by index, not by label lookups
+    private static final int COL_ID = 1;
+    private static final int COL_NAME = 2;
+    private static final int COL_SITE_RATING = 3;
+    private static final int COL_PERSONAL_RATING = 4;
+    private static final int COL_FILE_LINK = 5;
+    private static final int COL_LAST_VIEW = 6;
+    private static final int COL_DURATION = 7;
+    private static final int COL_WIDTH = 8;
+    private static final int COL_HEIGHT = 9;
+    private static final int COL_CODEC = 10;
+    private static final int COL_FILE_MODIFIED = 11;
+    private static final int COL_VERSION = 12;
+
+    private final ConnectionProvider cp;
+
+    // Timeouts, retries and the circuit breaker for every statement below
+    private final SqlExecutor db;
+
+    // IDs returned by this DAO are global IDs of this shard (see Shard); parameters are translated back
+    private final int shardIndex;
+
+    // Whether Movies has an active SQL Server full-text index (checked once, on first search)
+    private Boolean fullTextAvailable;
+
+    /**
+     * DAO for the database in db.settings (a single library).
+     */
+    public MovieDAO() {
+        this(new ConnectionProvider(), 0);
+    }
+
+    /**
+     * DAO for one library database of a ShardSet.
+     */
+    public MovieDAO(ConnectionProvider cp, int shardIndex) {
+        this.cp = cp;
+        this.db = new SqlExecutor(cp);
+        this.shardIndex = shardIndex;
+    }
 
     // ---------- 1) GET ALL MOVIES ----------
 
     /**
      * Loads all movies and their categories.
-     * The categories are loaded using the SAME connection to avoid opening a new connection per movie.
+     * Everything is read on the SAME connection with three queries (movies, categories, links),
+     * not one category query per movie. Every movie of a category references the same Category
+     * instance, so a million movies do not mean millions of Category objects.
      */
     public List<Movie> getAllMovies() {
-        List<Movie> movies = new ArrayList<>();
+        // Bulk profile: long timeout, large fetch size, rows decoded while they arrive
+        return db.readLarge("load movies", conn -> {
+            List<Movie> movies = new ArrayList<>();
+            Map<Integer, Movie> byId = new HashMap<>();
+
+            try (PreparedStatement ps = conn.prepareStatement(MOVIE_COLUMNS);
+                 ResultSet rs = ps.executeQuery()) {
+
+                while (rs.next()) {
+                    Movie movie = readMovie(rs);
+                    movies.add(movie);
+                    byId.put(movie.getId(), movie);
+                }
+            }
 
-        // Avoid SELECT * and always use bracketed column names when they contain spaces.
+            Map<Integer, Category> categories = new HashMap<>();
+            try (PreparedStatement ps = conn.prepareStatement("SELECT ID, Name FROM Categories");
+                 ResultSet rs = ps.executeQuery()) {
+
+                while (rs.next()) {
+                    int id = global(rs.getInt(1));
+                    categories.put(id, new Category(id, rs.getString(2)));
+                }
+            }
+
+            // Ordered by movie, so each movie's list is built in one run and sized to fit
+            String sqlLinks = "SELECT MovieID, CategID FROM CategMovie ORDER BY MovieID";
+            try (PreparedStatement ps = conn.prepareStatement(sqlLinks);
+                 ResultSet rs = ps.executeQuery()) {
+
+                Movie current = null;
+                ArrayList<Category> run = null;
+                while (rs.next()) {
+                    int movieId = global(rs.getInt(1));
+                    if (current == null || current.getId() != movieId) {
+                        finishCategories(current, run);
+                        current = byId.get(movieId);
+                        run = new ArrayList<>(2);
+                    }
+                    Category category = categories.get(global(rs.getInt(2)));
+                    if (category != null) {
+                        run.add(category);
+                    }
+                }
+                finishCategories(current, run);
+            }
+
+            return movies;
+        });
+    }
+
+    private static void finishCategories(Movie movie, ArrayList<Category> categories) {
+        if (movie != null && !categories.isEmpty()) {
+            categories.trimToSize();
+            movie.setCategories(categories);
+        }
+    }
+
+    /**
+     * Loads the current state of one movie (used to refresh a single row after an edit conflict).
+     *
+     * @return the movie, or null if it no longer exists
+     */
+    public Movie getMovie(int movieId) {
+
+        String sql = MOVIE_COLUMNS + "WHERE ID = ?";
+
+        return db.read("load movie", conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+
+                ps.setInt(1, local(movieId));
+
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next()) {
+                        return null;
+                    }
+                    Movie movie = readMovie(rs);
+                    movie.setCategories(getCategoriesForMovie(conn, movieId));
+                    return movie;
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns a cheap fingerprint of the movie table, for callers that keep the catalog in memory
+     * and want to know if a full reload is needed. It changes when a movie is created, deleted
+     * or saved (every save bumps the row version), when a view is recorded and when video info
+     * is saved (a scan stores the file's modification time with it).
+     */
+    public String getChangeStamp() {
         String sql = """
-                SELECT ID,
-                       Name,
-                       [Site Rating],
-                       [Personal Rating],
-                       [File Link],
-                       [Last View]
+                SELECT COUNT(*),
+                       COALESCE(SUM(CAST([Version] AS BIGINT)), 0),
+                       COALESCE(MAX(ID), 0),
+                       MAX([Last View]),
+                       (SELECT COUNT(*) FROM ViewEvents),
+                       COALESCE(SUM([File Modified]), 0)
                 FROM Movies
                 """;
 
-        try (Connection conn = cp.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
+        return db.read("read the movie change stamp", conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql);
+                 ResultSet rs = ps.executeQuery()) {
 
-            while (rs.next()) {
+                if (!rs.next()) {
+                    return "";
+                }
+                return rs.getLong(1) + ":" + rs.getLong(2) + ":" + rs.getInt(3)
+                        + ":" + rs.getString(4) + ":" + rs.getLong(5) + ":" + rs.getLong(6);
+            }
+        });
+    }
+
+    // ---------- SEARCH ----------
 
-                int id = rs.getInt("ID");
-                String title = rs.getString("Name");
+    /**
+     * Finds movies matching the query. All criteria, the sort order and the paging are evaluated
+     * by the database (parameterised SQL), so only the matching rows are transferred.
+     * Categories are then loaded for the returned movies only.
+     *
+     * Title text uses the SQL Server full-text index on Movies.Name when one exists
+     * (word-prefix matching, e.g. "ali" finds "Alien"); otherwise a LIKE "contains" match.
+     * Category names are always matched with LIKE.
+     */
+    public List<Movie> findMovies(MovieQuery query) {
+        return db.read("search movies", conn -> {
+
+            // Built inside the call: a retry starts from scratch
+            StringBuilder sql = new StringBuilder(MOVIE_COLUMNS).append("WHERE 1 = 1\n");
+            List<Object> params = new ArrayList<>();
+
+            if (query.getText() != null) {
+                String like = "%" + escapeLike(query.getText()) + "%";
+                String titleClause;
+                if (isFullTextAvailable(conn)) {
+                    titleClause = "CONTAINS(Name, ?)";
+                    params.add(toFullTextPrefixQuery(query.getText()));
+                } else {
+                    titleClause = "Name LIKE ? ESCAPE '\\'";
+                    params.add(like);
+                }
+                sql.append("""
+                          AND (%s
+                               OR EXISTS (SELECT 1
+                                          FROM CategMovie cm
+                                          INNER JOIN Categories c ON c.ID = cm.CategID
+                                          WHERE cm.MovieID = Movies.ID AND c.Name LIKE ? ESCAPE '\\'))
+                        """.formatted(titleClause));
+                params.add(like);
+            }
 
-                double imdbRating = rs.getDouble("Site Rating");        // JDBC label matches the column alias/name
-                double personalRating = rs.getDouble("Personal Rating");
-                String fileLink = rs.getString("File Link");
+            if (query.getCategoryId() != null) {
+                if (Shard.indexOf(query.getCategoryId()) != shardIndex) {
+                    // A category of another library: no movie here can have it
+                    return new ArrayList<Movie>();
+                }
+                sql.append("  AND EXISTS (SELECT 1 FROM CategMovie cm WHERE cm.MovieID = Movies.ID AND cm.CategID = ?)\n");
+                params.add(local(query.getCategoryId()));
+            }
 
-                // Read last view as DATE when possible (safer than parsing random datetime strings)
-                // If the DB column is DATETIME, getDate() still works and returns only the date part.
-                Date lastViewDate = rs.getDate("Last View");
-                String lastView = (lastViewDate != null) ? lastViewDate.toString() : "";
+            addRange(sql, params, "[Site Rating]", query.getMinImdbRating(), query.getMaxImdbRating());
+            addRange(sql, params, "[Personal Rating]", query.getMinPersonalRating(), query.getMaxPersonalRating());
+            addRange(sql, params, "[Last View]",
+                    query.getLastViewFrom() == null ? null : Date.valueOf(query.getLastViewFrom()),
+                    query.getLastViewTo() == null ? null : Date.valueOf(query.getLastViewTo()));
+
+            // ID as tie-breaker keeps paging stable
+            sql.append("ORDER BY ").append(sortColumn(query.getSortField(), cp.getBackend()))
+                    .append(query.isDescending() ? " DESC" : " ASC").append(", ID\n");
+
+            if (query.getLimit() > 0) {
+                if (cp.getBackend() == ConnectionProvider.Backend.SQLITE) {
+                    sql.append("LIMIT ? OFFSET ?");
+                    params.add(query.getLimit());
+                    params.add(query.getOffset());
+                } else {
+                    sql.append("OFFSET ? ROWS FETCH NEXT ? ROWS ONLY");
+                    params.add(query.getOffset());
+                    params.add(query.getLimit());
+                }
+            }
+
+            List<Movie> movies = new ArrayList<>();
+            try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+                for (int i = 0; i < params.size(); i++) {
+                    ps.setObject(i + 1, params.get(i));
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        movies.add(readMovie(rs));
+                    }
+                }
+            }
 
-                Movie movie = new Movie(id, title, personalRating, imdbRating, fileLink, lastView);
+            loadCategories(conn, movies);
+            return movies;
+        });
+    }
+
+    private static void addRange(StringBuilder sql, List<Object> params, String column, Object min, Object max) {
+        if (min != null) {
+            sql.append("  AND ").append(column).append(" >= ?\n");
+            params.add(min);
+        }
+        if (max != null) {
+            sql.append("  AND ").append(column).append(" <= ?\n");
+            params.add(max);
+        }
+    }
+
+    private static String sortColumn(MovieQuery.SortField field, ConnectionProvider.Backend backend) {
+        return switch (field) {
+            case ID -> "ID";
+            // TITLE_ORDER on both backends: UPPER() per character, then compared by code (BIN2)
+            case TITLE -> backend == ConnectionProvider.Backend.SQLITE
+                    ? "Name COLLATE " + TITLE_COLLATION
+                    : "UPPER(Name) COLLATE Latin1_General_BIN2";
+            case IMDB_RATING -> "[Site Rating]";
+            case PERSONAL_RATING -> "[Personal Rating]";
+            case LAST_VIEW -> "[Last View]";
+        };
+    }
+
+    private static int compareTitles(String a, String b) {
+        int length = Math.max(a.length(), b.length());
+        for (int i = 0; i < length; i++) {
+            char x = (i < a.length()) ? Character.toUpperCase(a.charAt(i)) : ' ';
+            char y = (i < b.length()) ? Character.toUpperCase(b.charAt(i)) : ' ';
+            if (x != y) {
+                return x - y;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Escapes LIKE wildcards so user text is matched literally (ESCAPE '\').
+     */
+    private static String escapeLike(String text) {
+        StringBuilder sb = new StringBuilder(text.length() + 8);
+        for (char c : text.toCharArray()) {
+            if (c == '%' || c == '_' || c == '[' || c == '\\') {
+                sb.append('\\');
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Turns user text into a full-text condition where every word must match as a prefix:
+     * 'dark knight' -> '"dark*" AND "knight*"'.
+     */
+    private static String toFullTextPrefixQuery(String text) {
+        StringBuilder sb = new StringBuilder();
+        for (String word : text.replace("\"", " ").trim().split("\\s+")) {
+            if (sb.length() > 0) {
+                sb.append(" AND ");
+            }
+            sb.append('"').append(word).append("*\"");
+        }
+        return sb.toString();
+    }
+
+    private boolean isFullTextAvailable(Connection conn) throws SQLException {
+        if (fullTextAvailable == null) {
+            boolean available = false;
+            if (cp.getBackend() == ConnectionProvider.Backend.SQLSERVER) {
+                String sql = "SELECT OBJECTPROPERTY(OBJECT_ID('Movies'), 'TableHasActiveFulltextIndex')";
+                try (PreparedStatement ps = conn.prepareStatement(sql);
+                     ResultSet rs = ps.executeQuery()) {
+                    available = rs.next() && rs.getInt(1) == 1;
+                }
+            }
+            fullTextAvailable = available;
+        }
+        return fullTextAvailable;
+    }
+
+    /**
+     * Loads the categories of the given movies with chunked IN queries (instead of one query per movie).
+     */
+    private void loadCategories(Connection conn, List<Movie> movies) throws SQLException {
+        if (movies.isEmpty()) {
+            return;
+        }
+
+        Map<Integer, Movie> byId = new HashMap<>();
+        for (Movie movie : movies) {
+            byId.put(movie.getId(), movie);
+        }
+
+        // One Category instance per category for all returned movies
+        Map<Integer, Category> categories = new HashMap<>();
+
+        for (List<Integer> chunk : chunks(new ArrayList<>(byId.keySet()))) {
+            String sql = """
+                    SELECT cm.MovieID, c.ID, c.Name
+                    FROM CategMovie cm
+                    INNER JOIN Categories c ON c.ID = cm.CategID
+                    WHERE cm.MovieID IN
+                    """ + placeholders(chunk.size());
+
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    ps.setInt(i + 1, local(chunk.get(i)));
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        int categoryId = global(rs.getInt(2));
+                        Category category = categories.get(categoryId);
+                        if (category == null) {
+                            category = new Category(categoryId, rs.getString(3));
+                            categories.put(categoryId, category);
+                        }
+                        byId.get(global(rs.getInt(1))).getCategories().add(category);
+                    }
+                }
+            }
+        }
+    }
+
+    // ---------- STREAMING ----------
+
+    /**
+     * Receives the movies of streamMovies(), one at a time.
+     */
+    @FunctionalInterface
+    public interface MovieSink {
+        void accept(Movie movie) throws IOException;
+    }
+
+    /**
+     * Streams every movie with its categories to the sink, in ID order, using ONE joined query
+     * and a forward-only, read-only cursor. Only the current movie is held in memory, so this
+     * works for any catalog size (used by the exporter).
+     *
+     * @return the number of movies streamed
+     * @throws IOException if the sink fails (the query is then abandoned)
+     */
+    public long streamMovies(MovieSink sink) throws IOException {
+
+        String sql = """
+                SELECT m.ID,
+                       m.Name,
+                       m.[Site Rating],
+                       m.[Personal Rating],
+                       m.[File Link],
+                       m.[Last View],
+                       m.[Duration],
+                       m.[Width],
+                       m.[Height],
+                       m.[Codec],
+                       m.[File Modified],
+                       m.[Version],
+                       c.ID AS CategID,
+                       c.Name AS CategName
+                FROM Movies m
+                LEFT JOIN CategMovie cm ON cm.MovieID = m.ID
+                LEFT JOIN Categories c ON c.ID = cm.CategID
+                ORDER BY m.ID, c.ID
+                """;
+
+        long count = 0;
+
+        // Not retried: the sink has already written part of the output
+        try (Connection conn = db.openConnection(SqlExecutor.Kind.BULK);
+             PreparedStatement ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            try (ResultSet rs = ps.executeQuery()) {
+
+                // One row per (movie, category): consecutive rows with the same ID form one movie
+                Movie current = null;
+                while (rs.next()) {
+                    int id = global(rs.getInt(COL_ID));
+                    if (current == null || current.getId() != id) {
+                        if (current != null) {
+                            sink.accept(current);
+                            count++;
+                        }
+                        current = readMovie(rs);
+                    }
 
-                // Load categories for this movie using the same connection
-                movie.setCategories(getCategoriesForMovie(conn, id));
+                    int categoryId = rs.getInt(COL_VERSION + 1);
+                    if (!rs.wasNull()) {
+                        current.getCategories().add(new Category(global(categoryId), rs.getString(COL_VERSION + 2)));
+                    }
+                }
 
-                movies.add(movie);
+                if (current != null) {
+                    sink.accept(current);
+                    count++;
+                }
             }
 
         } catch (SQLException e) {
             e.printStackTrace();
+            throw new IllegalStateException("Could not read the catalog: " + e.getMessage(), e);
+        }
+
+        return count;
+    }
+
+    /**
+     * Maps the current row of a MOVIE_COLUMNS query (without categories).
+     * Columns are read by position (COL_*), which saves a name lookup per column and row;
+     * every query using this method must start with the MOVIE_COLUMNS columns in that order.
+     */
+    private Movie readMovie(ResultSet rs) throws SQLException {
+        int id = global(rs.getInt(COL_ID));
+        String title = rs.getString(COL_NAME);
+
+        double imdbRating = rs.getDouble(COL_SITE_RATING);
+        double personalRating = rs.getDouble(COL_PERSONAL_RATING);
+        String fileLink = rs.getString(COL_FILE_LINK);
+
+        // Read last view as DATE (if the column is DATETIME, getDate() returns only the date part)
+        // and keep it as an epoch day; it is never parsed from text again.
+        Date lastViewDate = rs.getDate(COL_LAST_VIEW);
+        long lastViewDay = (lastViewDate != null) ? lastViewDate.toLocalDate().toEpochDay() : Movie.NEVER_VIEWED;
+
+        Movie movie = new Movie(id, title, personalRating, imdbRating, fileLink, lastViewDay);
+        movie.setVersion(rs.getInt(COL_VERSION));
+
+        // Video information is NULL until the file has been scanned once
+        long fileModified = rs.getLong(COL_FILE_MODIFIED);
+        if (!rs.wasNull()) {
+            movie.setVideoInfo(new VideoInfo(rs.getInt(COL_DURATION), rs.getInt(COL_WIDTH),
+                    rs.getInt(COL_HEIGHT), rs.getString(COL_CODEC), fileModified));
         }
 
-        return movies;
+        return movie;
     }
 
     /**
@@ -85,11 +557,11 @@ public class MovieDAO {
                 """;
 
         try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, movieId);
+            ps.setInt(1, local(movieId));
 
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
-                    categories.add(new Category(rs.getInt("ID"), rs.getString("Name")));
+                    categories.add(new Category(global(rs.getInt(1)), rs.getString(2)));
                 }
             }
         }
@@ -102,6 +574,9 @@ public class MovieDAO {
     /**
      * Creates a new movie and its category relationships.
      * A transaction is used so we never end up with a movie without categories (or vice versa).
+     *
+     * @return the given movie, completed to match the stored row: generated ID, categories
+     *         and initial version
      */
     public Movie createMovie(Movie movie, List<Category> categories) {
 
@@ -110,10 +585,7 @@ public class MovieDAO {
                 VALUES (?, ?, ?, ?, ?)
                 """;
 
-        try (Connection conn = cp.getConnection()) {
-
-            conn.setAutoCommit(false);
-
+        int newId = db.write("create movie", conn -> {
             try (PreparedStatement ps = conn.prepareStatement(sqlInsertMovie, Statement.RETURN_GENERATED_KEYS)) {
 
                 ps.setString(1, movie.getTitle());
@@ -123,38 +595,29 @@ public class MovieDAO {
 
                 // Store last view as DATE if present, otherwise NULL.
                 // This avoids parsing issues later and keeps DB values clean.
-                setNullableDate(ps, 5, movie.getLastView());
+                setNullableDate(ps, 5, movie.getLastViewDay());
 
                 ps.executeUpdate();
 
                 try (ResultSet keys = ps.getGeneratedKeys()) {
-                    if (keys.next()) {
-                        int newId = keys.getInt(1);
-                        movie.setId(newId);
-
-                        // Save relationships (MovieID <-> CategoryID)
-                        addCategoriesToMovie(conn, newId, categories);
-
-                        conn.commit();
-                        return movie;
-                    } else {
+                    if (!keys.next()) {
                         // No generated key means the Movies.ID is not identity or key retrieval failed
-                        conn.rollback();
                         throw new SQLException("Movie created but no generated ID was returned.");
                     }
-                }
+                    int id = keys.getInt(1);
 
-            } catch (SQLException ex) {
-                conn.rollback();
-                throw ex;
-            } finally {
-                conn.setAutoCommit(true);
+                    // Save relationships (MovieID <-> CategoryID)
+                    addCategoriesToMovie(conn, id, categories);
+                    return id;
+                }
             }
+        });
 
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return movie;
-        }
+        // Only touch the entity once the transaction is committed
+        movie.setId(global(newId));
+        movie.setVersion(0);
+        movie.setCategories(new ArrayList<>(categories));
+        return movie;
     }
 
     /**
@@ -171,8 +634,8 @@ public class MovieDAO {
 
         try (PreparedStatement ps = conn.prepareStatement(sql)) {
             for (Category cat : categories) {
-                ps.setInt(1, movieId);
-                ps.setInt(2, cat.getId());
+                ps.setInt(1, local(movieId));
+                ps.setInt(2, local(cat.getId()));
                 ps.addBatch();
             }
             ps.executeBatch(); // Batch insert is faster and cleaner
@@ -190,30 +653,43 @@ public class MovieDAO {
         String sqlRel = "DELETE FROM CategMovie WHERE MovieID = ?";
         String sqlMov = "DELETE FROM Movies WHERE ID = ?";
 
-        try (Connection conn = cp.getConnection()) {
-
-            conn.setAutoCommit(false);
-
+        db.write("delete movie", conn -> {
             try (PreparedStatement psRel = conn.prepareStatement(sqlRel);
                  PreparedStatement psMov = conn.prepareStatement(sqlMov)) {
 
-                psRel.setInt(1, movie.getId());
+                psRel.setInt(1, local(movie.getId()));
                 psRel.executeUpdate();
 
-                psMov.setInt(1, movie.getId());
+                psMov.setInt(1, local(movie.getId()));
                 psMov.executeUpdate();
+            }
+            return null;
+        });
+    }
 
-                conn.commit();
+    /**
+     * Deletes many movies and their relationships in ONE transaction.
+     * IDs are sent as chunked IN lists, so 5000 movies cost 10 statements instead of 10000.
+     */
+    public void deleteMovies(List<Integer> movieIds) {
+        if (movieIds.isEmpty()) {
+            return;
+        }
 
-            } catch (SQLException ex) {
-                conn.rollback();
-                throw ex;
-            } finally {
-                conn.setAutoCommit(true);
-            }
+        db.write("delete movies", conn -> {
+            deleteMovies(conn, movieIds);
+            return null;
+        });
+    }
 
-        } catch (SQLException e) {
-            e.printStackTrace();
+    /**
+     * Set-based delete on an open connection (caller controls the transaction).
+     */
+    private void deleteMovies(Connection conn, List<Integer> movieIds) throws SQLException {
+        for (List<Integer> chunk : chunks(movieIds)) {
+            // Relations first, otherwise the movie rows are still referenced
+            executeForIds(conn, "DELETE FROM CategMovie WHERE MovieID IN ", chunk);
+            executeForIds(conn, "DELETE FROM Movies WHERE ID IN ", chunk);
         }
     }
 
@@ -222,8 +698,17 @@ public class MovieDAO {
     /**
      * Updates movie data and replaces its category relations.
      * We delete old relations and insert the new ones (simple and reliable).
+     *
+     * Optimistic locking: the row is only written if its Version still equals the version
+     * the movie was loaded with. Nothing is written otherwise (another client changed
+     * or deleted the movie in the meantime).
+     *
+     * [Last View] is not written here: it is changed by updateLastView() without a version bump,
+     * so the value in an edited movie may be older than the stored one.
+     *
+     * @return true if the movie was saved (its version is then incremented), false on a conflict
      */
-    public void updateMovie(Movie movie, List<Category> categories) {
+    public boolean updateMovie(Movie movie, List<Category> categories) {
 
         String sqlUpdate = """
                 UPDATE Movies
@@ -231,16 +716,13 @@ public class MovieDAO {
                     [Site Rating] = ?,
                     [Personal Rating] = ?,
                     [File Link] = ?,
-                    [Last View] = ?
-                WHERE ID = ?
+                    [Version] = [Version] + 1
+                WHERE ID = ? AND [Version] = ?
                 """;
 
         String sqlDeleteLinks = "DELETE FROM CategMovie WHERE MovieID = ?";
 
-        try (Connection conn = cp.getConnection()) {
-
-            conn.setAutoCommit(false);
-
+        boolean saved = db.write("update movie", conn -> {
             try (PreparedStatement psUpdate = conn.prepareStatement(sqlUpdate);
                  PreparedStatement psDelete = conn.prepareStatement(sqlDeleteLinks)) {
 
@@ -248,79 +730,292 @@ public class MovieDAO {
                 psUpdate.setDouble(2, movie.getImdbRating());
                 psUpdate.setDouble(3, movie.getPersonalRating());
                 psUpdate.setString(4, movie.getFileLink());
+                psUpdate.setInt(5, local(movie.getId()));
+                psUpdate.setInt(6, movie.getVersion());
 
-                // Store as DATE / NULL (no GETDATE string parsing problems later)
-                setNullableDate(psUpdate, 5, movie.getLastView());
-
-                psUpdate.setInt(6, movie.getId());
-                psUpdate.executeUpdate();
+                if (psUpdate.executeUpdate() == 0) {
+                    // Nothing was written, so the (empty) transaction can simply end
+                    return false;
+                }
 
                 // Replace relationships
-                psDelete.setInt(1, movie.getId());
+                psDelete.setInt(1, local(movie.getId()));
                 psDelete.executeUpdate();
 
                 addCategoriesToMovie(conn, movie.getId(), categories);
+                return true;
+            }
+        });
+
+        if (saved) {
+            movie.setVersion(movie.getVersion() + 1);
+        }
+        return saved;
+    }
+
+    /**
+     * Replaces the categories of many movies in ONE transaction
+     * (one chunked DELETE plus one batched INSERT).
+     * The row versions are incremented too, so pending edits elsewhere see the change.
+     */
+    public void setCategoriesForMovies(List<Integer> movieIds, List<Category> categories) {
+        if (movieIds.isEmpty()) {
+            return;
+        }
 
-                conn.commit();
+        String sqlInsert = "INSERT INTO CategMovie (MovieID, CategID) VALUES (?, ?)";
 
-            } catch (SQLException ex) {
-                conn.rollback();
-                throw ex;
-            } finally {
-                conn.setAutoCommit(true);
+        db.write("update categories", conn -> {
+            try (PreparedStatement psInsert = conn.prepareStatement(sqlInsert)) {
+
+                for (List<Integer> chunk : chunks(movieIds)) {
+                    executeForIds(conn, "DELETE FROM CategMovie WHERE MovieID IN ", chunk);
+                    executeForIds(conn, "UPDATE Movies SET [Version] = [Version] + 1 WHERE ID IN ", chunk);
+                }
+
+                for (int movieId : movieIds) {
+                    for (Category cat : categories) {
+                        psInsert.setInt(1, local(movieId));
+                        psInsert.setInt(2, local(cat.getId()));
+                        psInsert.addBatch();
+                    }
+                }
+                psInsert.executeBatch();
             }
+            return null;
+        });
+    }
 
-        } catch (SQLException e) {
-            e.printStackTrace();
+    /**
+     * Sets the same personal rating on many movies with chunked set-based UPDATEs in one transaction.
+     * The row versions are incremented too, so pending edits elsewhere see the change.
+     */
+    public void updatePersonalRatings(List<Integer> movieIds, double rating) {
+        if (movieIds.isEmpty()) {
+            return;
         }
+
+        db.write("update ratings", conn -> {
+            for (List<Integer> chunk : chunks(movieIds)) {
+                String sql = "UPDATE Movies SET [Personal Rating] = ?, [Version] = [Version] + 1 WHERE ID IN "
+                        + placeholders(chunk.size());
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    ps.setDouble(1, rating);
+                    for (int i = 0; i < chunk.size(); i++) {
+                        ps.setInt(i + 2, local(chunk.get(i)));
+                    }
+                    ps.executeUpdate();
+                }
+            }
+            return null;
+        });
     }
 
     // ---------- 5) UPDATE LAST VIEW ----------
 
     /**
-     * Updates the "Last View" column to today's date.
-     * Using CAST(GETDATE() AS DATE) avoids time values and makes comparisons easier.
+     * Updates the "Last View" column to the day of the view and appends the view to the
+     * ViewEvents history, in one transaction.
+     * The date is bound as a DATE parameter (no time part, and no GETDATE(),
+     * so the same statement works on SQL Server and the embedded backend).
+     * A stored date later than the view is kept, so the column never moves backwards.
+     * The event records the movie's runtime as the watched time (we do not know how much was watched).
+     *
+     * @param viewedAt time of the view in epoch milliseconds
      */
-    public void updateLastView(int movieId) {
+    public void updateLastView(int movieId, long viewedAt) {
 
-        String sql = "UPDATE Movies SET [Last View] = CAST(GETDATE() AS DATE) WHERE ID = ?";
+        String sqlLastView = """
+                UPDATE Movies
+                SET [Last View] = CASE WHEN [Last View] IS NULL OR [Last View] < ? THEN ? ELSE [Last View] END
+                WHERE ID = ?
+                """;
+        String sqlEvent = """
+                INSERT INTO ViewEvents (MovieID, ViewedAt, WatchedSeconds)
+                SELECT ID, ?, COALESCE([Duration], 0) FROM Movies WHERE ID = ?
+                """;
 
-        try (Connection conn = cp.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
+        // A failed attempt is rolled back completely, so the retry cannot record the view twice
+        db.write("update last view", conn -> {
+            try (PreparedStatement psLastView = conn.prepareStatement(sqlLastView);
+                 PreparedStatement psEvent = conn.prepareStatement(sqlEvent)) {
+
+                LocalDate day = Instant.ofEpochMilli(viewedAt).atZone(ZoneId.systemDefault()).toLocalDate();
+                psLastView.setDate(1, Date.valueOf(day));
+                psLastView.setDate(2, Date.valueOf(day));
+                psLastView.setInt(3, local(movieId));
+                int updated = psLastView.executeUpdate();
+
+                psEvent.setLong(1, viewedAt);
+                psEvent.setInt(2, local(movieId));
+                psEvent.executeUpdate();
+                return updated;
+            }
+        });
+    }
 
-            ps.setInt(1, movieId);
-            ps.executeUpdate();
+    // ---------- 6) LIBRARY INGESTION ----------
 
-        } catch (SQLException e) {
-            e.printStackTrace();
+    /**
+     * Loads only the file link and ID of every movie.
+     * This is much cheaper than getAllMovies() and is all the folder watcher needs
+     * to decide which files are new, moved or gone.
+     */
+    public Map<String, Integer> getFileLinks() {
+        String sql = "SELECT ID, [File Link] FROM Movies WHERE [File Link] IS NOT NULL";
+
+        return db.readLarge("load file links", conn -> {
+            Map<String, Integer> links = new HashMap<>();
+
+            try (PreparedStatement ps = conn.prepareStatement(sql);
+                 ResultSet rs = ps.executeQuery()) {
+
+                while (rs.next()) {
+                    links.put(rs.getString(2), global(rs.getInt(1)));
+                }
+            }
+
+            return links;
+        });
+    }
+
+    /**
+     * Applies one ingestion burst in a single transaction:
+     * inserts new movies and rewrites file links of moved files.
+     * The inserted movies receive their generated IDs.
+     */
+    public void applyLibraryChanges(List<Movie> added, Map<Integer, String> moved) {
+
+        String sqlInsert = """
+                INSERT INTO Movies (Name, [Site Rating], [Personal Rating], [File Link], [Last View])
+                VALUES (?, ?, ?, ?, ?)
+                """;
+        String sqlMove = "UPDATE Movies SET [File Link] = ?, [Version] = [Version] + 1 WHERE ID = ?";
+
+        db.write("apply library changes", conn -> {
+            try (PreparedStatement psInsert = conn.prepareStatement(sqlInsert, Statement.RETURN_GENERATED_KEYS);
+                 PreparedStatement psMove = conn.prepareStatement(sqlMove)) {
+
+                // Inserts run one by one (same statement, same transaction) because
+                // generated keys are not reliably returned for JDBC batches.
+                // A retried attempt simply overwrites the IDs of the rolled back one.
+                for (Movie movie : added) {
+                    psInsert.setString(1, movie.getTitle());
+                    psInsert.setDouble(2, movie.getImdbRating());
+                    psInsert.setDouble(3, movie.getPersonalRating());
+                    psInsert.setString(4, movie.getFileLink());
+                    setNullableDate(psInsert, 5, movie.getLastViewDay());
+                    psInsert.executeUpdate();
+
+                    try (ResultSet keys = psInsert.getGeneratedKeys()) {
+                        if (!keys.next()) {
+                            throw new SQLException("Movie created but no generated ID was returned.");
+                        }
+                        movie.setId(global(keys.getInt(1)));
+                    }
+                }
+
+                for (Map.Entry<Integer, String> entry : moved.entrySet()) {
+                    psMove.setString(1, entry.getValue());
+                    psMove.setInt(2, local(entry.getKey()));
+                    psMove.addBatch();
+                }
+                psMove.executeBatch();
+            }
+            return null;
+        });
+    }
+
+    // ---------- 7) VIDEO INFO ----------
+
+    /**
+     * Stores the video information of many movies in one transaction (JDBC batch).
+     */
+    public void saveVideoInfo(Map<Integer, VideoInfo> infos) {
+        if (infos.isEmpty()) {
+            return;
         }
+
+        String sql = """
+                UPDATE Movies
+                SET [Duration] = ?,
+                    [Width] = ?,
+                    [Height] = ?,
+                    [Codec] = ?,
+                    [File Modified] = ?
+                WHERE ID = ?
+                """;
+
+        db.write("save video info", conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                for (Map.Entry<Integer, VideoInfo> entry : infos.entrySet()) {
+                    VideoInfo info = entry.getValue();
+                    ps.setInt(1, info.getDurationSeconds());
+                    ps.setInt(2, info.getWidth());
+                    ps.setInt(3, info.getHeight());
+                    ps.setString(4, info.getCodec());
+                    ps.setLong(5, info.getFileModified());
+                    ps.setInt(6, local(entry.getKey()));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            return null;
+        });
     }
 
     // ---------- Helper methods ----------
 
     /**
-     * Sets a DATE parameter from a String in format YYYY-MM-DD.
-     * If the string is null/blank/invalid, it stores NULL instead.
+     * Splits IDs into chunks that fit in one statement.
      */
-    private void setNullableDate(PreparedStatement ps, int index, String dateString) throws SQLException {
-
-        if (dateString == null || dateString.isBlank()) {
-            ps.setNull(index, Types.DATE);
-            return;
+    private static List<List<Integer>> chunks(List<Integer> ids) {
+        List<List<Integer>> chunks = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += IN_CHUNK_SIZE) {
+            chunks.add(ids.subList(i, Math.min(ids.size(), i + IN_CHUNK_SIZE)));
         }
+        return chunks;
+    }
 
-        String value = dateString.trim();
+    /**
+     * Returns "(?, ?, ?)" with the given number of placeholders.
+     */
+    private static String placeholders(int count) {
+        StringBuilder sb = new StringBuilder("(");
+        for (int i = 0; i < count; i++) {
+            sb.append(i == 0 ? "?" : ", ?");
+        }
+        return sb.append(")").toString();
+    }
 
-        // If a datetime string sneaks in (YYYY-MM-DD HH:mm:ss), keep only the date part.
-        if (value.length() >= 10) {
-            value = value.substring(0, 10);
+    /**
+     * Runs "sqlPrefix (?, ?, ...)" with the IDs bound as parameters.
+     */
+    private static void executeForIds(Connection conn, String sqlPrefix, List<Integer> ids) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sqlPrefix + placeholders(ids.size()))) {
+            for (int i = 0; i < ids.size(); i++) {
+                ps.setInt(i + 1, local(ids.get(i)));
+            }
+            ps.executeUpdate();
         }
+    }
+
+    private int global(int localId) {
+        return Shard.toGlobal(shardIndex, localId);
+    }
 
-        try {
-            ps.setDate(index, Date.valueOf(value));
-        } catch (IllegalArgumentException e) {
-            // Invalid format -> store NULL instead of crashing
+    private static int local(int globalId) {
+        return Shard.toLocal(globalId);
+    }
+
+    /**
+     * Sets a DATE parameter from an epoch day, or NULL for Movie.NEVER_VIEWED.
+     */
+    private static void setNullableDate(PreparedStatement ps, int index, long epochDay) throws SQLException {
+        if (epochDay == Movie.NEVER_VIEWED) {
             ps.setNull(index, Types.DATE);
+        } else {
+            ps.setDate(index, Date.valueOf(LocalDate.ofEpochDay(epochDay)));
         }
     }
 }
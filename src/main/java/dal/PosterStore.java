@@ -0,0 +1,95 @@
+package dal;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Content-addressed disk store for decoded poster thumbnails.
+ *
+ * Each blob is stored under the hash of the source image it was made from
+ * (posters/ab/abcdef...), so identical posters are stored once and a changed
+ * poster automatically gets a new entry. Blobs are never modified after writing.
+ *
+ * Hashing the source means reading all of it, so the store also keeps links
+ * (posters/links/ab/...) from a key of the source file's path, size and modification
+ * time to the content key: a known poster is found without reading the image.
+ */
+public class PosterStore {
+
+    private final Path dir;
+
+    /**
+     * Opens the store in the application data folder.
+     */
+    public PosterStore() throws IOException {
+        this(LocalStorage.getAppDataDir().resolve("posters"));
+    }
+
+    public PosterStore(Path dir) throws IOException {
+        this.dir = Files.createDirectories(dir);
+    }
+
+    /**
+     * Returns the stored blob, or null when no blob exists for the key.
+     */
+    public byte[] read(String key) throws IOException {
+        try {
+            return Files.readAllBytes(pathFor(key));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Stores a blob. Written to a temporary file first, so readers never see half a blob.
+     */
+    public void write(String key, byte[] data) throws IOException {
+        writeFile(pathFor(key), key, data);
+    }
+
+    /**
+     * Returns the content key linked to the source key, or null when there is no link.
+     */
+    public String readLink(String sourceKey) throws IOException {
+        try {
+            return Files.readString(linkPathFor(sourceKey), StandardCharsets.US_ASCII);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Links a source key (path, size and modification time of a poster file) to the
+     * content key of its blob.
+     */
+    public void writeLink(String sourceKey, String key) throws IOException {
+        writeFile(linkPathFor(sourceKey), sourceKey, key.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static void writeFile(Path target, String key, byte[] data) throws IOException {
+        Files.createDirectories(target.getParent());
+
+        Path tmp = Files.createTempFile(target.getParent(), key, ".tmp");
+        try {
+            Files.write(tmp, data);
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Spreads the blobs over 256 sub folders so no single folder gets huge.
+     */
+    private Path pathFor(String key) {
+        return dir.resolve(key.substring(0, 2)).resolve(key);
+    }
+
+    private Path linkPathFor(String sourceKey) {
+        return dir.resolve("links").resolve(sourceKey.substring(0, 2)).resolve(sourceKey);
+    }
+}
@@ -0,0 +1,93 @@
+package dal;
+
+/**
+ * One library database ("shard") of a ShardSet, with its own DAOs.
+ *
+ * Movie and category IDs handed out by the DAOs are GLOBAL IDs: the shard index is stored in
+ * the top bits and the database's own ID in the low LOCAL_BITS bits. Shard 0 (the primary
+ * library) therefore keeps its database IDs unchanged, and any global ID tells which shard
+ * owns the row. Temporary IDs of offline movies (negative) always belong to shard 0.
+ */
+public final class Shard {
+
+    // 2^27 = 134 million rows per table and shard; leaves 4 bits (16 shards) below the sign bit
+    public static final int LOCAL_BITS = 27;
+    public static final int MAX_SHARDS = 1 << (31 - LOCAL_BITS);
+    private static final int LOCAL_MASK = (1 << LOCAL_BITS) - 1;
+
+    private final String name;
+    private final int index;
+    private final ConnectionProvider connectionProvider;
+    private final MovieDAO movieDao;
+    private final CategoryDAO categoryDao;
+    private final ViewEventDAO viewEventDao;
+
+    Shard(String name, int index, ConnectionProvider connectionProvider) {
+        this.name = name;
+        this.index = index;
+        this.connectionProvider = connectionProvider;
+        this.movieDao = new MovieDAO(connectionProvider, index);
+        this.categoryDao = new CategoryDAO(connectionProvider, index);
+        this.viewEventDao = new ViewEventDAO(connectionProvider, index);
+    }
+
+    // ---------- ID mapping ----------
+
+    /**
+     * Returns the index of the shard owning the given global ID.
+     */
+    public static int indexOf(int globalId) {
+        return globalId < 0 ? 0 : globalId >>> LOCAL_BITS;
+    }
+
+    /**
+     * Turns a database ID of the given shard into a global ID.
+     */
+    public static int toGlobal(int shardIndex, int localId) {
+        if (shardIndex == 0 || localId < 0) {
+            return localId;
+        }
+        if (localId > LOCAL_MASK) {
+            throw new IllegalStateException("ID " + localId + " is too large for a sharded library.");
+        }
+        return (shardIndex << LOCAL_BITS) | localId;
+    }
+
+    /**
+     * Turns a global ID back into the database ID within its shard.
+     */
+    public static int toLocal(int globalId) {
+        return globalId < 0 ? globalId : globalId & LOCAL_MASK;
+    }
+
+    // ---------- GETTERS ----------
+
+    public String getName() {
+        return name;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public ConnectionProvider getConnectionProvider() {
+        return connectionProvider;
+    }
+
+    public MovieDAO getMovieDao() {
+        return movieDao;
+    }
+
+    public CategoryDAO getCategoryDao() {
+        return categoryDao;
+    }
+
+    public ViewEventDAO getViewEventDao() {
+        return viewEventDao;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
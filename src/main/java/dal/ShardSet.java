@@ -0,0 +1,114 @@
+package dal;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * The library databases configured in db.settings.
+ *
+ * Without a "shards" setting there is one shard ("default") using the plain settings, exactly as before.
+ * With e.g.
+ * <pre>
+ * shards=family,archive,kids
+ * shard.archive.server=10.0.0.5
+ * shard.archive.database=MyMovieArchive
+ * shard.kids.backend=sqlite
+ * shard.kids.file=kids.db
+ * </pre>
+ * every shard starts from the plain settings (server, user, timeouts ...) and overrides what its
+ * "shard.name." keys say. The first shard is the primary one: new movies and categories go there
+ * unless a library is chosen.
+ */
+public class ShardSet {
+
+    private final List<Shard> shards;
+
+    public ShardSet(List<Shard> shards) {
+        if (shards.isEmpty() || shards.size() > Shard.MAX_SHARDS) {
+            throw new IllegalArgumentException("Between 1 and " + Shard.MAX_SHARDS + " shards are supported.");
+        }
+        this.shards = Collections.unmodifiableList(new ArrayList<>(shards));
+    }
+
+    /**
+     * Reads the shards from db.settings.
+     */
+    public static ShardSet load() {
+        Properties settings;
+        try {
+            settings = ConnectionProvider.loadSettings();
+        } catch (IOException e) {
+            // Same behaviour as before: one provider that reports the problem and fails on connect
+            return new ShardSet(List.of(new Shard("default", 0, new ConnectionProvider())));
+        }
+        return fromSettings(settings);
+    }
+
+    public static ShardSet fromSettings(Properties settings) {
+        String names = settings.getProperty("shards", "").trim();
+        if (names.isEmpty()) {
+            return new ShardSet(List.of(new Shard("default", 0, new ConnectionProvider(settings))));
+        }
+
+        List<Shard> shards = new ArrayList<>();
+        for (String raw : names.split(",")) {
+            String name = raw.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+
+            Properties props = new Properties();
+            String prefix = "shard." + name + ".";
+            for (String key : settings.stringPropertyNames()) {
+                if (!key.startsWith("shard.")) {
+                    props.setProperty(key, settings.getProperty(key));
+                }
+            }
+            for (String key : settings.stringPropertyNames()) {
+                if (key.startsWith(prefix)) {
+                    props.setProperty(key.substring(prefix.length()), settings.getProperty(key));
+                }
+            }
+            shards.add(new Shard(name, shards.size(), new ConnectionProvider(props)));
+        }
+        return new ShardSet(shards);
+    }
+
+    public List<Shard> all() {
+        return shards;
+    }
+
+    public Shard primary() {
+        return shards.get(0);
+    }
+
+    public int size() {
+        return shards.size();
+    }
+
+    /**
+     * Returns the shard that owns the movie or category with the given global ID.
+     */
+    public Shard owner(int globalId) {
+        int index = Shard.indexOf(globalId);
+        if (index >= shards.size()) {
+            throw new IllegalArgumentException("ID " + globalId + " does not belong to a configured library.");
+        }
+        return shards.get(index);
+    }
+
+    /**
+     * Returns the shard with the given name, or null.
+     */
+    public Shard byName(String name) {
+        for (Shard shard : shards) {
+            if (shard.getName().equalsIgnoreCase(name)) {
+                return shard;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,447 @@
+package dal;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs DAO work with bounded latency on an unreliable network.
+ *
+ * Every call:
+ * - asks the circuit breaker first (fails fast with DatabaseUnavailableException while the server is down);
+ * - opens a connection whose statements all get the query timeout (and fetch size) of the operation kind (Kind);
+ * - retries transient failures (deadlock victim, throttling, dropped connection, timeout) with
+ *   "full jitter" exponential backoff, within a total time budget per call;
+ * - throws IllegalStateException("Could not <operation>: ...") for everything else, like the DAOs did.
+ *
+ * Writes run in a transaction managed here. A failed attempt is rolled back before it is retried,
+ * so a retry never applies a change twice. A failure of the COMMIT itself is never retried,
+ * because the change may have been stored.
+ */
+public class SqlExecutor {
+
+    /**
+     * Kinds of operations; each has its own query timeout (configurable in db.settings).
+     */
+    public enum Kind {
+        READ("readTimeoutSeconds", 10),
+        WRITE("writeTimeoutSeconds", 20),
+        BULK("bulkTimeoutSeconds", 300);
+
+        private final String setting;
+        private final int defaultSeconds;
+
+        Kind(String setting, int defaultSeconds) {
+            this.setting = setting;
+            this.defaultSeconds = defaultSeconds;
+        }
+    }
+
+    /**
+     * DAO code that runs on an open connection.
+     */
+    @FunctionalInterface
+    public interface SqlWork<T> {
+        T run(Connection conn) throws SQLException;
+    }
+
+    // SQL Server errors worth retrying: the server is busy, failing over or unreachable
+    private static final Set<Integer> SQLSERVER_OUTAGE_CODES = Set.of(
+            -2,     // timeout expired
+            20,     // instance does not support encryption / lost during login
+            64,     // connection dropped by the server
+            121,    // semaphore timeout (network)
+            233,    // no process on the other end of the pipe
+            4060,   // cannot open database (e.g. during failover)
+            4221,   // login to read-secondary failed during redo
+            10053, 10054, 10060, // connection aborted / reset / timed out
+            10928, 10929,        // resource limits reached
+            40143, 40197, 40501, 40540, 40613, // Azure SQL: service busy, reconfiguring, unavailable
+            49918, 49919, 49920  // not enough resources / too many operations in progress
+    );
+
+    // Contention: the server is fine, just retry (does not count against the circuit breaker)
+    private static final Set<Integer> SQLSERVER_CONTENTION_CODES = Set.of(
+            1205,   // chosen as deadlock victim
+            1222    // lock request timeout
+    );
+
+    // SQLite: SQLITE_BUSY, SQLITE_LOCKED
+    private static final Set<Integer> SQLITE_CONTENTION_CODES = Set.of(5, 6);
+
+    // Backoff: random(0, min(cap, base * 2^attempt))
+    private static final long BACKOFF_BASE_MILLIS = 100;
+    private static final long BACKOFF_CAP_MILLIS = 2_000;
+
+    // One breaker per database, shared by every DAO in the process
+    private static final Map<String, CircuitBreaker> BREAKERS = new ConcurrentHashMap<>();
+
+    // Process-wide counters, see statistics()
+    private static final LongAdder CALLS = new LongAdder();
+    private static final LongAdder ATTEMPTS = new LongAdder();
+    private static final LongAdder RETRIES = new LongAdder();
+    private static final LongAdder CONTENTION_FAILURES = new LongAdder();
+    private static final LongAdder OUTAGE_FAILURES = new LongAdder();
+    private static final LongAdder CONNECTIONS_OPENED = new LongAdder();
+    private static final AtomicInteger OPEN_CONNECTIONS = new AtomicInteger();
+    private static final AtomicInteger PEAK_CONNECTIONS = new AtomicInteger();
+
+    private enum Failure {
+        OUTAGE,
+        CONTENTION,
+        PERMANENT
+    }
+
+    private final ConnectionProvider cp;
+    private final CircuitBreaker breaker;
+    private final int maxAttempts;
+
+    public SqlExecutor(ConnectionProvider cp) {
+        this.cp = cp;
+        this.maxAttempts = Math.max(1, cp.getIntSetting("retryAttempts", 3));
+        this.breaker = BREAKERS.computeIfAbsent(cp.getTarget(), t -> new CircuitBreaker(
+                cp.getIntSetting("circuitFailureThreshold", 5),
+                cp.getIntSetting("circuitOpenSeconds", 30) * 1_000L));
+    }
+
+    /**
+     * Runs read-only work in auto-commit mode.
+     *
+     * @param operation what is being done, used in error messages ("load movies")
+     */
+    public <T> T read(String operation, SqlWork<T> work) {
+        return execute(operation, Kind.READ, false, work);
+    }
+
+    /**
+     * Runs a large read-only query (whole catalog, history) with the bulk timeout and fetch size.
+     */
+    public <T> T readLarge(String operation, SqlWork<T> work) {
+        return execute(operation, Kind.BULK, false, work);
+    }
+
+    /**
+     * Runs work in one transaction (commit on success, rollback on failure).
+     */
+    public <T> T write(String operation, SqlWork<T> work) {
+        return execute(operation, Kind.WRITE, true, work);
+    }
+
+    /**
+     * Runs work with the given kind of timeout, optionally in a transaction.
+     */
+    public <T> T execute(String operation, Kind kind, boolean transactional, SqlWork<T> work) {
+        int timeoutSeconds = timeoutSeconds(kind);
+
+        // Never keep retrying longer than about two full timeouts
+        long deadline = System.currentTimeMillis() + 2_000L * timeoutSeconds;
+        CALLS.increment();
+
+        for (int attempt = 1; ; attempt++) {
+            if (!breaker.allowRequest()) {
+                throw unavailable(operation, null);
+            }
+            ATTEMPTS.increment();
+
+            boolean committing = false;
+            try (Connection conn = connect(kind, timeoutSeconds)) {
+                if (!transactional) {
+                    T result = work.run(conn);
+                    breaker.recordSuccess();
+                    return result;
+                }
+
+                conn.setAutoCommit(false);
+                try {
+                    T result = work.run(conn);
+                    committing = true;
+                    conn.commit();
+                    breaker.recordSuccess();
+                    return result;
+                } catch (SQLException | RuntimeException ex) {
+                    if (!committing) {
+                        rollbackQuietly(conn);
+                    }
+                    throw ex;
+                }
+
+            } catch (SQLException e) {
+                Failure failure = classify(e);
+                if (failure == Failure.CONTENTION) {
+                    CONTENTION_FAILURES.increment();
+                }
+                if (failure == Failure.OUTAGE) {
+                    OUTAGE_FAILURES.increment();
+                    breaker.recordFailure();
+                } else {
+                    // The server answered, so it is reachable
+                    breaker.recordSuccess();
+                }
+
+                long backoff = backoffMillis(attempt);
+                boolean retry = failure != Failure.PERMANENT
+                        && !committing
+                        && attempt < maxAttempts
+                        && !isCircuitOpen()
+                        && System.currentTimeMillis() + backoff < deadline;
+
+                if (!retry) {
+                    e.printStackTrace();
+                    if (committing) {
+                        // Not "unavailable": the change may be stored, so it must not be queued again
+                        throw new IllegalStateException("Could not " + operation
+                                + " (the outcome is unknown): " + e.getMessage(), e);
+                    }
+                    if (failure == Failure.OUTAGE) {
+                        throw unavailable(operation, e);
+                    }
+                    throw new IllegalStateException("Could not " + operation + ": " + e.getMessage(), e);
+                }
+
+                RETRIES.increment();
+                System.err.println("Retrying '" + operation + "' (attempt " + (attempt + 1) + " of " + maxAttempts
+                        + ") after: " + e.getMessage());
+                sleep(backoff);
+
+            } catch (RuntimeException | Error e) {
+                // Not a database failure (e.g. a bug in the work), so it says nothing about the server.
+                // Still give back a HALF_OPEN probe, or no call would ever be let through again.
+                breaker.releaseProbe();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Opens a connection for work that manages its own statements and errors (e.g. streaming exports).
+     * Checks the circuit breaker and applies the timeout, but does not retry.
+     */
+    public Connection openConnection(Kind kind) throws SQLException {
+        if (!breaker.allowRequest()) {
+            throw new SQLTransientConnectionException("Database unavailable (circuit open)");
+        }
+        try {
+            Connection conn = connect(kind, timeoutSeconds(kind));
+            breaker.recordSuccess();
+            return conn;
+        } catch (SQLException e) {
+            if (classify(e) == Failure.OUTAGE) {
+                breaker.recordFailure();
+            } else {
+                breaker.recordSuccess();
+            }
+            throw e;
+        } catch (RuntimeException | Error e) {
+            breaker.releaseProbe();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns true while calls are being rejected without contacting the database.
+     */
+    public boolean isCircuitOpen() {
+        return breaker.getState() == CircuitBreaker.State.OPEN;
+    }
+
+    public ConnectionProvider getConnectionProvider() {
+        return cp;
+    }
+
+    /**
+     * Returns the counters of all executors in this process since it started.
+     */
+    public static Statistics statistics() {
+        return new Statistics(CALLS.sum(), ATTEMPTS.sum(), RETRIES.sum(), CONTENTION_FAILURES.sum(),
+                OUTAGE_FAILURES.sum(), CONNECTIONS_OPENED.sum(), OPEN_CONNECTIONS.get(), PEAK_CONNECTIONS.get());
+    }
+
+    /**
+     * Snapshot of the process-wide counters (calls, retries, failures, connection use).
+     */
+    public static final class Statistics {
+
+        private final long calls;
+        private final long attempts;
+        private final long retries;
+        private final long contentionFailures;
+        private final long outageFailures;
+        private final long connectionsOpened;
+        private final int openConnections;
+        private final int peakConnections;
+
+        private Statistics(long calls, long attempts, long retries, long contentionFailures, long outageFailures,
+                           long connectionsOpened, int openConnections, int peakConnections) {
+            this.calls = calls;
+            this.attempts = attempts;
+            this.retries = retries;
+            this.contentionFailures = contentionFailures;
+            this.outageFailures = outageFailures;
+            this.connectionsOpened = connectionsOpened;
+            this.openConnections = openConnections;
+            this.peakConnections = peakConnections;
+        }
+
+        /**
+         * Returns the counts since the earlier snapshot (open and peak connections are kept as they are).
+         */
+        public Statistics since(Statistics earlier) {
+            return new Statistics(calls - earlier.calls, attempts - earlier.attempts, retries - earlier.retries,
+                    contentionFailures - earlier.contentionFailures, outageFailures - earlier.outageFailures,
+                    connectionsOpened - earlier.connectionsOpened, openConnections, peakConnections);
+        }
+
+        public long getCalls() {
+            return calls;
+        }
+
+        /**
+         * Tries including retries (every attempt runs on its own connection).
+         */
+        public long getAttempts() {
+            return attempts;
+        }
+
+        public long getRetries() {
+            return retries;
+        }
+
+        /**
+         * Failed attempts caused by locking: deadlock victim, lock timeout, SQLite busy/locked.
+         */
+        public long getContentionFailures() {
+            return contentionFailures;
+        }
+
+        /**
+         * Failed attempts caused by an unreachable or overloaded server.
+         */
+        public long getOutageFailures() {
+            return outageFailures;
+        }
+
+        public long getConnectionsOpened() {
+            return connectionsOpened;
+        }
+
+        public int getOpenConnections() {
+            return openConnections;
+        }
+
+        public int getPeakConnections() {
+            return peakConnections;
+        }
+    }
+
+    // ---------- Internals ----------
+
+    private int timeoutSeconds(Kind kind) {
+        return cp.getIntSetting(kind.setting, kind.defaultSeconds);
+    }
+
+    /**
+     * Opens a connection whose statements all get the query timeout, so no DAO statement can hang,
+     * and the fetch size of the read profile (see ConnectionProvider.ReadProfile).
+     */
+    private Connection connect(Kind kind, int timeoutSeconds) throws SQLException {
+        Connection conn = cp.getConnection();
+        int fetchSize = (kind == Kind.WRITE) ? 0 : cp.getFetchSize(kind == Kind.BULK);
+
+        CONNECTIONS_OPENED.increment();
+        PEAK_CONNECTIONS.accumulateAndGet(OPEN_CONNECTIONS.incrementAndGet(), Math::max);
+        AtomicBoolean closed = new AtomicBoolean();
+
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (method.getName().equals("close") && closed.compareAndSet(false, true)) {
+                OPEN_CONNECTIONS.decrementAndGet();
+            }
+            try {
+                Object result = method.invoke(conn, args);
+                if (result instanceof Statement statement) {
+                    statement.setQueryTimeout(timeoutSeconds);
+                    if (fetchSize > 0) {
+                        statement.setFetchSize(fetchSize);
+                    }
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, handler);
+    }
+
+    private Failure classify(SQLException first) {
+        for (Throwable t = first; t != null; t = t.getCause()) {
+            if (!(t instanceof SQLException e)) {
+                continue;
+            }
+            for (SQLException ex = e; ex != null; ex = ex.getNextException()) {
+                Failure failure = classifyOne(ex);
+                if (failure != Failure.PERMANENT) {
+                    return failure;
+                }
+            }
+        }
+        return Failure.PERMANENT;
+    }
+
+    private Failure classifyOne(SQLException e) {
+        int code = e.getErrorCode();
+        String state = e.getSQLState();
+
+        if (cp.getBackend() == ConnectionProvider.Backend.SQLITE) {
+            // The file is local: only lock contention is transient
+            return SQLITE_CONTENTION_CODES.contains(code) ? Failure.CONTENTION : Failure.PERMANENT;
+        }
+        if (SQLSERVER_CONTENTION_CODES.contains(code)) {
+            return Failure.CONTENTION;
+        }
+        if (SQLSERVER_OUTAGE_CODES.contains(code)
+                || e instanceof SQLTimeoutException
+                || e instanceof SQLTransientConnectionException
+                || e instanceof SQLRecoverableException
+                || (state != null && (state.startsWith("08") || state.equals("HYT00")))) {
+            return Failure.OUTAGE;
+        }
+        return Failure.PERMANENT;
+    }
+
+    private DatabaseUnavailableException unavailable(String operation, SQLException cause) {
+        String reason = (cause != null)
+                ? cause.getMessage()
+                : "circuit open, next attempt in " + (breaker.getRetryInMillis() / 1_000 + 1) + " s";
+        return new DatabaseUnavailableException("Could not " + operation + ": database unavailable (" + reason + ")", cause);
+    }
+
+    private static long backoffMillis(int attempt) {
+        long ceiling = Math.min(BACKOFF_CAP_MILLIS, BACKOFF_BASE_MILLIS << Math.min(attempt, 10));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private static void rollbackQuietly(Connection conn) {
+        try {
+            conn.rollback();
+        } catch (SQLException e) {
+            // The connection is probably gone; the server rolls back the open transaction itself
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to retry", e);
+        }
+    }
+}
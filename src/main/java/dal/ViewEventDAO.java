@@ -0,0 +1,71 @@
+package dal;
+
+import java.sql.*;
+
+/**
+ * Reads the ViewEvents watch history (rows are added by MovieDAO.updateLastView()).
+ *
+ * The history only grows, so it is never loaded as a list: streamEvents() hands the rows to
+ * a sink one at a time over a forward-only cursor, and the caller folds them into its counters.
+ */
+public class ViewEventDAO {
+
+    // Timeouts, retries and the circuit breaker for every statement below
+    private final SqlExecutor db;
+
+    // Movie IDs are global IDs of this shard (see Shard)
+    private final int shardIndex;
+
+    /**
+     * DAO for the database in db.settings (a single library).
+     */
+    public ViewEventDAO() {
+        this(new ConnectionProvider(), 0);
+    }
+
+    /**
+     * DAO for one library database of a ShardSet.
+     */
+    public ViewEventDAO(ConnectionProvider cp, int shardIndex) {
+        this.db = new SqlExecutor(cp);
+        this.shardIndex = shardIndex;
+    }
+
+    /**
+     * Receives the events of streamEvents(), oldest first.
+     */
+    @FunctionalInterface
+    public interface EventSink {
+        void accept(int movieId, long viewedAt, int watchedSeconds);
+    }
+
+    /**
+     * Streams the whole watch history to the sink, oldest first.
+     *
+     * @return the number of events streamed
+     */
+    public long streamEvents(EventSink sink) {
+
+        String sql = "SELECT MovieID, ViewedAt, WatchedSeconds FROM ViewEvents ORDER BY ID";
+
+        long count = 0;
+
+        // Not retried: the sink has already seen part of the history
+        try (Connection conn = db.openConnection(SqlExecutor.Kind.BULK);
+             PreparedStatement ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    sink.accept(Shard.toGlobal(shardIndex, rs.getInt(1)), rs.getLong(2), rs.getInt(3));
+                    count++;
+                }
+            }
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new IllegalStateException("Could not read the watch history: " + e.getMessage(), e);
+        }
+
+        return count;
+    }
+}
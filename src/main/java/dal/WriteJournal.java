@@ -0,0 +1,186 @@
+package dal;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Durable, append-only log of changes made while the database was unreachable.
+ *
+ * The log is one memory-mapped file:
+ *
+ *   header (16 bytes): magic, format version, acknowledged offset
+ *   records:           [length][crc32][payload] [length][crc32][payload] ... [0]
+ *
+ * Appending copies the record into the mapping and forces it to disk before returning, so a
+ * change the user saw as "saved" survives a crash. Reading back stops at the first zero length
+ * or bad checksum (a record torn by a crash is simply not there).
+ *
+ * The replicator acknowledges records once they are stored on the server; everything before the
+ * acknowledged offset is done. When all records are acknowledged the file is wiped and reused.
+ * A record can be replayed twice (e.g. crash right after the server commit) - the idempotency
+ * key in every entry makes that harmless.
+ */
+public class WriteJournal implements AutoCloseable {
+
+    private static final int MAGIC = 0x4D4D4A31; // "MMJ1"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int ACK_POSITION = 8;
+    private static final int RECORD_HEADER = 8;
+
+    private static final long INITIAL_SIZE = 1 << 20; // 1 MB, doubled when full
+
+    private final FileChannel channel;
+    private MappedByteBuffer map;
+
+    // Where the next record goes
+    private long writeOffset;
+
+    /**
+     * Opens (or creates) the journal and finds the end of the valid records.
+     */
+    public WriteJournal(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(INITIAL_SIZE, channel.size()));
+
+        if (map.getInt(0) != MAGIC) {
+            map.putInt(0, MAGIC);
+            map.putInt(4, FORMAT_VERSION);
+            map.putLong(ACK_POSITION, HEADER_SIZE);
+            map.putInt(HEADER_SIZE, 0);
+            map.force();
+        }
+
+        writeOffset = getAcknowledgedOffset();
+        for (JournalEntry entry : readPending()) {
+            writeOffset = entry.getEndOffset();
+        }
+    }
+
+    /**
+     * Opens the journal in the application data folder.
+     */
+    public static WriteJournal openDefault() throws IOException {
+        return new WriteJournal(LocalStorage.getAppDataDir().resolve("writes.journal"));
+    }
+
+    /**
+     * Appends an entry and forces it to disk.
+     */
+    public synchronized void append(JournalEntry entry) {
+        byte[] payload = entry.toBytes();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        // Record plus the zero length that marks the end of the log
+        ensureCapacity(writeOffset + RECORD_HEADER + payload.length + 4);
+
+        int start = (int) writeOffset;
+        map.putInt(start + RECORD_HEADER + payload.length, 0);
+        map.put(start + RECORD_HEADER, payload);
+        map.putInt(start + 4, (int) crc.getValue());
+
+        // The length is written last: until then a reader sees the end marker, never half a record
+        map.putInt(start, payload.length);
+        map.force();
+
+        long end = writeOffset + RECORD_HEADER + payload.length;
+        entry.setPosition(writeOffset, end);
+        writeOffset = end;
+    }
+
+    /**
+     * Returns all entries that are not acknowledged yet, oldest first.
+     */
+    public synchronized List<JournalEntry> readPending() {
+        List<JournalEntry> entries = new ArrayList<>();
+        long offset = getAcknowledgedOffset();
+
+        while (offset + RECORD_HEADER <= map.capacity()) {
+            int length = map.getInt((int) offset);
+            if (length <= 0 || offset + RECORD_HEADER + length > map.capacity()) {
+                break;
+            }
+
+            byte[] payload = new byte[length];
+            map.get((int) offset + RECORD_HEADER, payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != map.getInt((int) offset + 4)) {
+                System.err.println("Write journal: damaged record at " + offset + ", ignoring the rest.");
+                break;
+            }
+
+            try {
+                JournalEntry entry = JournalEntry.fromBytes(payload);
+                entry.setPosition(offset, offset + RECORD_HEADER + length);
+                entries.add(entry);
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Write journal: unreadable record at " + offset + ", ignoring the rest.");
+                break;
+            }
+            offset += RECORD_HEADER + length;
+        }
+        return entries;
+    }
+
+    /**
+     * Marks everything before the given offset as stored on the server.
+     * When nothing is left, the log is wiped so the file does not grow forever.
+     */
+    public synchronized void acknowledge(long upToOffset) {
+        if (upToOffset >= writeOffset) {
+            // Clear the old records first: if we crash halfway, the old acknowledged
+            // offset still points at the (now zeroed) end of the log
+            for (int i = HEADER_SIZE; i < writeOffset; i++) {
+                map.put(i, (byte) 0);
+            }
+            map.force();
+            writeOffset = HEADER_SIZE;
+            upToOffset = HEADER_SIZE;
+        }
+        map.putLong(ACK_POSITION, upToOffset);
+        map.force();
+    }
+
+    public synchronized boolean isEmpty() {
+        return getAcknowledgedOffset() >= writeOffset;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        map.force();
+        channel.close();
+    }
+
+    private long getAcknowledgedOffset() {
+        return map.getLong(ACK_POSITION);
+    }
+
+    private void ensureCapacity(long needed) {
+        if (needed <= map.capacity()) {
+            return;
+        }
+        long size = map.capacity();
+        while (size < needed) {
+            size *= 2;
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Write journal is full.");
+        }
+        try {
+            // Mapping beyond the end of the file grows the file
+            map.force();
+            map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new IllegalStateException("Could not grow the write journal: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package gui;
+
+import be.Movie;
+import bll.MovieManager;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.collections.FXCollections;
+import javafx.geometry.Insets;
+import javafx.scene.control.*;
+import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.Region;
+import javafx.scene.layout.VBox;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Dialog listing the cleanup candidates (low rated, not watched for a long time).
+ *
+ * The list comes from the index maintained by MovieManager, so opening it does not scan
+ * the catalog. Results are paged and shown in a (virtualized) TableView, so tens of
+ * thousands of candidates stay responsive. Selected rows can be deleted in one go.
+ */
+public class CleanupReportDialog extends Dialog<Void> {
+
+    private static final int PAGE_SIZE = 500;
+
+    private final MovieManager manager;
+    private final Consumer<List<Movie>> onDeleted;
+
+    private final TextField txtMaxRating = new TextField();
+    private final TextField txtDays = new TextField();
+    private final Label lblSummary = new Label();
+    private final TableView<Movie> table = new TableView<>();
+    private final Pagination pagination = new Pagination(1, 0);
+
+    private List<Movie> candidates = new ArrayList<>();
+
+    /**
+     * @param manager   business layer holding the candidate index
+     * @param onDeleted called (on the FX thread) with the movies that were deleted
+     */
+    public CleanupReportDialog(MovieManager manager, Consumer<List<Movie>> onDeleted) {
+        this.manager = manager;
+        this.onDeleted = onDeleted;
+
+        setTitle("Delete Old Movies");
+        setHeaderText("Movies with a low personal rating that have not been watched for a long time:");
+        setResizable(true);
+
+        setupTable();
+
+        txtMaxRating.setText(String.valueOf(manager.getCleanupMaxRating()));
+        txtMaxRating.setPrefWidth(60);
+        txtDays.setText(String.valueOf(manager.getCleanupUnwatchedDays()));
+        txtDays.setPrefWidth(60);
+
+        Button btnApply = new Button("Apply");
+        btnApply.setOnAction(e -> applyThresholds());
+
+        HBox thresholds = new HBox(8,
+                new Label("Rating below"), txtMaxRating,
+                new Label("Not watched for (days)"), txtDays,
+                btnApply);
+
+        Button btnDelete = new Button("Delete selected");
+        btnDelete.setOnAction(e -> deleteSelected());
+
+        Button btnSelectPage = new Button("Select page");
+        btnSelectPage.setOnAction(e -> table.getSelectionModel().selectAll());
+
+        HBox actions = new HBox(8, lblSummary, new Region(), btnSelectPage, btnDelete);
+        HBox.setHgrow(actions.getChildren().get(1), Priority.ALWAYS);
+
+        // The page factory reuses one TableView and only swaps the page slice
+        pagination.setPageFactory(this::showPage);
+
+        VBox content = new VBox(10, thresholds, pagination, actions);
+        content.setPadding(new Insets(10));
+        content.setPrefSize(700, 500);
+        VBox.setVgrow(pagination, Priority.ALWAYS);
+
+        getDialogPane().setContent(content);
+        getDialogPane().getButtonTypes().add(ButtonType.CLOSE);
+
+        reload();
+    }
+
+    private void setupTable() {
+        TableColumn<Movie, String> colTitle = new TableColumn<>("Title");
+        colTitle.setCellValueFactory(new PropertyValueFactory<>("title"));
+
+        TableColumn<Movie, Double> colPersonal = new TableColumn<>("Personal");
+        colPersonal.setCellValueFactory(new PropertyValueFactory<>("personalRating"));
+
+        TableColumn<Movie, String> colLastView = new TableColumn<>("Last View");
+        colLastView.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getLastViewAsString()));
+
+        table.getColumns().add(colTitle);
+        table.getColumns().add(colPersonal);
+        table.getColumns().add(colLastView);
+        table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
+        table.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+    }
+
+    private TableView<Movie> showPage(int page) {
+        int from = page * PAGE_SIZE;
+        int to = Math.min(candidates.size(), from + PAGE_SIZE);
+        table.setItems(FXCollections.observableArrayList(
+                (from < to) ? candidates.subList(from, to) : new ArrayList<>()));
+        return table;
+    }
+
+    private void reload() {
+        candidates = manager.getCleanupCandidates();
+        int pages = Math.max(1, (candidates.size() + PAGE_SIZE - 1) / PAGE_SIZE);
+        int current = Math.min(pagination.getCurrentPageIndex(), pages - 1);
+
+        pagination.setPageCount(pages);
+        pagination.setCurrentPageIndex(current);
+        showPage(current);
+
+        lblSummary.setText(candidates.size() + " candidate(s)");
+    }
+
+    private void applyThresholds() {
+        try {
+            double maxRating = Double.parseDouble(txtMaxRating.getText().trim().replace(",", "."));
+            int days = Integer.parseInt(txtDays.getText().trim());
+            manager.setCleanupThresholds(maxRating, days);
+            reload();
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException is an IllegalArgumentException too
+            lblSummary.setText("Invalid thresholds");
+        }
+    }
+
+    private void deleteSelected() {
+        List<Movie> selected = new ArrayList<>(table.getSelectionModel().getSelectedItems());
+        if (selected.isEmpty()) {
+            return;
+        }
+
+        Alert confirm = new Alert(Alert.AlertType.CONFIRMATION,
+                "Delete " + selected.size() + " movie(s)?", ButtonType.YES, ButtonType.NO);
+        confirm.showAndWait();
+        if (confirm.getResult() != ButtonType.YES) {
+            return;
+        }
+
+        try {
+            manager.deleteMovies(selected);
+        } catch (Exception e) {
+            // Nothing was deleted: refused while offline writes are queued, or a database error
+            showError("Error", "Could not delete movie(s).\n" + e.getMessage());
+            return;
+        }
+        onDeleted.accept(selected);
+        reload();
+    }
+
+    private void showError(String title, String content) {
+        Alert alert = new Alert(Alert.AlertType.ERROR);
+        alert.setTitle(title);
+        alert.setHeaderText(null);
+        alert.setContentText(content);
+        alert.showAndWait();
+    }
+}
@@ -1,5 +1,6 @@
 package gui;
 
+import bll.MovieManager;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -11,17 +12,30 @@ import java.io.IOException;
 /**
  * JavaFX application entry point.
  * This class loads the main FXML view and shows the primary stage.
+ *
+ * The database connection and the catalog fetch start BEFORE the FXML is loaded
+ * (see StartupOrchestrator), so the window appears immediately and fills in when the data arrives.
  */
 public class MovieApplication extends Application {
 
+    // Kept so background work (e.g. the library watcher) can be stopped on exit
+    private MovieController controller;
+
     @Override
     public void start(Stage stage) throws IOException {
 
+        // Start talking to the database right away; it runs while the UI is being built
+        MovieManager manager = new MovieManager();
+        StartupOrchestrator startup = new StartupOrchestrator(manager);
+        startup.start();
+
         // Load the main UI from FXML (keeps UI layout separate from Java code)
         FXMLLoader loader = new FXMLLoader(getClass().getResource("/MovieManagerView.fxml"));
+        loader.setControllerFactory(type -> new MovieController(manager, startup));
 
         // If the FXML path is wrong, loader.load() will throw an exception
-        Parent root = loader.load();
+        Parent root = startup.time("fxml + css", loader::load);
+        controller = loader.getController();
 
         // Create the scene and attach it to the main window (stage)
         Scene scene = new Scene(root);
@@ -34,6 +48,14 @@ public class MovieApplication extends Application {
         stage.setMinHeight(600);
 
         stage.show();
+        startup.mark("window shown");
+    }
+
+    @Override
+    public void stop() {
+        if (controller != null) {
+            controller.shutdown();
+        }
     }
 
     /**
@@ -2,9 +2,21 @@ package gui;
 
 import be.Category;
 import be.Movie;
+import be.VideoInfo;
+import bll.CatalogExporter;
+import bll.DuplicateFinder;
+import bll.EditConflictException;
+import bll.LibraryChanges;
+import bll.LibrarySettings;
+import bll.LibraryWatcher;
 import bll.MovieManager;
+import bll.TitleIndex;
+import dal.PosterStore;
+import javafx.application.Platform;
+import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
+import javafx.concurrent.Task;
 import javafx.collections.ObservableList;
 import javafx.collections.transformation.FilteredList;
 import javafx.collections.transformation.SortedList;
@@ -20,8 +32,12 @@ import java.net.URI;
 import java.net.URL;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.Set;
 
 /**
  * Main controller for the Movie Manager view.
@@ -35,7 +51,10 @@ public class MovieController implements Initializable {
     @FXML private TableColumn<Movie, Double> colImdb;
     @FXML private TableColumn<Movie, Double> colPersonal;
     @FXML private TableColumn<Movie, String> colCategory;
-    @FXML private TableColumn<Movie, String> colLastView;
+    @FXML private TableColumn<Movie, Long> colLastView;
+    @FXML private TableColumn<Movie, Integer> colRuntime;
+    @FXML private TableColumn<Movie, Integer> colQuality;
+    @FXML private TableColumn<Movie, String> colPoster;
 
     // ---------- Inputs ----------
     @FXML private TextField txtTitle;
@@ -59,23 +78,61 @@ public class MovieController implements Initializable {
     @FXML private Button btnBrowse;
     @FXML private Button btnAddCategory;
     @FXML private Button btnDeleteCategory;
+    @FXML private Button btnDuplicates;
+    @FXML private Button btnExport;
+    @FXML private Button btnWatchNext;
 
     // ---------- Bottom bar ----------
     @FXML private Label lblStatus;
     @FXML private Label lblCount;
 
     // ---------- Logic ----------
-    private final MovieManager manager = new MovieManager();
+    private final MovieManager manager;
+
+    // Background connection + catalog fetch started by MovieApplication (or by initialize())
+    private StartupOrchestrator startup;
     private Movie movieInEditMode = null;
 
     private final ObservableList<Movie> masterData = FXCollections.observableArrayList();
     private FilteredList<Movie> filteredData;
 
+    // Poster thumbnails: 64 MB of decoded pixels in memory, the rest on disk
+    private static final long POSTER_MEMORY_BYTES = 64L * 1024 * 1024;
+    private PosterCache posterCache;
+
+    // Similar titles listed in the confirmation before saving
+    private static final int MAX_SIMILAR_TITLES_SHOWN = 5;
+
+    // Movies with a missing file the user was already asked about (see confirmDeleteMissing)
+    private static final int MAX_MISSING_FILES_SHOWN = 10;
+    private final Set<Integer> missingReported = new HashSet<>();
+
+    // Watches library folders for new/moved/deleted files (null when no folders are configured)
+    private LibraryWatcher libraryWatcher;
+
+    /**
+     * Used when the FXML is loaded without a controller factory; starts its own database work.
+     */
+    public MovieController() {
+        this(new MovieManager(), null);
+    }
+
+    /**
+     * @param manager business layer shared with the startup work
+     * @param startup already started background startup, or null to start one in initialize()
+     */
+    public MovieController(MovieManager manager, StartupOrchestrator startup) {
+        this.manager = manager;
+        this.startup = startup;
+    }
+
     @Override
     public void initialize(URL location, ResourceBundle resources) {
 
-        // Quick startup check so the user immediately knows if DB is unreachable
-        testDbConnection();
+        if (startup == null) {
+            startup = new StartupOrchestrator(manager);
+            startup.start();
+        }
 
         setupTable();
         setupFilterAndSort();
@@ -83,25 +140,65 @@ public class MovieController implements Initializable {
         // A movie can have multiple categories
         lstCategories.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
 
-        loadData();
+        // Several movies can be selected for bulk delete / re-rate / re-categorize
+        tblMovies.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+        setupBulkMenu();
+
         setupListeners();
 
+        // The window is shown right away; the catalog arrives from the background startup
+        tblMovies.setPlaceholder(new Label("Loading catalog..."));
+        lblStatus.setText("Connecting to the database...");
+        startup.whenDatabaseReady(() -> lblStatus.setText("Loading catalog..."));
+        startup.whenLoaded(this::onCatalogLoaded, this::onStartupFailed);
+
+        // Offline changes are replayed in the background; tell the user when they land (or conflict)
+        manager.setReplicationListener(message -> Platform.runLater(() -> {
+            lblStatus.setText(message);
+            tblMovies.refresh();
+        }));
+    }
+
+    /**
+     * Shows the catalog fetched during startup and starts everything that needs it.
+     */
+    private void onCatalogLoaded(List<Movie> movies, List<Category> categories) {
+        masterData.setAll(movies);
+        lstCategories.getItems().setAll(categories);
+        tblMovies.setPlaceholder(new Label("No movies"));
+        lblStatus.setText("Ready");
+        updateBottomBar();
+
+        startup.markInteractive();
+
+        startLibraryWatcher();
+        startVideoInfoScan();
+
         // This warning must run AFTER data is loaded
         checkOldMovies();
+    }
 
-        updateBottomBar();
+    /**
+     * The database could not be reached (or migrated) during startup.
+     */
+    private void onStartupFailed(Throwable error) {
+        error.printStackTrace();
+        tblMovies.setPlaceholder(new Label("Database not available"));
+        lblStatus.setText("Offline");
+        showError("Database Error",
+                "Could not connect to the database.\n" +
+                        "Check your internet/VPN.\n\nError: " + error.getMessage());
     }
 
     /**
-     * Attempts a connection at startup to show a friendly error early.
+     * Stops background work. Called by MovieApplication when the window closes.
      */
-    private void testDbConnection() {
-        try (java.sql.Connection conn = new dal.ConnectionProvider().getConnection()) {
-            // Connection OK
-        } catch (Exception e) {
-            showError("Database Error",
-                    "Could not connect to the database.\n" +
-                            "Check your internet/VPN.\n\nError: " + e.getMessage());
+    public void shutdown() {
+        if (posterCache != null) {
+            posterCache.close();
+        }
+        if (libraryWatcher != null) {
+            libraryWatcher.close();
         }
     }
 
@@ -109,17 +206,107 @@ public class MovieController implements Initializable {
      * Defines how Movie properties are shown inside the table columns.
      */
     private void setupTable() {
+        setupPosterColumn();
+
         colTitle.setCellValueFactory(new PropertyValueFactory<>("title"));
         colImdb.setCellValueFactory(new PropertyValueFactory<>("imdbRating"));
         colPersonal.setCellValueFactory(new PropertyValueFactory<>("personalRating"));
 
-        // LastView is stored as String in the entity (format: YYYY-MM-DD)
-        colLastView.setCellValueFactory(new PropertyValueFactory<>("lastView"));
+        // Last view sorts by the epoch day (never viewed = empty, sorted first) and shows YYYY-MM-DD
+        colLastView.setCellValueFactory(cellData -> {
+            Movie movie = cellData.getValue();
+            return new SimpleObjectProperty<>(movie.hasBeenViewed() ? movie.getLastViewDay() : null);
+        });
+        colLastView.setCellFactory(col -> new TableCell<>() {
+            @Override
+            protected void updateItem(Long item, boolean empty) {
+                super.updateItem(item, empty);
+                setText((empty || item == null) ? null : LocalDate.ofEpochDay(item).toString());
+            }
+        });
 
         // Categories are displayed as a comma-separated string
         colCategory.setCellValueFactory(cellData ->
                 new SimpleStringProperty(cellData.getValue().getCategoriesAsString())
         );
+
+        // Runtime sorts by seconds, quality by vertical resolution; both show a readable label
+        colRuntime.setCellValueFactory(cellData -> {
+            VideoInfo info = cellData.getValue().getVideoInfo();
+            return new SimpleObjectProperty<>((info == null) ? null : info.getDurationSeconds());
+        });
+        colRuntime.setCellFactory(col -> new TableCell<>() {
+            @Override
+            protected void updateItem(Integer item, boolean empty) {
+                super.updateItem(item, empty);
+                Movie movie = (empty || getTableRow() == null) ? null : getTableRow().getItem();
+                setText((movie == null || movie.getVideoInfo() == null) ? null : movie.getVideoInfo().getDurationAsString());
+            }
+        });
+
+        colQuality.setCellValueFactory(cellData -> {
+            VideoInfo info = cellData.getValue().getVideoInfo();
+            return new SimpleObjectProperty<>((info == null) ? null : info.getHeight());
+        });
+        colQuality.setCellFactory(col -> new TableCell<>() {
+            @Override
+            protected void updateItem(Integer item, boolean empty) {
+                super.updateItem(item, empty);
+                Movie movie = (empty || getTableRow() == null) ? null : getTableRow().getItem();
+                setText((movie == null || movie.getVideoInfo() == null) ? null : movie.getVideoInfo().getQualityAsString());
+            }
+        });
+    }
+
+    /**
+     * Poster thumbnails are loaded asynchronously; without a disk store the cache runs memory-only.
+     */
+    private void setupPosterColumn() {
+        PosterStore store = null;
+        try {
+            store = new PosterStore();
+        } catch (Exception e) {
+            System.err.println("Poster disk cache unavailable: " + e.getMessage());
+        }
+        posterCache = new PosterCache(POSTER_MEMORY_BYTES, store);
+
+        colPoster.setCellValueFactory(new PropertyValueFactory<>("fileLink"));
+        colPoster.setCellFactory(col -> new PosterCell(posterCache));
+        colPoster.setSortable(false);
+    }
+
+    /**
+     * Reads runtime/resolution/codec of new or changed files in the background.
+     * Only files whose last-modified time changed since the previous run are parsed.
+     */
+    private void startVideoInfoScan() {
+        List<Movie> snapshot = new ArrayList<>(masterData);
+
+        Task<Map<Integer, VideoInfo>> task = new Task<>() {
+            @Override
+            protected Map<Integer, VideoInfo> call() throws Exception {
+                return manager.scanVideoInfo(snapshot);
+            }
+        };
+
+        task.setOnSucceeded(e -> {
+            Map<Integer, VideoInfo> infos = task.getValue();
+            if (infos.isEmpty()) {
+                return;
+            }
+            for (Movie m : masterData) {
+                VideoInfo info = infos.get(m.getId());
+                if (info != null) {
+                    m.setVideoInfo(info);
+                }
+            }
+            tblMovies.refresh();
+        });
+        task.setOnFailed(e -> task.getException().printStackTrace());
+
+        Thread thread = new Thread(task, "video-info-scan");
+        thread.setDaemon(true);
+        thread.start();
     }
 
     /**
@@ -136,19 +323,97 @@ public class MovieController implements Initializable {
     }
 
     /**
-     * Loads movies and categories from the database.
+     * Starts watching the library folders from library.settings (if any).
+     * New files show up in the table without the user pressing anything.
      */
-    private void loadData() {
+    private void startLibraryWatcher() {
+        LibrarySettings settings = new LibrarySettings();
+        if (settings.getFolders().isEmpty()) {
+            return;
+        }
+
+        libraryWatcher = new LibraryWatcher(manager, settings.getFolders(), settings.getDebounceMillis(),
+                changes -> Platform.runLater(() -> applyLibraryChanges(changes)));
         try {
-            masterData.setAll(manager.getAllMovies());
-            lstCategories.getItems().setAll(manager.getAllCategories());
-            updateBottomBar();
+            libraryWatcher.start();
         } catch (Exception e) {
-            showError("Data Error", "Failed to load data from the database.");
-            e.printStackTrace();
+            libraryWatcher = null;
+            showError("Library Error", "Could not watch the library folders.\n" + e.getMessage());
         }
     }
 
+    /**
+     * Applies one ingestion burst to the table model without reloading the catalog.
+     */
+    private void applyLibraryChanges(LibraryChanges changes) {
+        Map<Integer, String> moved = new HashMap<>(changes.getMoved());
+
+        if (!moved.isEmpty()) {
+            for (Movie m : masterData) {
+                String newLink = moved.get(m.getId());
+                if (newLink != null) {
+                    m.setFileLink(newLink);
+                    m.setVersion(m.getVersion() + 1); // the move bumped the stored row version
+                }
+            }
+        }
+        masterData.addAll(changes.getAdded());
+
+        tblMovies.refresh();
+        lblStatus.setText("Library updated: " + changes);
+        updateBottomBar();
+
+        confirmDeleteMissing(changes.getMissingIds());
+    }
+
+    /**
+     * Asks whether to delete movies whose file disappeared. Nothing is deleted without a "yes":
+     * an unmounted share or an unplugged disk looks the same as deleted files.
+     * Each movie is asked about once per session.
+     */
+    private void confirmDeleteMissing(List<Integer> missingIds) {
+        Set<Integer> ids = new HashSet<>(missingIds);
+        List<Movie> missing = new ArrayList<>();
+        for (Movie m : masterData) {
+            if (ids.contains(m.getId()) && missingReported.add(m.getId())) {
+                missing.add(m);
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        StringBuilder sb = new StringBuilder();
+        int shown = Math.min(missing.size(), MAX_MISSING_FILES_SHOWN);
+        for (int i = 0; i < shown; i++) {
+            sb.append("   • ").append(missing.get(i).getTitle())
+                    .append("  (").append(missing.get(i).getFileLink()).append(")\n");
+        }
+        if (missing.size() > shown) {
+            sb.append("   ... and ").append(missing.size() - shown).append(" more\n");
+        }
+        sb.append("\nIf the files are on a disk or share that is not connected, answer No.")
+                .append("\nDelete these movies from the catalog?");
+
+        Alert alert = new Alert(Alert.AlertType.CONFIRMATION, sb.toString(), ButtonType.YES, ButtonType.NO);
+        alert.setTitle("Missing Files");
+        alert.setHeaderText(missing.size() + " movie file(s) could not be found.");
+        alert.showAndWait();
+
+        if (alert.getResult() != ButtonType.YES) {
+            return;
+        }
+        try {
+            manager.deleteMovies(missing);
+        } catch (Exception e) {
+            showError("Error", "Could not delete movie(s).\n" + e.getMessage());
+            return;
+        }
+        Set<Movie> gone = new HashSet<>(missing);
+        masterData.removeIf(gone::contains);
+        updateBottomBar();
+    }
+
     /**
      * Registers all UI listeners and actions.
      */
@@ -308,11 +573,13 @@ public class MovieController implements Initializable {
             }
 
             // Update last view in database and in UI object
-            manager.updateLastView(movie.getId());
-            movie.setLastView(LocalDate.now().toString());
+            manager.updateLastView(movie);
             tblMovies.refresh();
 
             updateBottomBar();
+            if (manager.getPendingWriteCount() > 0) {
+                lblStatus.setText(savedMessage("Last view updated"));
+            }
 
         } catch (Exception e) {
             showError("Error", "Could not open media:\n" + e.getMessage());
@@ -330,8 +597,15 @@ public class MovieController implements Initializable {
 
         dialog.showAndWait().ifPresent(name -> {
             if (!name.trim().isEmpty()) {
-                manager.createCategory(name.trim());
-                loadData();
+                try {
+                    // The new category comes back with its ID; no need to reload anything
+                    Category created = manager.createCategory(name.trim());
+                    lstCategories.getItems().add(created);
+                    lblStatus.setText("Category created: " + created.getName());
+                } catch (Exception e) {
+                    showError("Error", "Could not create category.\n" + e.getMessage());
+                    e.printStackTrace();
+                }
             }
         });
     }
@@ -354,11 +628,54 @@ public class MovieController implements Initializable {
         alert.showAndWait();
 
         if (alert.getResult() == ButtonType.YES) {
-            manager.deleteCategory(selected);
-            loadData();
+            try {
+                manager.deleteCategory(selected, masterData);
+            } catch (Exception e) {
+                showError("Error", "Could not delete category.\n" + e.getMessage());
+                return;
+            }
+            lstCategories.getItems().remove(selected);
+            tblMovies.refresh();
+            lblStatus.setText("Category deleted");
         }
     }
 
+    /**
+     * Merges the selected category into another one chosen by the user.
+     */
+    @FXML
+    private void handleMergeCategory() {
+        Category source = lstCategories.getSelectionModel().getSelectedItem();
+
+        if (source == null) {
+            showWarning("No Selection", "Please select the category to merge.");
+            return;
+        }
+
+        List<Category> targets = new ArrayList<>(lstCategories.getItems());
+        targets.remove(source);
+        if (targets.isEmpty()) {
+            showWarning("Merge", "There is no other category to merge into.");
+            return;
+        }
+
+        ChoiceDialog<Category> dialog = new ChoiceDialog<>(targets.get(0), targets);
+        dialog.setTitle("Merge Category");
+        dialog.setHeaderText("Merge '" + source.getName() + "' into:");
+        dialog.setContentText("Category:");
+
+        dialog.showAndWait().ifPresent(target -> {
+            try {
+                List<Movie> affected = manager.mergeCategory(source, target, masterData);
+                lstCategories.getItems().remove(source);
+                tblMovies.refresh();
+                lblStatus.setText("Merged into '" + target.getName() + "' (" + affected.size() + " movie(s))");
+            } catch (Exception e) {
+                showError("Error", "Could not merge categories.\n" + e.getMessage());
+            }
+        });
+    }
+
     // ---------- Movie actions ----------
 
     /**
@@ -386,8 +703,7 @@ public class MovieController implements Initializable {
             }
 
             // Hard file extension validation (user can paste paths manually)
-            String lower = filePath.trim().toLowerCase();
-            if (!(lower.endsWith(".mp4") || lower.endsWith(".mpeg4"))) {
+            if (!MovieManager.isSupportedVideoFile(filePath)) {
                 showWarning("Invalid file type", "Only .mp4 or .mpeg4 files are allowed.");
                 return;
             }
@@ -395,25 +711,40 @@ public class MovieController implements Initializable {
             double imdb = Double.parseDouble(imdbStr.replace(",", "."));
             double personal = Double.parseDouble(personalStr.replace(",", "."));
 
-            if (movieInEditMode != null) {
-                // Update existing movie
-                movieInEditMode.setTitle(title.trim());
-                movieInEditMode.setImdbRating(imdb);
-                movieInEditMode.setPersonalRating(personal);
-                movieInEditMode.setFileLink(filePath.trim());
+            // Near-duplicate titles ("Matrix, The" for "The Matrix") need a confirmation
+            int editedId = (movieInEditMode != null) ? movieInEditMode.getId() : 0;
+            if (!confirmSimilarTitles(title.trim(), editedId)) {
+                return;
+            }
 
-                manager.updateMovie(movieInEditMode, selectedCats);
+            if (movieInEditMode != null) {
+                // Update existing movie. The edits go into a copy, so the row keeps showing
+                // what is stored until the save succeeds.
+                Movie edited = new Movie(movieInEditMode);
+                edited.setTitle(title.trim());
+                edited.setImdbRating(imdb);
+                edited.setPersonalRating(personal);
+                edited.setFileLink(filePath.trim());
+
+                manager.updateMovie(edited, selectedCats);
+                replaceMovie(movieInEditMode, edited);
                 movieInEditMode = null;
-                lblStatus.setText("Movie updated");
+                lblStatus.setText(savedMessage("Movie updated"));
             } else {
-                // Create new movie
-                manager.createMovie(title.trim(), imdb, personal, filePath.trim(), selectedCats);
-                lblStatus.setText("Movie created");
+                // Create new movie; only the new row is added to the table (no catalog reload)
+                Movie created = manager.createMovie(title.trim(), imdb, personal, filePath.trim(), selectedCats);
+                masterData.add(created);
+                tblMovies.scrollTo(created);
+                lblStatus.setText(savedMessage("Movie created"));
             }
 
-            loadData();
             clearFields();
 
+        } catch (EditConflictException e) {
+            replaceMovie(movieInEditMode, e.getCurrent());
+            clearFields();
+            showWarning("Edit Conflict", e.getMessage()
+                    + "\n\nYour changes were not saved. The table now shows the current version.");
         } catch (NumberFormatException e) {
             showWarning("Invalid Number", "Ratings must be numbers (e.g., 8.5).");
         } catch (Exception e) {
@@ -422,6 +753,66 @@ public class MovieController implements Initializable {
         }
     }
 
+    /**
+     * Asks whether to save anyway when the library already has movies with a similar title.
+     * Only movies whose title changed are checked, so editing the ratings of a movie never asks.
+     *
+     * @return true if the save should go ahead
+     */
+    private boolean confirmSimilarTitles(String title, int editedId) {
+        if (movieInEditMode != null && title.equals(movieInEditMode.getTitle())) {
+            return true;
+        }
+
+        List<TitleIndex.Match> matches = manager.findSimilarTitles(title, editedId);
+        if (matches.isEmpty()) {
+            return true;
+        }
+
+        StringBuilder sb = new StringBuilder("The library already has:\n");
+        int shown = Math.min(matches.size(), MAX_SIMILAR_TITLES_SHOWN);
+        for (int i = 0; i < shown; i++) {
+            Movie m = matches.get(i).getMovie();
+            sb.append("   • ").append(m.getTitle()).append("  (").append(m.getFileLink()).append(")\n");
+        }
+        if (matches.size() > shown) {
+            sb.append("   ... and ").append(matches.size() - shown).append(" more\n");
+        }
+        sb.append("\nSave '").append(title).append("' anyway?");
+
+        Alert alert = new Alert(Alert.AlertType.CONFIRMATION, sb.toString(), ButtonType.YES, ButtonType.NO);
+        alert.setTitle("Similar Title");
+        alert.setHeaderText("This movie may already be in the library.");
+        alert.showAndWait();
+
+        return alert.getResult() == ButtonType.YES;
+    }
+
+    /**
+     * Status text after a save; mentions it when the change is only queued locally (offline mode).
+     */
+    private String savedMessage(String done) {
+        int pending = manager.getPendingWriteCount();
+        return pending == 0 ? done
+                : done + " offline (" + pending + " change(s) waiting for the database)";
+    }
+
+    /**
+     * Swaps one row of the table for its current database state (removes it if current is null).
+     */
+    private void replaceMovie(Movie stale, Movie current) {
+        int index = masterData.indexOf(stale);
+        if (index < 0) {
+            return;
+        }
+        if (current != null) {
+            masterData.set(index, current);
+        } else {
+            masterData.remove(index);
+        }
+        updateBottomBar();
+    }
+
     /**
      * Loads the selected movie into the input fields so it can be edited.
      */
@@ -445,7 +836,8 @@ public class MovieController implements Initializable {
 
         for (Category listCat : lstCategories.getItems()) {
             for (Category movieCat : selected.getCategories()) {
-                if (listCat.getId() == movieCat.getId()) {
+                // By name as well: with several libraries the same category has one ID per library
+                if (listCat.getId() == movieCat.getId() || listCat.getName().equalsIgnoreCase(movieCat.getName())) {
                     lstCategories.getSelectionModel().select(listCat);
                 }
             }
@@ -455,29 +847,98 @@ public class MovieController implements Initializable {
     }
 
     /**
-     * Deletes the selected movie after confirmation.
+     * Deletes the selected movie(s) after confirmation.
+     * All selected movies are deleted in one transaction and removed from the table directly.
      */
     private void handleDelete() {
-        Movie selected = tblMovies.getSelectionModel().getSelectedItem();
+        List<Movie> selected = new ArrayList<>(tblMovies.getSelectionModel().getSelectedItems());
 
-        if (selected == null) {
+        if (selected.isEmpty()) {
             showWarning("No Selection", "Please select a movie to delete.");
             return;
         }
 
-        Alert alert = new Alert(
-                Alert.AlertType.CONFIRMATION,
-                "Delete movie '" + selected.getTitle() + "'?",
-                ButtonType.YES, ButtonType.NO
-        );
+        String question = (selected.size() == 1)
+                ? "Delete movie '" + selected.get(0).getTitle() + "'?"
+                : "Delete " + selected.size() + " movies?";
+
+        Alert alert = new Alert(Alert.AlertType.CONFIRMATION, question, ButtonType.YES, ButtonType.NO);
 
         alert.showAndWait();
 
         if (alert.getResult() == ButtonType.YES) {
-            manager.deleteMovie(selected);
-            loadData();
+            try {
+                manager.deleteMovies(selected);
+            } catch (Exception e) {
+                showError("Error", "Could not delete movie(s).\n" + e.getMessage());
+                return;
+            }
+            Set<Movie> gone = new HashSet<>(selected);
+            masterData.removeIf(gone::contains);
             clearFields();
-            lblStatus.setText("Movie deleted");
+            lblStatus.setText(selected.size() + " movie(s) deleted");
+        }
+    }
+
+    // ---------- Bulk actions ----------
+
+    /**
+     * Right-click menu on the table for actions on all selected movies.
+     */
+    private void setupBulkMenu() {
+        MenuItem rate = new MenuItem("Set personal rating...");
+        rate.setOnAction(e -> handleBulkRate());
+
+        MenuItem categorize = new MenuItem("Set categories (from the category list)");
+        categorize.setOnAction(e -> handleBulkCategorize());
+
+        MenuItem delete = new MenuItem("Delete selected");
+        delete.setOnAction(e -> handleDelete());
+
+        tblMovies.setContextMenu(new ContextMenu(rate, categorize, new SeparatorMenuItem(), delete));
+    }
+
+    private void handleBulkRate() {
+        List<Movie> selected = new ArrayList<>(tblMovies.getSelectionModel().getSelectedItems());
+        if (selected.isEmpty()) {
+            showWarning("No Selection", "Please select one or more movies.");
+            return;
+        }
+
+        TextInputDialog dialog = new TextInputDialog();
+        dialog.setTitle("Set Rating");
+        dialog.setHeaderText("Personal rating for " + selected.size() + " movie(s)");
+        dialog.setContentText("Rating:");
+
+        dialog.showAndWait().ifPresent(text -> {
+            try {
+                double rating = Double.parseDouble(text.trim().replace(",", "."));
+                manager.setPersonalRating(selected, rating);
+                tblMovies.refresh();
+                lblStatus.setText(selected.size() + " movie(s) re-rated");
+            } catch (NumberFormatException e) {
+                showWarning("Invalid Number", "Ratings must be numbers (e.g., 8.5).");
+            } catch (Exception e) {
+                showError("Error", "Could not update ratings.\n" + e.getMessage());
+            }
+        });
+    }
+
+    private void handleBulkCategorize() {
+        List<Movie> selected = new ArrayList<>(tblMovies.getSelectionModel().getSelectedItems());
+        List<Category> categories = new ArrayList<>(lstCategories.getSelectionModel().getSelectedItems());
+
+        if (selected.isEmpty() || categories.isEmpty()) {
+            showWarning("No Selection", "Select one or more movies and the categories to assign.");
+            return;
+        }
+
+        try {
+            manager.setCategories(selected, categories);
+            tblMovies.refresh();
+            lblStatus.setText(selected.size() + " movie(s) re-categorized");
+        } catch (Exception e) {
+            showError("Error", "Could not update categories.\n" + e.getMessage());
         }
     }
 
@@ -499,38 +960,190 @@ public class MovieController implements Initializable {
         updateBottomBar();
     }
 
-    // ---------- Old movies warning ----------
+    // ---------- Recommendations ----------
 
     /**
-     * Warns the user about movies that are:
-     * - low rated (personal rating < 6)
-     * - last viewed more than 2 years ago
+     * Shows "watch next" suggestions based on personal ratings and categories.
      */
-    private void checkOldMovies() {
+    @FXML
+    private void handleWatchNext() {
+        List<Movie> suggestions = manager.getRecommendations(10);
 
-        List<Movie> warningList = new ArrayList<>();
-        LocalDate twoYearsAgo = LocalDate.now().minusYears(2);
+        if (suggestions.isEmpty()) {
+            showWarning("Watch Next", "Rate a few movies first to get suggestions.");
+            return;
+        }
 
-        for (Movie m : masterData) {
-            if (m.getPersonalRating() >= 6.0) continue;
+        ListView<Movie> list = new ListView<>(FXCollections.observableArrayList(suggestions));
+        list.setCellFactory(lv -> new ListCell<>() {
+            @Override
+            protected void updateItem(Movie movie, boolean empty) {
+                super.updateItem(movie, empty);
+                setText((empty || movie == null) ? null
+                        : movie.getTitle() + "  (" + movie.getCategoriesAsString() + ")");
+            }
+        });
+        list.setPrefHeight(280);
+
+        Alert alert = new Alert(Alert.AlertType.INFORMATION);
+        alert.setTitle("Watch Next");
+        alert.setHeaderText("Suggested for you (double-click to play):");
+        alert.getDialogPane().setContent(list);
+
+        list.setOnMouseClicked(e -> {
+            Movie selected = list.getSelectionModel().getSelectedItem();
+            if (e.getClickCount() == 2 && selected != null) {
+                alert.close();
+                playMovie(selected);
+            }
+        });
+
+        alert.showAndWait();
+    }
 
-            LocalDate lastViewDate = safeParseDate(m.getLastView());
-            if (lastViewDate != null && lastViewDate.isBefore(twoYearsAgo)) {
-                warningList.add(m);
+    // ---------- Duplicates ----------
+
+    /**
+     * Result of the duplicate scan: identical files and near-duplicate titles.
+     */
+    private static final class DuplicateScan {
+        final List<DuplicateFinder.DuplicateGroup> files;
+        final List<List<Movie>> titles;
+
+        DuplicateScan(List<DuplicateFinder.DuplicateGroup> files, List<List<Movie>> titles) {
+            this.files = files;
+            this.titles = titles;
+        }
+    }
+
+    /**
+     * Scans the movie files for duplicate content and the titles for near-duplicates in the
+     * background, and shows the groups found.
+     */
+    @FXML
+    private void handleFindDuplicates() {
+        List<Movie> snapshot = new ArrayList<>(masterData);
+
+        Task<DuplicateScan> task = new Task<>() {
+            @Override
+            protected DuplicateScan call() throws Exception {
+                return new DuplicateScan(manager.findDuplicates(snapshot), manager.findTitleDuplicates());
             }
+        };
+
+        task.setOnSucceeded(e -> {
+            btnDuplicates.setDisable(false);
+            showDuplicateReport(task.getValue());
+        });
+        task.setOnFailed(e -> {
+            btnDuplicates.setDisable(false);
+            lblStatus.setText("Ready");
+            showError("Duplicate Scan", "Could not scan for duplicates.\n" + task.getException().getMessage());
+        });
+
+        btnDuplicates.setDisable(true);
+        lblStatus.setText("Scanning files for duplicates...");
+
+        Thread thread = new Thread(task, "duplicate-scan");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Exports the catalog to a file; the format follows the chosen extension.
+     * The export streams from the database in the background, so it works for any catalog size.
+     */
+    @FXML
+    private void handleExport() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Export Catalog");
+        fileChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("CSV (*.csv)", "*.csv"),
+                new FileChooser.ExtensionFilter("JSON lines (*.ndjson)", "*.ndjson", "*.jsonl"),
+                new FileChooser.ExtensionFilter("Columnar (*.mmcol)", "*.mmcol")
+        );
+        fileChooser.setInitialFileName("movies.csv");
+
+        File file = fileChooser.showSaveDialog(btnExport.getScene().getWindow());
+        if (file == null) {
+            return;
         }
 
-        if (warningList.isEmpty()) return;
+        CatalogExporter.Format format;
+        try {
+            format = CatalogExporter.Format.fromFileName(file.getName());
+        } catch (IllegalArgumentException e) {
+            showWarning("Export", "Please use a .csv, .ndjson or .mmcol file name.");
+            return;
+        }
 
-        Alert alert = new Alert(Alert.AlertType.WARNING);
-        alert.setTitle("Delete Old Movies");
-        alert.setHeaderText("These movies are low rated (<6) and haven't been watched in 2 years:");
+        Task<Long> task = new Task<>() {
+            @Override
+            protected Long call() throws Exception {
+                return manager.exportCatalog(file.toPath(), format,
+                        n -> updateMessage("Exporting... " + n + " movies"));
+            }
+        };
+
+        task.messageProperty().addListener((obs, old, msg) -> lblStatus.setText(msg));
+        task.setOnSucceeded(e -> {
+            btnExport.setDisable(false);
+            lblStatus.setText("Exported " + task.getValue() + " movie(s) to " + file.getName());
+        });
+        task.setOnFailed(e -> {
+            btnExport.setDisable(false);
+            lblStatus.setText("Ready");
+            showError("Export", "Could not export the catalog.\n" + task.getException().getMessage());
+        });
+
+        btnExport.setDisable(true);
+        lblStatus.setText("Exporting...");
+
+        Thread thread = new Thread(task, "catalog-export");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void showDuplicateReport(DuplicateScan scan) {
+        List<DuplicateFinder.DuplicateGroup> groups = scan.files;
+        lblStatus.setText(groups.size() + " duplicate file group(s), "
+                + scan.titles.size() + " similar title group(s) found");
+
+        if (groups.isEmpty() && scan.titles.isEmpty()) {
+            Alert alert = new Alert(Alert.AlertType.INFORMATION, "No duplicate movies found.", ButtonType.OK);
+            alert.setTitle("Duplicates");
+            alert.setHeaderText(null);
+            alert.showAndWait();
+            return;
+        }
 
         StringBuilder sb = new StringBuilder();
-        for (Movie m : warningList) {
-            sb.append("• ").append(m.getTitle())
-                    .append(" (Last viewed: ").append(m.getLastView()).append(")\n");
+        if (!groups.isEmpty()) {
+            sb.append("IDENTICAL FILES\n\n");
         }
+        for (DuplicateFinder.DuplicateGroup group : groups) {
+            sb.append(group.getMovies().size()).append(" copies, ")
+                    .append(group.getFileSize() / (1024 * 1024)).append(" MB each:\n");
+            for (Movie m : group.getMovies()) {
+                sb.append("   • ").append(m.getTitle()).append("  (").append(m.getFileLink()).append(")\n");
+            }
+            sb.append("\n");
+        }
+
+        if (!scan.titles.isEmpty()) {
+            sb.append("SIMILAR TITLES\n\n");
+        }
+        for (List<Movie> group : scan.titles) {
+            sb.append(group.size()).append(" movies:\n");
+            for (Movie m : group) {
+                sb.append("   • ").append(m.getTitle()).append("  (").append(m.getFileLink()).append(")\n");
+            }
+            sb.append("\n");
+        }
+
+        Alert alert = new Alert(Alert.AlertType.INFORMATION);
+        alert.setTitle("Duplicates");
+        alert.setHeaderText("These movies have identical files or probably the same title:");
 
         TextArea area = new TextArea(sb.toString());
         area.setEditable(false);
@@ -542,28 +1155,49 @@ public class MovieController implements Initializable {
         alert.showAndWait();
     }
 
+    // ---------- Old movies warning ----------
+
     /**
-     * Safe date parsing for values like:
-     * - "YYYY-MM-DD"
-     * - "YYYY-MM-DD HH:mm:ss"
+     * Tells the user how many movies are low rated and have not been watched for a long time.
+     * The candidates are maintained by MovieManager while loading, so no scan happens here;
+     * the full (paged) list is only built when the user opens the report.
      */
-    private LocalDate safeParseDate(String raw) {
-        if (raw == null) return null;
+    private void checkOldMovies() {
+        int count = manager.getCleanupCandidateCount();
+        if (count == 0) return;
 
-        String s = raw.trim();
-        if (s.isBlank()) return null;
+        lblStatus.setText(count + " old, low rated movie(s) could be deleted");
 
-        if (s.length() >= 10) {
-            s = s.substring(0, 10);
-        }
+        // Same thresholds as the cleanup report (configurable there)
+        Alert alert = new Alert(
+                Alert.AlertType.WARNING,
+                count + " movie(s) are low rated (<" + manager.getCleanupMaxRating() + ") and haven't been watched in "
+                        + manager.getCleanupUnwatchedDays() + " days.\n"
+                        + "Do you want to review them now?",
+                ButtonType.YES, ButtonType.NO
+        );
+        alert.setTitle("Delete Old Movies");
+        alert.setHeaderText(null);
+        alert.showAndWait();
 
-        try {
-            return LocalDate.parse(s);
-        } catch (Exception e) {
-            return null;
+        if (alert.getResult() == ButtonType.YES) {
+            handleCleanupReport();
         }
     }
 
+    /**
+     * Opens the paged cleanup report with bulk delete.
+     */
+    @FXML
+    private void handleCleanupReport() {
+        new CleanupReportDialog(manager, deleted -> {
+            Set<Movie> gone = new HashSet<>(deleted);
+            masterData.removeIf(gone::contains);
+            lblStatus.setText(deleted.size() + " movie(s) deleted");
+            updateBottomBar();
+        }).showAndWait();
+    }
+
     // ---------- Bottom bar ----------
 
     /**
@@ -0,0 +1,335 @@
+package gui;
+
+import dal.PosterStore;
+import javafx.application.Platform;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelReader;
+import javafx.scene.image.WritableImage;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.function.Consumer;
+
+/**
+ * Two-tier cache for poster thumbnails shown in the movie table.
+ *
+ * Tier 1: in-memory LRU bounded by pixel bytes (not by entry count), so memory stays
+ * bounded no matter how many movies are scrolled past.
+ * Tier 2: PosterStore on disk holding the already decoded and downscaled pixels, so a
+ * poster is decoded from JPEG/PNG only once per content, ever. It is found through the
+ * poster file's path, size and modification time; the image itself is only read (and
+ * hashed for the content key) when that combination is new.
+ *
+ * Posters are loaded off the FX thread by a few worker threads. The newest request is
+ * served first (rows that just became visible) and the oldest are dropped when the user
+ * scrolls faster than posters can be loaded.
+ *
+ * A poster is an image next to the movie file with the same base name
+ * (Movie.mp4 -> Movie.jpg / Movie.png) or a poster.jpg / folder.jpg in the same folder.
+ */
+public class PosterCache implements AutoCloseable {
+
+    public static final int WIDTH = 40;
+    public static final int HEIGHT = 60;
+
+    private static final int WORKERS = 2;
+    private static final int MAX_PENDING = 200;
+    private static final String[] EXTENSIONS = {".jpg", ".jpeg", ".png"};
+    private static final String[] FOLDER_POSTERS = {"poster.jpg", "poster.png", "folder.jpg"};
+
+    // Marker for "this movie has no poster", so the file system is not searched again
+    private static final Image NO_POSTER = new WritableImage(1, 1);
+
+    private final long maxBytes;
+    private final PosterStore store;
+
+    // Access-ordered map = LRU; guarded by "this"
+    private final LinkedHashMap<String, Image> memory = new LinkedHashMap<>(256, 0.75f, true);
+    private long usedBytes;
+
+    private final BlockingDeque<String> queue = new LinkedBlockingDeque<>();
+    private final Map<String, List<Consumer<Image>>> waiting = new HashMap<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running = true;
+
+    /**
+     * @param maxBytes memory budget for decoded thumbnails
+     * @param store    disk tier (may be null to run memory-only)
+     */
+    public PosterCache(long maxBytes, PosterStore store) {
+        this.maxBytes = maxBytes;
+        this.store = store;
+
+        for (int i = 0; i < WORKERS; i++) {
+            Thread t = new Thread(this::workerLoop, "poster-loader-" + i);
+            t.setDaemon(true);
+            t.start();
+            workers.add(t);
+        }
+    }
+
+    /**
+     * Returns the poster when it is in memory, otherwise null. Never blocks.
+     */
+    public synchronized Image getIfCached(String fileLink) {
+        Image image = memory.get(fileLink);
+        return (image == NO_POSTER) ? null : image;
+    }
+
+    /**
+     * Returns true when the movie is known to have no poster.
+     */
+    public synchronized boolean isKnownMissing(String fileLink) {
+        return memory.get(fileLink) == NO_POSTER;
+    }
+
+    /**
+     * Loads the poster in the background. The callback runs on the FX thread
+     * with the image, or with null when the movie has no poster.
+     */
+    public void load(String fileLink, Consumer<Image> callback) {
+        request(fileLink, callback, true);
+    }
+
+    /**
+     * Loads the poster into the cache without a callback (for rows about to become visible).
+     * Prefetches queue behind visible rows and are the first to be dropped.
+     */
+    public void prefetch(String fileLink) {
+        request(fileLink, null, false);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+    }
+
+    // ---------- Request queue ----------
+
+    private void request(String fileLink, Consumer<Image> callback, boolean urgent) {
+        if (fileLink == null || fileLink.isBlank()) {
+            return;
+        }
+
+        synchronized (this) {
+            Image cached = memory.get(fileLink);
+            if (cached != null) {
+                if (callback != null) {
+                    Image result = (cached == NO_POSTER) ? null : cached;
+                    Platform.runLater(() -> callback.accept(result));
+                }
+                return;
+            }
+
+            List<Consumer<Image>> callbacks = waiting.get(fileLink);
+            boolean alreadyQueued = callbacks != null;
+            if (!alreadyQueued) {
+                callbacks = new ArrayList<>();
+                waiting.put(fileLink, callbacks);
+            }
+            if (callback != null) {
+                callbacks.add(callback);
+            }
+
+            if (alreadyQueued) {
+                // Visible now: move to the front of the queue
+                if (urgent && queue.remove(fileLink)) {
+                    queue.offerFirst(fileLink);
+                }
+                return;
+            }
+
+            if (urgent) {
+                queue.offerFirst(fileLink);
+            } else {
+                queue.offerLast(fileLink);
+            }
+
+            // Scrolling faster than we can load: forget the oldest requests
+            while (queue.size() > MAX_PENDING) {
+                String dropped = queue.pollLast();
+                if (dropped != null) {
+                    waiting.remove(dropped);
+                }
+            }
+        }
+    }
+
+    private void workerLoop() {
+        while (running) {
+            String fileLink;
+            try {
+                fileLink = queue.takeFirst();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            Image image = null;
+            try {
+                image = loadPoster(fileLink);
+            } catch (Exception e) {
+                System.err.println("Could not load poster for '" + fileLink + "': " + e.getMessage());
+            }
+
+            List<Consumer<Image>> callbacks;
+            synchronized (this) {
+                put(fileLink, (image != null) ? image : NO_POSTER);
+                callbacks = waiting.remove(fileLink);
+            }
+
+            if (callbacks != null && !callbacks.isEmpty()) {
+                Image result = image;
+                Platform.runLater(() -> callbacks.forEach(c -> c.accept(result)));
+            }
+        }
+    }
+
+    /**
+     * Adds an image to the memory tier and evicts least recently used ones over budget.
+     * Caller holds the lock.
+     */
+    private void put(String fileLink, Image image) {
+        Image old = memory.put(fileLink, image);
+        if (old != null) {
+            usedBytes -= sizeOf(old);
+        }
+        usedBytes += sizeOf(image);
+
+        Iterator<Map.Entry<String, Image>> it = memory.entrySet().iterator();
+        while (usedBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Image> eldest = it.next();
+            if (eldest.getKey().equals(fileLink)) {
+                continue; // Never evict what we just added
+            }
+            usedBytes -= sizeOf(eldest.getValue());
+            it.remove();
+        }
+    }
+
+    private static long sizeOf(Image image) {
+        // 4 bytes per pixel (BGRA) plus a rough per-entry overhead
+        return (long) image.getWidth() * (long) image.getHeight() * 4 + 64;
+    }
+
+    // ---------- Loading ----------
+
+    /**
+     * Finds the poster file, then serves the thumbnail from the disk tier or decodes it.
+     */
+    private Image loadPoster(String fileLink) throws Exception {
+        Path poster = findPosterFile(fileLink);
+        if (poster == null) {
+            return null;
+        }
+
+        // Stat only: a poster seen before (in any session) is found without reading the image
+        BasicFileAttributes attrs = Files.readAttributes(poster, BasicFileAttributes.class);
+        String sourceKey = sha256(poster.toAbsolutePath() + "|" + attrs.size() + "|"
+                + attrs.lastModifiedTime().toMillis());
+
+        if (store != null) {
+            String linked = store.readLink(sourceKey);
+            byte[] blob = (linked != null) ? store.read(linked) : null;
+            if (blob != null) {
+                return fromBlob(blob);
+            }
+        }
+
+        byte[] source = Files.readAllBytes(poster);
+        String key = sha256(source);
+
+        if (store != null) {
+            byte[] blob = store.read(key);
+            if (blob != null) {
+                // Same picture under another name (or the file was touched)
+                store.writeLink(sourceKey, key);
+                return fromBlob(blob);
+            }
+        }
+
+        // Decoding with a requested size lets JavaFX downscale while decoding
+        Image decoded = new Image(new ByteArrayInputStream(source), WIDTH, HEIGHT, true, true);
+        if (decoded.isError()) {
+            return null;
+        }
+
+        if (store != null) {
+            store.write(key, toBlob(decoded));
+            store.writeLink(sourceKey, key);
+        }
+        return decoded;
+    }
+
+    private static String sha256(String text) throws NoSuchAlgorithmException {
+        return sha256(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String sha256(byte[] data) throws NoSuchAlgorithmException {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+    }
+
+    private Path findPosterFile(String fileLink) {
+        Path movie = Paths.get(fileLink);
+        Path dir = movie.getParent();
+        if (dir == null) {
+            return null;
+        }
+
+        String name = movie.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String base = (dot > 0) ? name.substring(0, dot) : name;
+
+        for (String ext : EXTENSIONS) {
+            Path candidate = dir.resolve(base + ext);
+            if (Files.isRegularFile(candidate)) {
+                return candidate;
+            }
+        }
+        for (String folderPoster : FOLDER_POSTERS) {
+            Path candidate = dir.resolve(folderPoster);
+            if (Files.isRegularFile(candidate)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Blob layout: width (int), height (int), then premultiplied BGRA pixels.
+     * Reading it back is a plain copy, no image decoding involved.
+     */
+    private static byte[] toBlob(Image image) {
+        int w = (int) image.getWidth();
+        int h = (int) image.getHeight();
+        PixelReader reader = image.getPixelReader();
+
+        ByteBuffer buffer = ByteBuffer.allocate(8 + w * h * 4);
+        buffer.putInt(w).putInt(h);
+        byte[] pixels = new byte[w * h * 4];
+        reader.getPixels(0, 0, w, h, PixelFormat.getByteBgraPreInstance(), pixels, 0, w * 4);
+        buffer.put(pixels);
+        return buffer.array();
+    }
+
+    private static Image fromBlob(byte[] blob) {
+        ByteBuffer buffer = ByteBuffer.wrap(blob);
+        int w = buffer.getInt();
+        int h = buffer.getInt();
+
+        WritableImage image = new WritableImage(w, h);
+        image.getPixelWriter().setPixels(0, 0, w, h, PixelFormat.getByteBgraPreInstance(), blob, 8, w * 4);
+        return image;
+    }
+}
@@ -0,0 +1,76 @@
+package gui;
+
+import be.Movie;
+import javafx.scene.control.TableCell;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+
+import java.util.List;
+
+/**
+ * Table cell that shows a movie poster thumbnail from the PosterCache.
+ *
+ * The cell never decodes on the FX thread: it shows the cached image or requests it
+ * asynchronously, and prefetches posters of the rows just above and below it so they
+ * are usually in memory before they scroll into view.
+ */
+public class PosterCell extends TableCell<Movie, String> {
+
+    // Rows before/after this cell that are prefetched
+    private static final int PREFETCH_ROWS = 15;
+
+    private final PosterCache cache;
+    private final ImageView view = new ImageView();
+
+    public PosterCell(PosterCache cache) {
+        this.cache = cache;
+        view.setFitWidth(PosterCache.WIDTH);
+        view.setFitHeight(PosterCache.HEIGHT);
+        view.setPreserveRatio(true);
+    }
+
+    @Override
+    protected void updateItem(String fileLink, boolean empty) {
+        super.updateItem(fileLink, empty);
+
+        if (empty || fileLink == null) {
+            setGraphic(null);
+            return;
+        }
+
+        Image cached = cache.getIfCached(fileLink);
+        if (cached != null) {
+            view.setImage(cached);
+            setGraphic(view);
+        } else {
+            setGraphic(null);
+            if (!cache.isKnownMissing(fileLink)) {
+                cache.load(fileLink, image -> {
+                    // Cells are reused while scrolling: only apply if still showing the same movie
+                    if (image != null && fileLink.equals(getItem())) {
+                        view.setImage(image);
+                        setGraphic(view);
+                    }
+                });
+            }
+        }
+
+        prefetchNeighbours();
+    }
+
+    private void prefetchNeighbours() {
+        if (getTableView() == null) {
+            return;
+        }
+        List<Movie> items = getTableView().getItems();
+        int index = getIndex();
+        int from = Math.max(0, index - PREFETCH_ROWS);
+        int to = Math.min(items.size(), index + PREFETCH_ROWS + 1);
+
+        for (int i = from; i < to; i++) {
+            if (i != index) {
+                cache.prefetch(items.get(i).getFileLink());
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package gui;
+
+import be.Category;
+import be.Movie;
+import bll.MovieManager;
+import javafx.application.Platform;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Runs the database part of startup in the background, overlapping it with FXML/CSS loading:
+ *
+ *   FX thread:  load FXML ──> show window (empty table, "loading" state) ──> fill table
+ *   worker:     connect + migrations ──┬─> movies     ──┐
+ *                                      └─> categories ──┴─> hand results to the FX thread
+ *
+ * Every phase is timed; the summary (including time-to-interactive measured from JVM start)
+ * is printed once the catalog is shown, so startup regressions are easy to spot.
+ */
+public class StartupOrchestrator {
+
+    private final MovieManager manager;
+
+    // One thread for the connection, then two for the parallel fetches
+    private final ExecutorService executor = Executors.newFixedThreadPool(2, r -> {
+        Thread t = new Thread(r, "startup");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final List<String> timings = new ArrayList<>();
+    private final long jvmStartMillis = ManagementFactory.getRuntimeMXBean().getStartTime();
+
+    private CompletableFuture<Void> database;
+    private CompletableFuture<List<Movie>> movies;
+    private CompletableFuture<List<Category>> categories;
+
+    public StartupOrchestrator(MovieManager manager) {
+        this.manager = manager;
+    }
+
+    /**
+     * Starts connecting (including schema migrations) and, once that is done,
+     * fetches movies and categories concurrently. Returns immediately.
+     */
+    public void start() {
+        mark("startup begins");
+
+        database = CompletableFuture.runAsync(() -> time("database connect + migrations", () -> {
+            manager.prepareDatabase();
+            return null;
+        }), executor);
+
+        movies = database.thenApplyAsync(v -> time("movies", manager::getAllMovies), executor);
+        categories = database.thenApplyAsync(v -> time("categories", manager::getAllCategories), executor);
+
+        CompletableFuture.allOf(movies, categories).whenComplete((v, e) -> executor.shutdown());
+    }
+
+    /**
+     * Runs the action on the FX thread once the database is reachable and up to date.
+     */
+    public void whenDatabaseReady(Runnable fxAction) {
+        database.thenRun(() -> Platform.runLater(fxAction));
+    }
+
+    /**
+     * Hands the loaded catalog (or the first failure) to the FX thread.
+     */
+    public void whenLoaded(BiConsumer<List<Movie>, List<Category>> onLoaded, Consumer<Throwable> onFailed) {
+        CompletableFuture.allOf(movies, categories).whenComplete((v, error) -> Platform.runLater(() -> {
+            if (error != null) {
+                onFailed.accept(error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error);
+            } else {
+                onLoaded.accept(movies.join(), categories.join());
+            }
+        }));
+    }
+
+    // ---------- Timing ----------
+
+    /**
+     * Runs and times one phase.
+     */
+    public <T> T time(String phase, Callable<T> work) {
+        long start = System.nanoTime();
+        try {
+            return work.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        } finally {
+            record(phase + ": " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        }
+    }
+
+    /**
+     * Records a point in time (milliseconds since the JVM started).
+     */
+    public void mark(String event) {
+        record(event + " at " + (System.currentTimeMillis() - jvmStartMillis) + " ms");
+    }
+
+    /**
+     * Marks the UI as usable and prints the timing summary.
+     */
+    public void markInteractive() {
+        mark("interactive");
+        synchronized (timings) {
+            System.out.println("Startup timing:\n  " + String.join("\n  ", timings));
+        }
+    }
+
+    private void record(String line) {
+        synchronized (timings) {
+            timings.add(line);
+        }
+    }
+}
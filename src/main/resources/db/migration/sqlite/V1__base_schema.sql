@@ -0,0 +1,29 @@
+-- Complete schema for a new embedded database (same tables and columns as on SQL Server).
+
+CREATE TABLE Movies (
+    ID                INTEGER PRIMARY KEY AUTOINCREMENT,
+    Name              TEXT    NOT NULL,
+    [Site Rating]     REAL    NULL,
+    [Personal Rating] REAL    NULL,
+    [File Link]       TEXT    NULL,
+    [Last View]       DATE    NULL,
+    [Duration]        INTEGER NULL,
+    [Width]           INTEGER NULL,
+    [Height]          INTEGER NULL,
+    [Codec]           TEXT    NULL,
+    [File Modified]   INTEGER NULL
+)
+GO
+CREATE TABLE Categories (
+    ID   INTEGER PRIMARY KEY AUTOINCREMENT,
+    Name TEXT NOT NULL
+)
+GO
+CREATE TABLE CategMovie (
+    MovieID INTEGER NOT NULL REFERENCES Movies (ID) ON DELETE CASCADE,
+    CategID INTEGER NOT NULL REFERENCES Categories (ID) ON DELETE CASCADE
+)
+GO
+CREATE INDEX IX_CategMovie_MovieID ON CategMovie (MovieID, CategID)
+GO
+CREATE INDEX IX_CategMovie_CategID ON CategMovie (CategID, MovieID)
@@ -0,0 +1,3 @@
+-- Row version for optimistic locking (see the SQL Server migration V6).
+
+ALTER TABLE Movies ADD COLUMN [Version] INTEGER NOT NULL DEFAULT 0
@@ -0,0 +1,8 @@
+-- Single-row counter incremented by every category change (see the SQL Server migration V7).
+
+CREATE TABLE CategoryVersion (
+    ID      INTEGER NOT NULL PRIMARY KEY CHECK (ID = 1),
+    Version INTEGER NOT NULL
+)
+GO
+INSERT INTO CategoryVersion (ID, Version) VALUES (1, 0)
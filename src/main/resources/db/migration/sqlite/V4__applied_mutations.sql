@@ -0,0 +1,7 @@
+-- Idempotency keys of replayed offline changes (see the SQL Server migration V8).
+
+CREATE TABLE AppliedMutations (
+    MutationKey TEXT    NOT NULL PRIMARY KEY,
+    MovieID     INTEGER NULL,
+    AppliedAt   TEXT    NOT NULL DEFAULT CURRENT_TIMESTAMP
+)
@@ -0,0 +1,8 @@
+-- Append-only watch history (see the SQL Server migration V9).
+
+CREATE TABLE ViewEvents (
+    ID             INTEGER PRIMARY KEY AUTOINCREMENT,
+    MovieID        INTEGER NOT NULL,
+    ViewedAt       INTEGER NOT NULL,
+    WatchedSeconds INTEGER NOT NULL DEFAULT 0
+)
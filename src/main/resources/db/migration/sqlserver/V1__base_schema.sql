@@ -0,0 +1,23 @@
+-- Base tables. Existing installs already have them, so every statement is guarded.
+
+IF OBJECT_ID('Movies') IS NULL
+    CREATE TABLE Movies (
+        ID                INT IDENTITY(1,1) PRIMARY KEY,
+        Name              NVARCHAR(255)  NOT NULL,
+        [Site Rating]     FLOAT          NULL,
+        [Personal Rating] FLOAT          NULL,
+        [File Link]       NVARCHAR(1024) NULL,
+        [Last View]       DATE           NULL
+    );
+GO
+IF OBJECT_ID('Categories') IS NULL
+    CREATE TABLE Categories (
+        ID   INT IDENTITY(1,1) PRIMARY KEY,
+        Name NVARCHAR(100) NOT NULL
+    );
+GO
+IF OBJECT_ID('CategMovie') IS NULL
+    CREATE TABLE CategMovie (
+        MovieID INT NOT NULL,
+        CategID INT NOT NULL
+    );
@@ -0,0 +1,8 @@
+-- Video information read from the MP4 container (runtime, resolution, codec).
+
+IF COL_LENGTH('Movies', 'Duration') IS NULL
+    ALTER TABLE Movies ADD [Duration] INT NULL,
+                           [Width] INT NULL,
+                           [Height] INT NULL,
+                           [Codec] NVARCHAR(16) NULL,
+                           [File Modified] BIGINT NULL;
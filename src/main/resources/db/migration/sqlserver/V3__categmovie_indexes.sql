@@ -0,0 +1,9 @@
+-- "Categories of a movie" and "movies of a category" without scanning the relation table.
+
+IF NOT EXISTS (SELECT 1 FROM sys.indexes
+               WHERE name = 'IX_CategMovie_MovieID' AND object_id = OBJECT_ID('CategMovie'))
+    CREATE INDEX IX_CategMovie_MovieID ON CategMovie (MovieID, CategID);
+GO
+IF NOT EXISTS (SELECT 1 FROM sys.indexes
+               WHERE name = 'IX_CategMovie_CategID' AND object_id = OBJECT_ID('CategMovie'))
+    CREATE INDEX IX_CategMovie_CategID ON CategMovie (CategID, MovieID);
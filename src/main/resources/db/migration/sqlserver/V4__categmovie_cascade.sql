@@ -0,0 +1,40 @@
+-- Deleting a movie or a category removes its relations in the same statement.
+-- An existing foreign key without cascade is replaced; orphaned relations are removed first.
+
+IF NOT EXISTS (SELECT 1 FROM sys.foreign_keys
+               WHERE parent_object_id = OBJECT_ID('CategMovie')
+                 AND referenced_object_id = OBJECT_ID('Movies')
+                 AND delete_referential_action = 1)
+BEGIN
+    DECLARE @old NVARCHAR(256);
+    SELECT @old = name FROM sys.foreign_keys
+    WHERE parent_object_id = OBJECT_ID('CategMovie')
+      AND referenced_object_id = OBJECT_ID('Movies');
+
+    IF @old IS NOT NULL
+        EXEC('ALTER TABLE CategMovie DROP CONSTRAINT [' + @old + ']');
+
+    DELETE FROM CategMovie WHERE MovieID NOT IN (SELECT ID FROM Movies);
+
+    ALTER TABLE CategMovie ADD CONSTRAINT FK_CategMovie_Movies
+        FOREIGN KEY (MovieID) REFERENCES Movies (ID) ON DELETE CASCADE;
+END
+GO
+IF NOT EXISTS (SELECT 1 FROM sys.foreign_keys
+               WHERE parent_object_id = OBJECT_ID('CategMovie')
+                 AND referenced_object_id = OBJECT_ID('Categories')
+                 AND delete_referential_action = 1)
+BEGIN
+    DECLARE @old NVARCHAR(256);
+    SELECT @old = name FROM sys.foreign_keys
+    WHERE parent_object_id = OBJECT_ID('CategMovie')
+      AND referenced_object_id = OBJECT_ID('Categories');
+
+    IF @old IS NOT NULL
+        EXEC('ALTER TABLE CategMovie DROP CONSTRAINT [' + @old + ']');
+
+    DELETE FROM CategMovie WHERE CategID NOT IN (SELECT ID FROM Categories);
+
+    ALTER TABLE CategMovie ADD CONSTRAINT FK_CategMovie_Categories
+        FOREIGN KEY (CategID) REFERENCES Categories (ID) ON DELETE CASCADE;
+END
@@ -0,0 +1,13 @@
+-- [Last View] must be a real DATE so range filters and sorting can use it.
+-- Older installs stored it as text or DATETIME; values that are not a date become NULL.
+
+IF EXISTS (SELECT 1 FROM sys.columns
+           WHERE object_id = OBJECT_ID('Movies') AND name = 'Last View'
+             AND system_type_id NOT IN (TYPE_ID('date'), TYPE_ID('datetime'), TYPE_ID('datetime2'), TYPE_ID('smalldatetime')))
+    EXEC('UPDATE Movies SET [Last View] = NULL
+          WHERE TRY_CONVERT(DATE, [Last View]) IS NULL OR LTRIM(RTRIM([Last View])) = ''''');
+GO
+IF EXISTS (SELECT 1 FROM sys.columns
+           WHERE object_id = OBJECT_ID('Movies') AND name = 'Last View'
+             AND system_type_id <> TYPE_ID('date'))
+    ALTER TABLE Movies ALTER COLUMN [Last View] DATE NULL;
@@ -0,0 +1,5 @@
+-- Row version for optimistic locking: every edit of a movie increments it,
+-- and an edit is only written when the version it was based on is still current.
+
+IF COL_LENGTH('Movies', 'Version') IS NULL
+    ALTER TABLE Movies ADD [Version] INT NOT NULL CONSTRAINT DF_Movies_Version DEFAULT 0;
@@ -0,0 +1,11 @@
+-- Single-row counter incremented by every category change.
+-- Clients cache the category list and only reload it when this number moved.
+
+IF OBJECT_ID('CategoryVersion') IS NULL
+BEGIN
+    CREATE TABLE CategoryVersion (
+        ID      INT NOT NULL PRIMARY KEY CHECK (ID = 1),
+        Version INT NOT NULL
+    );
+    INSERT INTO CategoryVersion (ID, Version) VALUES (1, 0);
+END
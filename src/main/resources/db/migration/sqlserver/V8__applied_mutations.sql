@@ -0,0 +1,13 @@
+-- Idempotency keys of offline changes replayed by dal.JournalReplicator.
+-- A change is applied in the same transaction that stores its key, so a replay
+-- after a crash or a lost acknowledgement finds the key and skips the change.
+-- MovieID is the movie a replayed "create" produced (used to resolve temporary IDs).
+
+IF OBJECT_ID('AppliedMutations') IS NULL
+BEGIN
+    CREATE TABLE AppliedMutations (
+        MutationKey CHAR(36)  NOT NULL PRIMARY KEY,
+        MovieID     INT       NULL,
+        AppliedAt   DATETIME2 NOT NULL DEFAULT SYSUTCDATETIME()
+    );
+END
@@ -0,0 +1,16 @@
+-- Append-only watch history: one row every time a movie is marked as watched.
+-- Rows are never updated; bll.WatchStats aggregates them once at startup and then
+-- keeps its counters up to date event by event.
+-- ViewedAt is epoch milliseconds (UTC), like [File Modified]. WatchedSeconds is the movie's
+-- runtime at the time of the view (0 if unknown).
+-- No foreign key on purpose: the history outlives deleted movies and is skipped when aggregated.
+
+IF OBJECT_ID('ViewEvents') IS NULL
+BEGIN
+    CREATE TABLE ViewEvents (
+        ID             BIGINT IDENTITY(1,1) NOT NULL PRIMARY KEY,
+        MovieID        INT    NOT NULL,
+        ViewedAt       BIGINT NOT NULL,
+        WatchedSeconds INT    NOT NULL DEFAULT 0
+    );
+END
@@ -0,0 +1,125 @@
+package bll;
+
+import be.Movie;
+import be.MovieQuery;
+import dal.Shard;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LibraryFederationTest {
+
+    private static final Comparator<Movie> BY_ID = Comparator.comparingInt(Movie::getId);
+
+    @Test
+    void mergesSortedListsIntoOneOrder() {
+        List<List<Movie>> lists = List.of(
+                movies(1, 4, 9),
+                movies(2, 3, 10, 11),
+                movies(5));
+
+        assertEquals(List.of(1, 2, 3, 4, 5, 9, 10, 11), ids(LibraryFederation.mergeSorted(lists, BY_ID, 0, 0)));
+    }
+
+    @Test
+    void appliesOffsetAndLimitAfterMerging() {
+        List<List<Movie>> lists = List.of(movies(1, 4, 9), movies(2, 3, 10));
+
+        assertEquals(List.of(3, 4), ids(LibraryFederation.mergeSorted(lists, BY_ID, 2, 2)));
+        assertEquals(List.of(10), ids(LibraryFederation.mergeSorted(lists, BY_ID, 5, 10)));
+        assertEquals(List.of(), ids(LibraryFederation.mergeSorted(lists, BY_ID, 6, 10)));
+    }
+
+    @Test
+    void handlesEmptyLists() {
+        assertEquals(List.of(), LibraryFederation.mergeSorted(List.of(), BY_ID, 0, 0));
+        assertEquals(List.of(7), ids(LibraryFederation.mergeSorted(List.of(movies(), movies(7), movies()), BY_ID, 0, 0)));
+    }
+
+    @Test
+    void matchesSortingEverythingTogether() {
+        Random random = new Random(45);
+        Comparator<Movie> order = LibraryFederation.comparatorFor(
+                new MovieQuery().sortBy(MovieQuery.SortField.PERSONAL_RATING, true));
+
+        List<List<Movie>> lists = new ArrayList<>();
+        List<Movie> all = new ArrayList<>();
+        for (int shard = 0; shard < 4; shard++) {
+            List<Movie> list = new ArrayList<>();
+            for (int i = 1; i <= 50; i++) {
+                // Few distinct ratings, so the ID tie-breaker matters
+                list.add(new Movie(Shard.toGlobal(shard, i), "m", random.nextInt(5), 0, null, Movie.NEVER_VIEWED));
+            }
+            list.sort(order);
+            lists.add(list);
+            all.addAll(list);
+        }
+        all.sort(order);
+
+        assertEquals(ids(all.subList(30, 70)), ids(LibraryFederation.mergeSorted(lists, order, 30, 40)));
+    }
+
+    @Test
+    void comparatorBreaksTiesByIdAscending() {
+        Comparator<Movie> order = LibraryFederation.comparatorFor(
+                new MovieQuery().sortBy(MovieQuery.SortField.TITLE, true));
+        Movie a = new Movie(1, "Same", 0, 0, null, Movie.NEVER_VIEWED);
+        Movie b = new Movie(2, "same", 0, 0, null, Movie.NEVER_VIEWED);
+        Movie c = new Movie(3, "Zed", 0, 0, null, Movie.NEVER_VIEWED);
+
+        List<Movie> sorted = new ArrayList<>(List.of(b, c, a));
+        sorted.sort(order);
+
+        assertEquals(List.of(3, 1, 2), ids(sorted));
+    }
+
+    @Test
+    void mergesAccentedAndMixedCaseTitlesInOneOrder() {
+        Comparator<Movie> order = LibraryFederation.comparatorFor(
+                new MovieQuery().sortBy(MovieQuery.SortField.TITLE, false));
+        String[][] titles = {
+                {"amelie", "Amélie", "Zorro", "Ébène", "ALIEN"},
+                {"Alien", "AMÉLIE", "zorro", "Eden", "Œdipe"},
+                {"Amelie", "éden", "Zebra", "alien 2"}};
+
+        // Each library returns its rows sorted by itself, as the database does
+        List<List<Movie>> lists = new ArrayList<>();
+        List<Movie> all = new ArrayList<>();
+        for (int shard = 0; shard < titles.length; shard++) {
+            List<Movie> list = new ArrayList<>();
+            for (int i = 0; i < titles[shard].length; i++) {
+                list.add(new Movie(Shard.toGlobal(shard, i + 1), titles[shard][i], 0, 0, null, Movie.NEVER_VIEWED));
+            }
+            list.sort(order);
+            lists.add(list);
+            all.addAll(list);
+        }
+        all.sort(order);
+
+        List<Movie> merged = LibraryFederation.mergeSorted(lists, order, 0, 0);
+        assertEquals(ids(all), ids(merged));
+        assertEquals(List.of("ALIEN", "Alien", "alien 2", "amelie", "Amelie", "Amélie", "AMÉLIE",
+                        "Eden", "Zebra", "Zorro", "zorro", "Ébène", "éden", "Œdipe"),
+                merged.stream().map(Movie::getTitle).toList());
+
+        // A page cut from the merge is the same page as cut from everything
+        assertEquals(ids(all.subList(4, 9)), ids(LibraryFederation.mergeSorted(lists, order, 4, 5)));
+    }
+
+    private static List<Movie> movies(int... ids) {
+        List<Movie> movies = new ArrayList<>();
+        for (int id : ids) {
+            movies.add(new Movie(id, "Movie " + id, 0, 0, null, Movie.NEVER_VIEWED));
+        }
+        return movies;
+    }
+
+    private static List<Integer> ids(List<Movie> movies) {
+        return movies.stream().map(Movie::getId).toList();
+    }
+}
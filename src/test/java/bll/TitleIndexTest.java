@@ -0,0 +1,321 @@
+package bll;
+
+import be.Movie;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TitleIndexTest {
+
+    // ---------- Normalization ----------
+
+    @Test
+    void normalizeDropsArticlesYearAndPunctuation() {
+        TitleIndex.Key key = TitleIndex.normalize("The Matrix (1999)");
+        assertEquals("matrix", key.text);
+        assertEquals(1999, key.year);
+        assertEquals("", key.numbers);
+
+        assertEquals("matrix", TitleIndex.normalize("Matrix, The").text);
+        assertEquals("matrix", TitleIndex.normalize("  the MATRIX!  ").text);
+        assertEquals(0, TitleIndex.normalize("Matrix, The").year);
+    }
+
+    @Test
+    void normalizeRemovesAccentsAndReadsAmpersand() {
+        assertEquals("amelie", TitleIndex.normalize("Amélie").text);
+        assertEquals("fast and furious", TitleIndex.normalize("Fast & Furious").text);
+        assertEquals("fast and furious", TitleIndex.normalize("Fast and Furious").text);
+    }
+
+    @Test
+    void normalizeReadsRomanNumeralsAsNumbers() {
+        TitleIndex.Key key = TitleIndex.normalize("Rocky II");
+        assertEquals("rocky 2", key.text);
+        assertEquals("2", key.numbers);
+
+        assertEquals("2001", TitleIndex.normalize("2001: A Space Odyssey").numbers);
+        assertEquals("2001 a space odyssey", TitleIndex.normalize("2001: A Space Odyssey").text);
+        // A single "I" is a word, not a numeral
+        assertEquals("i robot", TitleIndex.normalize("I, Robot").text);
+        assertEquals("", TitleIndex.normalize("I, Robot").numbers);
+    }
+
+    @Test
+    void yearInBracketsOnly() {
+        assertEquals(1995, TitleIndex.normalize("Heat [1995]").year);
+        TitleIndex.Key key = TitleIndex.normalize("Blade Runner 2049");
+        assertEquals(0, key.year);
+        assertEquals("2049", key.numbers);
+    }
+
+    // ---------- Distance ----------
+
+    @Test
+    void withinEditsAgreesWithLevenshtein() {
+        Random random = new Random(50);
+        for (int n = 0; n < 20_000; n++) {
+            String a = randomWord(random, random.nextInt(9));
+            String b = mutate(random, a);
+            int distance = levenshtein(a, b);
+            for (int max = 0; max <= 3; max++) {
+                assertEquals(distance <= max, TitleIndex.withinEdits(a, b, max), a + " / " + b + " max " + max);
+            }
+        }
+    }
+
+    @Test
+    void jaroWinklerKnownValues() {
+        assertEquals(1.0, TitleIndex.jaroWinkler("matrix", "matrix"));
+        assertEquals(0.0, TitleIndex.jaroWinkler("abc", "xyz"));
+        assertEquals(0.961, TitleIndex.jaroWinkler("martha", "marhta"), 0.001);
+        assertEquals(0.840, TitleIndex.jaroWinkler("dwayne", "duane"), 0.001);
+        assertEquals(1.0, TitleIndex.jaroWinkler("", ""));
+        assertEquals(0.0, TitleIndex.jaroWinkler("", "a"));
+    }
+
+    // ---------- Queries ----------
+
+    @Test
+    void findsSpellingVariantsAndTypos() {
+        TitleIndex index = indexOf("The Matrix", "Heat (1995)", "Lord of the Rings", "Star Wars", "Alien");
+
+        assertEquals(List.of(1), ids(index.findSimilar("Matrix, The", 0)));
+        assertEquals(1.0, index.findSimilar("the matrix (1999)", 0).get(0).getSimilarity());
+        assertEquals(List.of(3), ids(index.findSimilar("Lord of the Ring", 0)));
+        assertEquals(List.of(4), ids(index.findSimilar("Starwars", 0)));
+        assertEquals(List.of(), ids(index.findSimilar("Predator", 0)));
+        assertEquals(List.of(), ids(index.findSimilar("  ", 0)));
+    }
+
+    @Test
+    void differentNumbersOrYearsAreDifferentFilms() {
+        TitleIndex index = indexOf("Rocky II", "Rocky III", "Heat (1995)", "Alien");
+
+        assertEquals(List.of(1), ids(index.findSimilar("Rocky 2", 0)));
+        assertEquals(List.of(), ids(index.findSimilar("Rocky 4", 0)));
+        assertEquals(List.of(), ids(index.findSimilar("Rocky", 0)));
+        assertEquals(List.of(), ids(index.findSimilar("Heat (1986)", 0)));
+        assertEquals(List.of(3), ids(index.findSimilar("Heat", 0)));
+        // Too many edits away, however similar the start is
+        assertEquals(List.of(), ids(index.findSimilar("Alien Resurrection", 0)));
+    }
+
+    @Test
+    void excludesTheMovieBeingEdited() {
+        TitleIndex index = indexOf("The Matrix", "Matrix, The");
+
+        assertEquals(List.of(2), ids(index.findSimilar("The Matrix", 1)));
+    }
+
+    @Test
+    void updateAndRemoveKeepTheIndexCurrent() {
+        TitleIndex index = indexOf("The Matrix", "Heat");
+        Movie heat = index.findSimilar("Heat", 0).get(0).getMovie();
+
+        heat.setTitle("Ronin");
+        index.update(heat);
+        assertEquals(List.of(), ids(index.findSimilar("Heat", 0)));
+        assertEquals(List.of(2), ids(index.findSimilar("Ronin", 0)));
+
+        index.update(movie(3, "Casablanca"));
+        assertEquals(List.of(3), ids(index.findSimilar("Casablance", 0)));
+        assertEquals(3, index.size());
+
+        index.remove(1);
+        assertEquals(List.of(), ids(index.findSimilar("The Matrix", 0)));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void blockingFindsTheSameMatchesAsComparingEverything() {
+        Random random = new Random(7);
+        List<Movie> catalog = new ArrayList<>();
+        for (int i = 1; i <= 5_000; i++) {
+            catalog.add(movie(i, randomWord(random, 5) + " " + randomWord(random, 7) + " " + randomWord(random, 4)));
+        }
+        TitleIndex index = new TitleIndex();
+        index.rebuild(catalog);
+
+        int typosFound = 0;
+        for (int n = 0; n < 200; n++) {
+            Movie target = catalog.get(random.nextInt(catalog.size()));
+            String typo = withSubstitutions(random, target.getTitle(), 1 + random.nextInt(2));
+
+            List<Integer> found = new ArrayList<>(ids(index.findSimilar(typo, 0)));
+            found.sort(null);
+            assertEquals(comparingEverything(catalog, typo), found, typo);
+            if (found.contains(target.getId())) {
+                typosFound++;
+            }
+        }
+        // Not all of them: Jaro matches letters greedily within a window, so a substituted
+        // letter can pair up with one further along and cost a transposition as well
+        assertTrue(typosFound > 100, "found " + typosFound);
+    }
+
+    @Test
+    void blockingFindsShortTitlesAndInsertsOrDeletesToo() {
+        // Few letters and short titles: many near matches, at every title length
+        Random random = new Random(11);
+        List<Movie> catalog = new ArrayList<>();
+        for (int i = 1; i <= 3_000; i++) {
+            catalog.add(movie(i, randomWord(random, 1 + random.nextInt(12), 5)));
+        }
+        TitleIndex index = new TitleIndex();
+        index.rebuild(catalog);
+
+        for (int n = 0; n < 500; n++) {
+            String query = mutate(random, catalog.get(random.nextInt(catalog.size())).getTitle());
+            if (query.isBlank()) {
+                continue;
+            }
+
+            List<Integer> found = new ArrayList<>(ids(index.findSimilar(query, 0)));
+            found.sort(null);
+            assertEquals(comparingEverything(catalog, query), found, query);
+        }
+    }
+
+    @Test
+    void duplicateGroupsAroundALeaderBiggestFirst() {
+        TitleIndex index = indexOf("The Matrix", "Heat", "Matrix, The", "Alien", "Heat (1995)", "the matrix (1999)");
+
+        List<List<Movie>> groups = index.findDuplicateGroups();
+
+        assertEquals(2, groups.size());
+        assertEquals(List.of(1, 3, 6), ids2(groups.get(0)));
+        assertEquals(List.of(2, 5), ids2(groups.get(1)));
+    }
+
+    @Test
+    void snapshotDoesNotSeeLaterChanges() {
+        TitleIndex index = indexOf("The Matrix", "Heat", "Matrix, The");
+        TitleIndex.Snapshot snapshot = index.snapshot();
+
+        index.remove(3);
+        index.update(movie(4, "Heat"));
+
+        List<List<Movie>> groups = snapshot.findDuplicateGroups();
+        assertEquals(1, groups.size());
+        assertEquals(List.of(1, 3), ids2(groups.get(0)));
+        assertEquals(List.of(2, 4), ids2(index.findDuplicateGroups().get(0)));
+    }
+
+    @Test
+    void noGroupsWithoutDuplicates() {
+        TitleIndex index = indexOf("Rocky II", "Rocky III", "Alien", "Predator (1987)", "Predator (2010)");
+
+        assertEquals(List.of(), index.findDuplicateGroups());
+    }
+
+    // ---------- Helpers ----------
+
+    private static TitleIndex indexOf(String... titles) {
+        List<Movie> catalog = new ArrayList<>();
+        for (int i = 0; i < titles.length; i++) {
+            catalog.add(movie(i + 1, titles[i]));
+        }
+        TitleIndex index = new TitleIndex();
+        index.rebuild(catalog);
+        return index;
+    }
+
+    private static Movie movie(int id, String title) {
+        return new Movie(id, title, 0, 0, null, Movie.NEVER_VIEWED);
+    }
+
+    private static List<Integer> ids(List<TitleIndex.Match> matches) {
+        return matches.stream().map(m -> m.getMovie().getId()).toList();
+    }
+
+    private static List<Integer> ids2(List<Movie> movies) {
+        return movies.stream().map(Movie::getId).toList();
+    }
+
+    /**
+     * The movies whose title matches, found by comparing the query with every title.
+     */
+    private static List<Integer> comparingEverything(List<Movie> catalog, String query) {
+        List<Integer> expected = new ArrayList<>();
+        String text = TitleIndex.normalize(query).text;
+        for (Movie movie : catalog) {
+            String other = TitleIndex.normalize(movie.getTitle()).text;
+            if (text.equals(other) || (TitleIndex.withinEdits(text, other, 2)
+                    && TitleIndex.jaroWinkler(text, other) >= TitleIndex.DEFAULT_THRESHOLD)) {
+                expected.add(movie.getId());
+            }
+        }
+        return expected;
+    }
+
+    private static String randomWord(Random random, int length) {
+        return randomWord(random, length, 26);
+    }
+
+    private static String randomWord(Random random, int length, int letters) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append((char) ('a' + random.nextInt(letters)));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Up to three random inserts, deletes or substitutions.
+     */
+    private static String mutate(Random random, String s) {
+        StringBuilder sb = new StringBuilder(s);
+        int edits = random.nextInt(4);
+        for (int e = 0; e < edits; e++) {
+            int op = random.nextInt(3);
+            if (op == 0 || sb.length() == 0) {
+                sb.insert(random.nextInt(sb.length() + 1), (char) ('a' + random.nextInt(3)));
+            } else if (op == 1) {
+                sb.deleteCharAt(random.nextInt(sb.length()));
+            } else {
+                sb.setCharAt(random.nextInt(sb.length()), (char) ('a' + random.nextInt(3)));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Replaces letters at distinct positions (not spaces, not the first four letters,
+     * which Jaro-Winkler weighs heavily) with different letters.
+     */
+    private static String withSubstitutions(Random random, String s, int count) {
+        char[] chars = s.toCharArray();
+        List<Integer> used = new ArrayList<>();
+        while (used.size() < count) {
+            int i = random.nextInt(chars.length);
+            if (i < 4 || chars[i] == ' ' || used.contains(i)) {
+                continue;
+            }
+            used.add(i);
+            chars[i] = (char) ('a' + (chars[i] - 'a' + 1 + random.nextInt(25)) % 26);
+        }
+        return new String(chars);
+    }
+
+    private static int levenshtein(String a, String b) {
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            d[i][0] = i;
+        }
+        for (int j = 0; j <= b.length(); j++) {
+            d[0][j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                d[i][j] = Math.min(d[i - 1][j - 1] + cost, Math.min(d[i - 1][j], d[i][j - 1]) + 1);
+            }
+        }
+        return d[a.length()][b.length()];
+    }
+}
@@ -0,0 +1,154 @@
+package bll;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WatchStatsTest {
+
+    private static final long DAY = Duration.ofDays(1).toMillis();
+    private static final long T0 = ZonedDateTime.of(2024, 5, 10, 12, 0, 0, 0, ZoneOffset.UTC).toInstant().toEpochMilli();
+
+    private final WatchStats stats = new WatchStats(Duration.ofDays(30), ZoneOffset.UTC);
+
+    @Test
+    void viewCountsOneAtItsOwnTimeAndHalfAfterOneHalfLife() {
+        stats.record(1, T0, 0, List.of());
+
+        assertEquals(1.0, stats.getPopularity(1, T0), 1e-9);
+        assertEquals(0.5, stats.getPopularity(1, T0 + 30 * DAY), 1e-9);
+        assertEquals(0.25, stats.getPopularity(1, T0 + 60 * DAY), 1e-9);
+    }
+
+    @Test
+    void laterViewsDoNotChangeTheDecayOfEarlierOnes() {
+        stats.record(1, T0, 0, List.of());
+        stats.record(2, T0 + 30 * DAY, 0, List.of());
+
+        long now = T0 + 30 * DAY;
+        assertEquals(0.5, stats.getPopularity(1, now), 1e-9);
+        assertEquals(1.0, stats.getPopularity(2, now), 1e-9);
+        assertEquals(0, stats.getPopularity(3, now));
+    }
+
+    @Test
+    void recentViewsOutrankOlderOnes() {
+        // Two old views are worth less than one that is more than a half-life newer
+        stats.record(1, T0, 0, List.of());
+        stats.record(1, T0, 0, List.of());
+        stats.record(2, T0 + 45 * DAY, 0, List.of());
+        stats.record(3, T0 + 10 * DAY, 0, List.of());
+
+        assertEquals(List.of(2, 1, 3), stats.getMostPopular(10));
+        assertEquals(List.of(2), stats.getMostPopular(1));
+        assertEquals(2, stats.getPlayCount(1));
+    }
+
+    @Test
+    void rebasesBeforeTheWeightsOverflow() {
+        WatchStats fast = new WatchStats(Duration.ofDays(1), ZoneOffset.UTC);
+
+        // One view a day for years: 2^(days) would overflow a double long before the end
+        int days = 3000;
+        for (int day = 0; day < days; day++) {
+            fast.record(1, T0 + day * DAY, 0, List.of());
+        }
+        fast.record(2, T0, 0, List.of());
+
+        double popularity = fast.getPopularity(1, T0 + (days - 1) * DAY);
+        assertFalse(Double.isInfinite(popularity) || Double.isNaN(popularity));
+        // 1 + 1/2 + 1/4 + ... -> 2
+        assertEquals(2.0, popularity, 1e-9);
+        assertEquals(List.of(1, 2), fast.getMostPopular(2));
+        assertEquals(days, fast.getPlayCount(1));
+    }
+
+    @Test
+    void countsPlaysPerCalendarMonth() {
+        long june = ZonedDateTime.of(2024, 6, 1, 0, 0, 0, 0, ZoneOffset.UTC).toInstant().toEpochMilli();
+        stats.record(1, T0, 0, List.of());
+        stats.record(1, june - 1, 0, List.of());
+        stats.record(1, june, 0, List.of());
+        stats.record(2, june, 0, List.of());
+        stats.record(2, june + DAY, 0, List.of());
+
+        YearMonth may = YearMonth.of(2024, 5);
+        assertEquals(2, stats.getPlayCount(1, may));
+        assertEquals(1, stats.getPlayCount(1, YearMonth.of(2024, 6)));
+        assertEquals(List.of(1), stats.getMostWatched(may, 10));
+        assertEquals(List.of(2, 1), stats.getMostWatched(YearMonth.of(2024, 6), 10));
+        assertEquals(List.of(), stats.getMostWatched(YearMonth.of(2024, 7), 10));
+    }
+
+    @Test
+    void sumsWatchTimePerCategoryIgnoringCase() {
+        stats.record(1, T0, 3600, List.of("Drama", "Crime"));
+        stats.record(2, T0, 1800, List.of("drama"));
+        stats.record(3, T0, 0, List.of("Comedy"));
+
+        Map<String, Long> byCategory = stats.getWatchTimeByCategory();
+        assertEquals(List.of("Drama", "Crime"), List.copyOf(byCategory.keySet()));
+        assertEquals(5400L, byCategory.get("Drama"));
+        assertEquals(3600L, byCategory.get("Crime"));
+    }
+
+    @Test
+    void mergeCombinesCountersOnACommonLandmark() {
+        WatchStats other = new WatchStats(Duration.ofDays(30), ZoneOffset.UTC);
+        stats.record(1, T0, 60, List.of("Drama"));
+        other.record(1, T0 + 30 * DAY, 60, List.of("Drama"));
+        other.record(2, T0 + 30 * DAY, 0, List.of());
+
+        stats.merge(other);
+
+        long now = T0 + 30 * DAY;
+        assertEquals(1.5, stats.getPopularity(1, now), 1e-9);
+        assertEquals(1.0, stats.getPopularity(2, now), 1e-9);
+        assertEquals(2, stats.getPlayCount(1));
+        assertEquals(3, stats.getEventCount());
+        assertEquals(120L, stats.getWatchTimeByCategory().get("Drama"));
+        assertEquals(1, stats.getPlayCount(1, YearMonth.of(2024, 6)));
+    }
+
+    @Test
+    void mergeIntoEmptyStatsTakesTheOtherLandmark() {
+        WatchStats other = new WatchStats(Duration.ofDays(30), ZoneOffset.UTC);
+        other.record(1, T0, 0, List.of());
+
+        stats.merge(other);
+
+        assertEquals(0.5, stats.getPopularity(1, T0 + 30 * DAY), 1e-9);
+    }
+
+    @Test
+    void removeForgetsTheMovieButKeepsCategoryTime() {
+        stats.record(1, T0, 600, List.of("Drama"));
+        stats.record(2, T0, 0, List.of());
+
+        stats.remove(1);
+
+        assertEquals(0, stats.getPlayCount(1));
+        assertEquals(0, stats.getPlayCount(1, YearMonth.of(2024, 5)));
+        assertEquals(List.of(2), stats.getMostPopular(10));
+        assertEquals(600L, stats.getWatchTimeByCategory().get("Drama"));
+    }
+
+    @Test
+    void renameMovesAllCounters() {
+        stats.record(-1, T0, 0, List.of());
+
+        stats.renameMovie(-1, 17);
+
+        assertEquals(0, stats.getPlayCount(-1));
+        assertEquals(1, stats.getPlayCount(17));
+        assertEquals(1, stats.getPlayCount(17, YearMonth.of(2024, 5)));
+        assertEquals(1.0, stats.getPopularity(17, T0), 1e-9);
+    }
+}
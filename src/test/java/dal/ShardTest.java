@@ -0,0 +1,59 @@
+package dal;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardTest {
+
+    private static final int MAX_LOCAL = (1 << Shard.LOCAL_BITS) - 1;
+
+    @Test
+    void primaryLibraryKeepsItsDatabaseIds() {
+        assertEquals(12345, Shard.toGlobal(0, 12345));
+        assertEquals(12345, Shard.toLocal(12345));
+        assertEquals(0, Shard.indexOf(12345));
+    }
+
+    @Test
+    void globalIdCarriesTheLibraryInTheTopBits() {
+        int global = Shard.toGlobal(3, 42);
+
+        assertEquals((3 << Shard.LOCAL_BITS) | 42, global);
+        assertEquals(3, Shard.indexOf(global));
+        assertEquals(42, Shard.toLocal(global));
+    }
+
+    @Test
+    void roundTripsAtTheLimits() {
+        int lastShard = Shard.MAX_SHARDS - 1;
+        for (int shard : new int[]{0, 1, lastShard}) {
+            for (int local : new int[]{1, 2, MAX_LOCAL - 1, MAX_LOCAL}) {
+                int global = Shard.toGlobal(shard, local);
+                assertTrue(global >= 0, "global IDs stay positive");
+                assertEquals(shard, Shard.indexOf(global));
+                assertEquals(local, Shard.toLocal(global));
+            }
+        }
+    }
+
+    @Test
+    void globalIdsKeepTheOrderWithinALibrary() {
+        assertTrue(Shard.toGlobal(2, 10) < Shard.toGlobal(2, 11));
+        assertTrue(Shard.toGlobal(1, MAX_LOCAL) < Shard.toGlobal(2, 1));
+    }
+
+    @Test
+    void temporaryIdsBelongToThePrimaryLibrary() {
+        assertEquals(0, Shard.indexOf(-7));
+        assertEquals(-7, Shard.toLocal(-7));
+        assertEquals(-7, Shard.toGlobal(5, -7));
+    }
+
+    @Test
+    void rejectsLocalIdsThatDoNotFit() {
+        assertThrows(IllegalStateException.class, () -> Shard.toGlobal(1, MAX_LOCAL + 1));
+        // The primary library is not limited
+        assertEquals(MAX_LOCAL + 1, Shard.toGlobal(0, MAX_LOCAL + 1));
+    }
+}
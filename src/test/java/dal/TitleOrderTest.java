@@ -0,0 +1,74 @@
+package dal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TitleOrderTest {
+
+    private static final List<String> TITLES = List.of(
+            "Zorro", "amelie", "Amélie", "ALIEN", "éden", "Eden", "alien 2", "Œdipe", "zorro", "Ébène", "Alien ");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void ignoresCaseAndPutsAccentedLettersAfterZ() {
+        List<String> sorted = new ArrayList<>(TITLES);
+        sorted.sort(MovieDAO.TITLE_ORDER);
+
+        assertEquals(List.of("ALIEN", "Alien ", "alien 2", "amelie", "Amélie", "Eden",
+                "Zorro", "zorro", "Ébène", "éden", "Œdipe"), sorted);
+    }
+
+    @Test
+    void trailingSpacesDoNotCount() {
+        // SQL Server compares strings as if the shorter one were padded with spaces
+        assertEquals(0, MovieDAO.TITLE_ORDER.compare("Alien", "alien  "));
+        assertTrue(MovieDAO.TITLE_ORDER.compare("Alien", "Alien\t") > 0);
+    }
+
+    @Test
+    void sqliteSortsTitlesLikeTheComparator() throws SQLException {
+        Properties props = new Properties();
+        props.setProperty("backend", "sqlite");
+        props.setProperty("file", dir.resolve("order.db").toString());
+        ConnectionProvider cp = new ConnectionProvider(props);
+
+        List<String> fromDatabase = new ArrayList<>();
+        try (Connection conn = cp.getConnection()) {
+            try (Statement st = conn.createStatement()) {
+                st.execute("CREATE TABLE Movies (ID INTEGER PRIMARY KEY, Name TEXT NOT NULL)");
+            }
+            try (PreparedStatement ps = conn.prepareStatement("INSERT INTO Movies (Name) VALUES (?)")) {
+                for (String title : TITLES) {
+                    ps.setString(1, title);
+                    ps.executeUpdate();
+                }
+            }
+            String sql = "SELECT Name FROM Movies ORDER BY Name COLLATE " + MovieDAO.TITLE_COLLATION + ", ID";
+            try (Statement st = conn.createStatement();
+                 ResultSet rs = st.executeQuery(sql)) {
+                while (rs.next()) {
+                    fromDatabase.add(rs.getString(1));
+                }
+            }
+        }
+
+        // The comparator with the ID tie-breaker: insertion order for equal titles
+        List<String> expected = new ArrayList<>(TITLES);
+        expected.sort(MovieDAO.TITLE_ORDER);
+        assertEquals(expected, fromDatabase);
+    }
+}
@@ -0,0 +1,203 @@
+package dal;
+
+import be.Category;
+import be.Movie;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteJournalTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void newJournalIsEmpty() throws IOException {
+        try (WriteJournal journal = new WriteJournal(dir.resolve("writes.journal"))) {
+            assertTrue(journal.isEmpty());
+            assertTrue(journal.readPending().isEmpty());
+        }
+    }
+
+    @Test
+    void entriesSurviveReopeningInOrder() throws IOException {
+        Path file = dir.resolve("writes.journal");
+        JournalEntry create = JournalEntry.createMovie(movie(-1, "Alien"), List.of(new Category(3, "Horror")));
+        JournalEntry update = JournalEntry.updateMovie(movie(42, "Heat"), List.of(), 7);
+        JournalEntry view = JournalEntry.lastView(42, 19_000);
+
+        try (WriteJournal journal = new WriteJournal(file)) {
+            journal.append(create);
+            journal.append(update);
+            journal.append(view);
+        }
+
+        try (WriteJournal journal = new WriteJournal(file)) {
+            List<JournalEntry> pending = journal.readPending();
+            assertEquals(3, pending.size());
+
+            JournalEntry first = pending.get(0);
+            assertEquals(JournalEntry.Kind.CREATE_MOVIE, first.getKind());
+            assertEquals(create.getKey(), first.getKey());
+            assertEquals(-1, first.getMovieId());
+            assertEquals("Alien", first.getTitle());
+            assertEquals("C:\\Movies\\Alien.mp4", first.getFileLink());
+            assertEquals(List.of(3), first.getCategoryIds());
+
+            JournalEntry second = pending.get(1);
+            assertEquals(JournalEntry.Kind.UPDATE_MOVIE, second.getKind());
+            assertEquals(7, second.getExpectedVersion());
+            assertEquals(8.5, second.getPersonalRating());
+
+            JournalEntry third = pending.get(2);
+            assertEquals(JournalEntry.Kind.LAST_VIEW, third.getKind());
+            assertNull(third.getTitle());
+            assertEquals(19_000, third.getLastViewDay());
+        }
+    }
+
+    @Test
+    void categoriesNotStoredYetAreKeptByName() throws IOException {
+        Path file = dir.resolve("writes.journal");
+        JournalEntry create = JournalEntry.createMovie(movie(-1, "Alien"),
+                List.of(new Category(3, "Horror"), new Category(-1, "Cult Classics")));
+
+        try (WriteJournal journal = new WriteJournal(file)) {
+            journal.append(create);
+        }
+
+        try (WriteJournal journal = new WriteJournal(file)) {
+            JournalEntry entry = journal.readPending().get(0);
+            assertEquals(List.of(3), entry.getCategoryIds());
+            assertEquals(List.of("Cult Classics"), entry.getCategoryNames());
+        }
+    }
+
+    @Test
+    void acknowledgedEntriesAreNotReadAgain() throws IOException {
+        Path file = dir.resolve("writes.journal");
+        try (WriteJournal journal = new WriteJournal(file)) {
+            journal.append(JournalEntry.lastView(1, 100));
+            journal.append(JournalEntry.lastView(2, 100));
+
+            journal.acknowledge(journal.readPending().get(0).getEndOffset());
+
+            List<JournalEntry> pending = journal.readPending();
+            assertEquals(1, pending.size());
+            assertEquals(2, pending.get(0).getMovieId());
+            assertFalse(journal.isEmpty());
+        }
+
+        try (WriteJournal journal = new WriteJournal(file)) {
+            assertEquals(1, journal.readPending().size());
+        }
+    }
+
+    @Test
+    void fullyAcknowledgedJournalIsWipedAndReused() throws IOException {
+        Path file = dir.resolve("writes.journal");
+        try (WriteJournal journal = new WriteJournal(file)) {
+            journal.append(JournalEntry.lastView(1, 100));
+            JournalEntry last = JournalEntry.lastView(2, 100);
+            journal.append(last);
+
+            journal.acknowledge(last.getEndOffset());
+            assertTrue(journal.isEmpty());
+
+            // The next record starts at the beginning again
+            JournalEntry next = JournalEntry.lastView(3, 100);
+            journal.append(next);
+            assertEquals(16, next.getOffset());
+            assertEquals(List.of(3), movieIds(journal.readPending()));
+        }
+    }
+
+    @Test
+    void damagedRecordEndsTheLog() throws IOException {
+        Path file = dir.resolve("writes.journal");
+        JournalEntry second = JournalEntry.lastView(2, 100);
+        try (WriteJournal journal = new WriteJournal(file)) {
+            journal.append(JournalEntry.lastView(1, 100));
+            journal.append(second);
+            journal.append(JournalEntry.lastView(3, 100));
+        }
+
+        // Flip one payload byte of the second record (after its length and checksum)
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long position = second.getOffset() + 8 + 20;
+            ByteBuffer b = ByteBuffer.allocate(1);
+            channel.read(b, position);
+            b.put(0, (byte) (b.get(0) ^ 0xFF));
+            b.rewind();
+            channel.write(b, position);
+        }
+
+        try (WriteJournal journal = new WriteJournal(file)) {
+            assertEquals(List.of(1), movieIds(journal.readPending()));
+
+            // New records go right after the last good one and are readable
+            journal.append(JournalEntry.lastView(4, 100));
+            assertEquals(List.of(1, 4), movieIds(journal.readPending()));
+        }
+
+        try (WriteJournal journal = new WriteJournal(file)) {
+            assertEquals(List.of(1, 4), movieIds(journal.readPending()));
+        }
+    }
+
+    @Test
+    void tornRecordWithoutLengthIsIgnored() throws IOException {
+        Path file = dir.resolve("writes.journal");
+        JournalEntry second = JournalEntry.lastView(2, 100);
+        try (WriteJournal journal = new WriteJournal(file)) {
+            journal.append(JournalEntry.lastView(1, 100));
+            journal.append(second);
+        }
+
+        // A crash before the length was written leaves a zero length: the end of the log
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4), second.getOffset());
+        }
+
+        try (WriteJournal journal = new WriteJournal(file)) {
+            assertEquals(List.of(1), movieIds(journal.readPending()));
+        }
+    }
+
+    @Test
+    void growsBeyondTheInitialSize() throws IOException {
+        Path file = dir.resolve("writes.journal");
+        String longTitle = "x".repeat(60_000);
+
+        try (WriteJournal journal = new WriteJournal(file)) {
+            for (int i = 1; i <= 20; i++) {
+                journal.append(JournalEntry.createMovie(movie(-i, longTitle), List.of()));
+            }
+        }
+
+        try (WriteJournal journal = new WriteJournal(file)) {
+            List<JournalEntry> pending = journal.readPending();
+            assertEquals(20, pending.size());
+            assertEquals(longTitle, pending.get(19).getTitle());
+        }
+    }
+
+    private static Movie movie(int id, String title) {
+        Movie movie = new Movie(id, title, 8.5, 7.0, "C:\\Movies\\" + (title.length() > 20 ? "long" : title) + ".mp4",
+                Movie.NEVER_VIEWED);
+        movie.setVersion(7);
+        return movie;
+    }
+
+    private static List<Integer> movieIds(List<JournalEntry> entries) {
+        return entries.stream().map(JournalEntry::getMovieId).toList();
+    }
+}
@@ -0,0 +1,495 @@
+package loadtest;
+
+import be.Category;
+import be.Movie;
+import be.MovieQuery;
+import dal.CategoryDAO;
+import dal.ConnectionProvider;
+import dal.MigrationRunner;
+import dal.MovieDAO;
+import dal.SqlExecutor;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Soak/load test for the DAL with hundreds of concurrent clients as platform threads (Java 17 has
+ * no virtual threads; a few hundred platform threads are fine for a test run).
+ *
+ * The clients run a mixed workload of searches, last-view updates, edits, creates and deletes
+ * through MovieDAO, then a report shows throughput, latency percentiles, conflicts, errors,
+ * retries, lock contention and connection use.
+ *
+ * It runs against a throw-away embedded (SQLite) database that is migrated and seeded first,
+ * so it never touches real data. Every client is one thread that calls the DAO directly (no
+ * think time), which is the worst case for locking: "update movie" deletes and re-inserts the
+ * category links in the same transaction as the row update, while others read and write.
+ *
+ * It lives in the test sources so it is not shipped with the application. It is not a unit test
+ * and does not run during the build. Run it from the IDE, or after "mvn test-compile" with:
+ * java -cp target/test-classes:target/classes:<dependencies> loadtest.DalLoadTest
+ *
+ * Settings (system properties):
+ * - mymovies.load.clients  concurrent clients (default 200)
+ * - mymovies.load.seconds  test duration (60)
+ * - mymovies.load.movies   movies seeded before the test (2000)
+ * - mymovies.load.mix      operation weights (search=40,lastView=25,update=20,create=10,delete=5)
+ * - mymovies.load.file     SQLite file to use (default: a new temporary file)
+ * Any db.settings key can be passed as mymovies.load.db.key, e.g. -Dmymovies.load.db.retryAttempts=5.
+ */
+public class DalLoadTest {
+
+    private enum Operation {
+        SEARCH("search"),
+        LAST_VIEW("lastView"),
+        UPDATE("update"),
+        CREATE("create"),
+        DELETE("delete");
+
+        private final String key;
+
+        Operation(String key) {
+            this.key = key;
+        }
+    }
+
+    private static final String[] WORDS = {
+            "alien", "heat", "star", "night", "love", "war", "city", "dark", "king", "river",
+            "blue", "ghost", "storm", "last", "road", "iron", "silent", "wild", "gold", "winter"
+    };
+    private static final String[] CATEGORIES = {
+            "Action", "Comedy", "Drama", "Horror", "Sci-Fi", "Thriller", "Family", "Documentary"
+    };
+
+    private static final int PROGRESS_SECONDS = 5;
+
+    private final MovieDAO movieDao;
+    private final CategoryDAO categoryDao;
+    private final List<Category> categories = new ArrayList<>();
+
+    // IDs that exist (or are about to be deleted); clients pick random movies from here
+    private final MovieIds movieIds = new MovieIds();
+    private final AtomicInteger titleCounter = new AtomicInteger();
+
+    private final Map<Operation, Integer> weights;
+    private final int totalWeight;
+
+    // Totals while the test runs (for the progress line)
+    private final LongAdder completed = new LongAdder();
+
+    private DalLoadTest(ConnectionProvider cp, Map<Operation, Integer> weights) {
+        this.movieDao = new MovieDAO(cp, 0);
+        this.categoryDao = new CategoryDAO(cp, 0);
+        this.weights = weights;
+        int sum = 0;
+        for (int weight : weights.values()) {
+            sum += weight;
+        }
+        this.totalWeight = sum;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int clients = Integer.getInteger("mymovies.load.clients", 200);
+        int seconds = Integer.getInteger("mymovies.load.seconds", 60);
+        int seedMovies = Integer.getInteger("mymovies.load.movies", 2000);
+        Map<Operation, Integer> mix = parseMix(System.getProperty("mymovies.load.mix",
+                "search=40,lastView=25,update=20,create=10,delete=5"));
+
+        Path file;
+        if (System.getProperty("mymovies.load.file") != null) {
+            file = Path.of(System.getProperty("mymovies.load.file"));
+        } else {
+            file = Files.createTempFile("mymovies-load", ".db");
+            for (String suffix : new String[]{"", "-wal", "-shm"}) {
+                Path.of(file + suffix).toFile().deleteOnExit();
+            }
+        }
+
+        Properties settings = new Properties();
+        settings.setProperty("backend", "sqlite");
+        settings.setProperty("file", file.toString());
+        for (String key : System.getProperties().stringPropertyNames()) {
+            if (key.startsWith("mymovies.load.db.")) {
+                settings.setProperty(key.substring("mymovies.load.db.".length()), System.getProperty(key));
+            }
+        }
+        ConnectionProvider cp = new ConnectionProvider(settings);
+
+        System.out.println("Database: " + cp.getTarget());
+        new MigrationRunner(cp).migrate();
+
+        DalLoadTest test = new DalLoadTest(cp, mix);
+        test.seed(seedMovies);
+        System.out.println("Running " + clients + " clients for " + seconds + " s, mix " + mix);
+        test.run(clients, seconds);
+    }
+
+    // ---------- Setup ----------
+
+    private void seed(int movieCount) {
+        Map<String, Category> existing = new HashMap<>();
+        for (Category category : categoryDao.getAllCategories()) {
+            existing.put(category.getName(), category);
+        }
+        for (String name : CATEGORIES) {
+            Category category = existing.get(name);
+            categories.add(category != null ? category : categoryDao.createCategory(name));
+        }
+
+        // One transaction for all seed movies, then their categories in one transaction per category
+        List<Movie> added = new ArrayList<>(movieCount);
+        for (int i = 0; i < movieCount; i++) {
+            added.add(newMovie(ThreadLocalRandom.current()));
+        }
+        movieDao.applyLibraryChanges(added, Map.of());
+
+        Map<Category, List<Integer>> byCategory = new HashMap<>();
+        for (Movie movie : added) {
+            byCategory.computeIfAbsent(categories.get(movie.getId() % categories.size()), c -> new ArrayList<>())
+                    .add(movie.getId());
+        }
+        byCategory.forEach((category, ids) -> movieDao.setCategoriesForMovies(ids, List.of(category)));
+
+        for (Movie movie : movieDao.getAllMovies()) {
+            movieIds.add(movie.getId());
+        }
+        System.out.println("Seeded " + movieCount + " movies (" + movieIds.size() + " in the database)");
+    }
+
+    // ---------- Test run ----------
+
+    private void run(int clients, int seconds) throws InterruptedException {
+        SqlExecutor.Statistics before = SqlExecutor.statistics();
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+
+        ExecutorService pool = Executors.newFixedThreadPool(clients, r -> {
+            Thread t = new Thread(r, "load-client");
+            t.setDaemon(true);
+            return t;
+        });
+        ScheduledExecutorService progress = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "load-progress");
+            t.setDaemon(true);
+            return t;
+        });
+        progress.scheduleAtFixedRate(() -> printProgress(start), PROGRESS_SECONDS, PROGRESS_SECONDS, TimeUnit.SECONDS);
+
+        List<Future<Client>> futures = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            futures.add(pool.submit(() -> {
+                Client client = new Client();
+                client.run(end);
+                return client;
+            }));
+        }
+
+        Map<Operation, Result> results = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            results.put(operation, new Result());
+        }
+        for (Future<Client> future : futures) {
+            try {
+                future.get().addTo(results);
+            } catch (ExecutionException e) {
+                System.err.println("Client failed: " + e.getCause());
+            }
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        progress.shutdownNow();
+        pool.shutdownNow();
+        printReport(results, elapsedSeconds, SqlExecutor.statistics().since(before));
+    }
+
+    private void printProgress(long start) {
+        long elapsed = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start);
+        SqlExecutor.Statistics stats = SqlExecutor.statistics();
+        System.out.printf("  %4d s  %,10d operations  %5d connections open  %,d retries%n",
+                elapsed, completed.sum(), stats.getOpenConnections(), stats.getRetries());
+    }
+
+    /**
+     * One virtual user: picks weighted random operations until the end time.
+     */
+    private final class Client {
+
+        private final Map<Operation, Result> results = new EnumMap<>(Operation.class);
+
+        Client() {
+            for (Operation operation : Operation.values()) {
+                results.put(operation, new Result());
+            }
+        }
+
+        void run(long end) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            while (System.nanoTime() < end) {
+                Operation operation = pick(random);
+                Result result = results.get(operation);
+
+                long t0 = System.nanoTime();
+                try {
+                    if (execute(operation, random)) {
+                        result.latencies.add(System.nanoTime() - t0);
+                    } else {
+                        result.conflicts++;
+                    }
+                } catch (RuntimeException e) {
+                    result.errors++;
+                    result.errorMessages.merge(e.getClass().getSimpleName() + ": " + e.getMessage(), 1, Integer::sum);
+                }
+                completed.increment();
+            }
+        }
+
+        void addTo(Map<Operation, Result> totals) {
+            results.forEach((operation, result) -> totals.get(operation).add(result));
+        }
+    }
+
+    private Operation pick(ThreadLocalRandom random) {
+        int r = random.nextInt(totalWeight);
+        for (Map.Entry<Operation, Integer> entry : weights.entrySet()) {
+            r -= entry.getValue();
+            if (r < 0) {
+                return entry.getKey();
+            }
+        }
+        return Operation.SEARCH;
+    }
+
+    /**
+     * Runs one operation.
+     *
+     * @return false if it could not be done because of a concurrent change (conflict, movie gone)
+     */
+    private boolean execute(Operation operation, ThreadLocalRandom random) {
+        switch (operation) {
+            case SEARCH -> {
+                MovieQuery query = new MovieQuery().text(WORDS[random.nextInt(WORDS.length)]).page(0, 50);
+                if (random.nextInt(4) == 0) {
+                    query.category(categories.get(random.nextInt(categories.size())).getId());
+                }
+                movieDao.findMovies(query);
+                return true;
+            }
+            case LAST_VIEW -> {
+                int id = movieIds.random(random);
+                if (id == 0) {
+                    return false;
+                }
+                movieDao.updateLastView(id, System.currentTimeMillis());
+                return true;
+            }
+            case UPDATE -> {
+                // Load, edit and save like the edit dialog: the version check catches lost updates
+                int id = movieIds.random(random);
+                Movie movie = (id == 0) ? null : movieDao.getMovie(id);
+                if (movie == null) {
+                    return false;
+                }
+                movie.setPersonalRating(random.nextInt(0, 101) / 10.0);
+                return movieDao.updateMovie(movie, randomCategories(random));
+            }
+            case CREATE -> {
+                Movie movie = movieDao.createMovie(newMovie(random), randomCategories(random));
+                movieIds.add(movie.getId());
+                return true;
+            }
+            case DELETE -> {
+                int id = movieIds.removeRandom(random);
+                if (id == 0) {
+                    return false;
+                }
+                movieDao.deleteMovie(new Movie(id, "", 0, 0, null, Movie.NEVER_VIEWED));
+                return true;
+            }
+        }
+        throw new IllegalArgumentException("Unknown operation " + operation);
+    }
+
+    private Movie newMovie(ThreadLocalRandom random) {
+        int n = titleCounter.incrementAndGet();
+        String title = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + n;
+        return new Movie(0, title, random.nextInt(0, 101) / 10.0, random.nextInt(0, 101) / 10.0,
+                "/load/" + (n % 100) + "/movie" + n + ".mp4", Movie.NEVER_VIEWED);
+    }
+
+    private List<Category> randomCategories(ThreadLocalRandom random) {
+        List<Category> result = new ArrayList<>(2);
+        result.add(categories.get(random.nextInt(categories.size())));
+        Category second = categories.get(random.nextInt(categories.size()));
+        if (second != result.get(0)) {
+            result.add(second);
+        }
+        return result;
+    }
+
+    // ---------- Report ----------
+
+    private static void printReport(Map<Operation, Result> results, double seconds, SqlExecutor.Statistics dal) {
+        System.out.println();
+        System.out.printf("%-10s %10s %9s %9s %9s %9s %9s %9s %9s%n",
+                "operation", "count", "ops/s", "p50 ms", "p99 ms", "p999 ms", "max ms", "conflicts", "errors");
+
+        Result all = new Result();
+        for (Map.Entry<Operation, Result> entry : results.entrySet()) {
+            printRow(entry.getKey().key, entry.getValue(), seconds);
+            all.add(entry.getValue());
+        }
+        printRow("total", all, seconds);
+
+        System.out.println();
+        System.out.printf("DAL calls %,d, attempts %,d, retries %,d%n", dal.getCalls(), dal.getAttempts(), dal.getRetries());
+        System.out.printf("Failed attempts: %,d lock contention (deadlock, lock timeout, busy), %,d outage%n",
+                dal.getContentionFailures(), dal.getOutageFailures());
+        System.out.printf("Connections opened %,d (%.1f per call), peak open %d%n",
+                dal.getConnectionsOpened(), dal.getCalls() == 0 ? 0 : dal.getConnectionsOpened() / (double) dal.getCalls(),
+                dal.getPeakConnections());
+
+        if (!all.errorMessages.isEmpty()) {
+            System.out.println();
+            System.out.println("Errors:");
+            all.errorMessages.entrySet().stream()
+                    .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                    .limit(10)
+                    .forEach(e -> System.out.printf("%8d  %s%n", e.getValue(), e.getKey()));
+        }
+    }
+
+    private static void printRow(String name, Result result, double seconds) {
+        long[] sorted = result.latencies.sorted();
+        System.out.printf("%-10s %,10d %9.1f %9.2f %9.2f %9.2f %9.2f %9d %9d%n",
+                name, sorted.length, sorted.length / seconds,
+                percentileMillis(sorted, 0.50), percentileMillis(sorted, 0.99), percentileMillis(sorted, 0.999),
+                sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6,
+                result.conflicts, result.errors);
+    }
+
+    /**
+     * Exact percentile (nearest rank) of sorted nanosecond samples, in milliseconds.
+     */
+    private static double percentileMillis(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(p * sorted.length);
+        return sorted[Math.max(0, rank - 1)] / 1e6;
+    }
+
+    private static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String part : mix.split(",")) {
+            String[] keyValue = part.trim().split("=");
+            Operation operation = null;
+            for (Operation candidate : Operation.values()) {
+                if (candidate.key.equalsIgnoreCase(keyValue[0].trim())) {
+                    operation = candidate;
+                }
+            }
+            if (operation == null || keyValue.length != 2) {
+                throw new IllegalArgumentException("Invalid mix entry '" + part + "'.");
+            }
+            int weight = Integer.parseInt(keyValue[1].trim());
+            if (weight > 0) {
+                weights.put(operation, weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("The mix has no operations.");
+        }
+        return weights;
+    }
+
+    // ---------- Helpers ----------
+
+    /**
+     * Successful latencies, conflicts and errors of one operation (one client, or merged).
+     */
+    private static final class Result {
+        final Samples latencies = new Samples();
+        long conflicts;
+        long errors;
+        final Map<String, Integer> errorMessages = new HashMap<>();
+
+        void add(Result other) {
+            latencies.addAll(other.latencies);
+            conflicts += other.conflicts;
+            errors += other.errors;
+            other.errorMessages.forEach((message, count) -> errorMessages.merge(message, count, Integer::sum));
+        }
+    }
+
+    /**
+     * Growable array of nanosecond samples; exact percentiles need every sample.
+     */
+    private static final class Samples {
+        private long[] values = new long[1024];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void addAll(Samples other) {
+            if (size + other.size > values.length) {
+                values = Arrays.copyOf(values, Math.max(values.length * 2, size + other.size));
+            }
+            System.arraycopy(other.values, 0, values, size, other.size);
+            size += other.size;
+        }
+
+        long[] sorted() {
+            long[] copy = Arrays.copyOf(values, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+
+    /**
+     * Movie IDs shared by all clients; random pick and removal in O(1) (swap with the last).
+     */
+    private static final class MovieIds {
+        private int[] ids = new int[1024];
+        private int size;
+
+        synchronized void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        /**
+         * Returns a random ID, or 0 if there is none.
+         */
+        synchronized int random(ThreadLocalRandom random) {
+            return size == 0 ? 0 : ids[random.nextInt(size)];
+        }
+
+        /**
+         * Removes and returns a random ID, or 0 if there is none.
+         */
+        synchronized int removeRandom(ThreadLocalRandom random) {
+            if (size == 0) {
+                return 0;
+            }
+            int index = random.nextInt(size);
+            int id = ids[index];
+            ids[index] = ids[--size];
+            return id;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+    }
+}